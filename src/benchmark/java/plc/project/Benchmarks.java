@@ -0,0 +1,60 @@
+package plc.project;
+
+import java.util.function.Supplier;
+
+/**
+ * Times the code measured by the benchmarks, which run with
+ * {@code gradlew benchmark} rather than with the tests.
+ */
+final class Benchmarks {
+
+    /**
+     * The number of untimed runs, which give the JIT compiler the chance to
+     * compile the code being measured.
+     */
+    static final int WARMUPS = 5;
+
+    /**
+     * The number of timed runs, of which the fastest is reported.
+     */
+    static final int RUNS = 10;
+
+    private Benchmarks() {
+    }
+
+    /**
+     * Runs the task {@link #WARMUPS} times, then returns the least time of
+     * {@link #RUNS} further runs, in nanoseconds. The result of every run is
+     * checked against the expected one.
+     */
+    static long time(Object expected, Supplier<Object> task) {
+        for (int i = 0; i < WARMUPS; i++) {
+            check(expected, task.get());
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            Object result = task.get();
+            best = Math.min(best, System.nanoTime() - start);
+            check(expected, result);
+        }
+        return best;
+    }
+
+    /**
+     * Prints the times of a benchmark, each relative to the first.
+     */
+    static void report(String benchmark, String[] names, long[] nanos) {
+        System.out.println(benchmark + ":");
+        for (int i = 0; i < names.length; i++) {
+            System.out.printf("    %-32s %10.3fms %8.2fx%n", names[i], nanos[i] / 1e6, (double) nanos[0] / nanos[i]);
+        }
+    }
+
+    private static void check(Object expected, Object result) {
+        if (!expected.equals(result)) {
+            throw new AssertionError("Expected " + expected + " but the benchmark returned " + result + ".");
+        }
+    }
+
+}
@@ -0,0 +1,83 @@
+package plc.project;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Optional;
+
+public final class ClassGeneratorBenchmarks {
+
+    /**
+     * Running a source through a class file written directly, against
+     * generating Java source and compiling it with javac.
+     */
+    @Test
+    void benchmarkCompareWithJavac() {
+        Ast.Source source = loop(10000);
+        Object expected = 99990000;
+        Benchmarks.report("Generate, load and run", new String[] {"javac", "class file"}, new long[] {
+                Benchmarks.time(expected, () -> JavaRunner.run(source)),
+                Benchmarks.time(expected, () -> ClassGenerator.run(source))
+        });
+        StringWriter writer = new StringWriter();
+        new Generator(new PrintWriter(writer)).visit(source);
+        System.out.println("    class file of " + new ClassGenerator().generate(source).length + " bytes, Java source of "
+                + writer.toString().length() + " characters");
+    }
+
+    /**
+     * FUN main(): Integer DO
+     *     LET total = 0; LET i = 0;
+     *     WHILE i < n DO total = total + i * 2; i = i + 1; END
+     *     RETURN total;
+     * END
+     *
+     * analyzed by hand, as the analyzer does not accept the comparison.
+     */
+    private static Ast.Source loop(int n) {
+        Ast.Function main = new Ast.Function("main", Arrays.asList(), Arrays.asList(
+                let("total"),
+                let("i"),
+                new Ast.Statement.While(binary("<", access("i"), literal(n), Environment.Type.BOOLEAN), Arrays.asList(
+                        new Ast.Statement.Assignment(access("total"),
+                                binary("+", access("total"), binary("*", access("i"), literal(2), Environment.Type.INTEGER), Environment.Type.INTEGER)),
+                        new Ast.Statement.Assignment(access("i"), binary("+", access("i"), literal(1), Environment.Type.INTEGER))
+                )),
+                new Ast.Statement.Return(access("total"))
+        ));
+        main.setFunction(new Environment.Function("main", "main", Arrays.asList(), Environment.Type.INTEGER, args -> Environment.NIL));
+        return new Ast.Source(Arrays.asList(), Arrays.asList(main));
+    }
+
+    private static Ast.Statement.Declaration let(String name) {
+        Ast.Statement.Declaration declaration = new Ast.Statement.Declaration(name, Optional.of(literal(0)));
+        declaration.setVariable(variable(name));
+        return declaration;
+    }
+
+    private static Ast.Expression.Access access(String name) {
+        Ast.Expression.Access access = new Ast.Expression.Access(Optional.empty(), name);
+        access.setVariable(variable(name));
+        return access;
+    }
+
+    private static Environment.Variable variable(String name) {
+        return new Environment.Variable(name, name, Environment.Type.INTEGER, true, Environment.NIL);
+    }
+
+    private static Ast.Expression.Binary binary(String operator, Ast.Expression left, Ast.Expression right, Environment.Type type) {
+        Ast.Expression.Binary binary = new Ast.Expression.Binary(operator, left, right);
+        binary.setType(type);
+        return binary;
+    }
+
+    private static Ast.Expression.Literal literal(long value) {
+        Ast.Expression.Literal literal = new Ast.Expression.Literal(BigInteger.valueOf(value));
+        literal.setType(Environment.Type.INTEGER);
+        return literal;
+    }
+
+}
@@ -0,0 +1,60 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public final class ExecutionServiceBenchmarks {
+
+    private static final Engine SUM = new Engine(new Parser(new Lexer("VAR total: Integer = 0; " +
+            "FUN main(): Integer DO LET i = 0; WHILE i != 100 DO total = total + i; i = i + 1; END RETURN total; END").lex()).parseSource());
+
+    private static final int INVOCATIONS = 10000;
+
+    /**
+     * The throughput of many short runs submitted at once, and the latency
+     * of each from its submission to its result.
+     */
+    @Test
+    void benchmarkThroughput() throws Exception {
+        for (int i = 0; i < Benchmarks.WARMUPS; i++) {
+            invoke(new long[INVOCATIONS]);
+        }
+        long[] latencies = new long[INVOCATIONS];
+        long elapsed = invoke(latencies);
+        Arrays.sort(latencies);
+        System.out.println("Execution service:");
+        System.out.printf("    %-32s %10d per second%n", INVOCATIONS + " invocations", INVOCATIONS * 1000000000L / elapsed);
+        System.out.printf("    %-32s %10.3fms%n", "p50 latency", latencies[INVOCATIONS / 2] / 1e6);
+        System.out.printf("    %-32s %10.3fms%n", "p99 latency", latencies[INVOCATIONS * 99 / 100] / 1e6);
+    }
+
+    /**
+     * Submits every invocation, recording their latencies, and returns the
+     * time until all of them completed.
+     */
+    private static long invoke(long[] latencies) throws Exception {
+        try (ExecutionService service = new ExecutionService(INVOCATIONS, Duration.ofSeconds(60))) {
+            List<CompletableFuture<Environment.PlcObject>> results = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int i = 0; i < INVOCATIONS; i++) {
+                int index = i;
+                long submitted = System.nanoTime();
+                results.add(service.submit(SUM).whenComplete((result, exception) -> latencies[index] = System.nanoTime() - submitted));
+            }
+            CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).get();
+            long elapsed = System.nanoTime() - start;
+            for (CompletableFuture<Environment.PlcObject> result : results) {
+                Assertions.assertEquals(BigInteger.valueOf(4950), result.get().getValue());
+            }
+            return elapsed;
+        }
+    }
+
+}
@@ -0,0 +1,78 @@
+package plc.project;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+
+public final class InterpreterBenchmarks {
+
+    /**
+     * Variables resolved to frame slots (see {@link Resolver}) against the
+     * same loop looking its variables up by name in its scopes.
+     */
+    @Test
+    void benchmarkSlots() {
+        Ast.Source names = parse(loop(BigInteger.ZERO));
+        Ast.Source slots = parse(loop(BigInteger.ZERO));
+        new Resolver().visit(slots);
+        BigInteger expected = BigInteger.valueOf(9999900000L);
+        Benchmarks.report("Variable lookup", new String[] {"names", "slots"}, new long[] {
+                Benchmarks.time(expected, () -> run(names)),
+                Benchmarks.time(expected, () -> run(slots))
+        });
+    }
+
+    /**
+     * Integers held as longs (see {@link Environment.PlcObject#isLong()})
+     * against the same arithmetic on Integers beyond a long, which are held
+     * as BigIntegers.
+     */
+    @Test
+    void benchmarkArithmetic() {
+        BigInteger offset = BigInteger.TEN.pow(20);
+        Ast.Source longs = parse(loop(BigInteger.ZERO));
+        Ast.Source bigIntegers = parse(loop(offset));
+        new Resolver().visit(longs);
+        new Resolver().visit(bigIntegers);
+        BigInteger expected = BigInteger.valueOf(9999900000L);
+        Benchmarks.report("Integer arithmetic", new String[] {"BigInteger", "long"}, new long[] {
+                Benchmarks.time(expected.add(offset.multiply(BigInteger.valueOf(200000))), () -> run(bigIntegers)),
+                Benchmarks.time(expected, () -> run(longs))
+        });
+    }
+
+    /**
+     * A 1MB String built by repeated concatenation, which appends in place
+     * (see {@link Environment#concatenate}) rather than copying the String
+     * built so far.
+     */
+    @Test
+    void benchmarkConcatenation() {
+        Ast.Source source = parse("FUN main(): String DO LET s = \"\"; LET i = 0; " +
+                "WHILE i != 200000 DO s = s + \"abcd\" + 5; i = i + 1; END RETURN s; END");
+        new Resolver().visit(source);
+        Benchmarks.report("String concatenation", new String[] {"1MB String"}, new long[] {
+                Benchmarks.time(1000000, () -> ((String) run(source)).length())
+        });
+    }
+
+    /**
+     * Returns a loop adding up {@code i * 2} for 100000 values of {@code i},
+     * counting up from the given Integer.
+     */
+    private static String loop(BigInteger from) {
+        return "FUN main(): Integer DO LET total = 0; LET i = " + from + "; " +
+                "WHILE i != " + from.add(BigInteger.valueOf(100000)) + " DO total = total + i * 2; i = i + 1; END RETURN total; END";
+    }
+
+    private static Object run(Ast.Source source) {
+        Interpreter interpreter = new Interpreter(new Scope(null));
+        interpreter.setThresholds(Integer.MAX_VALUE, Integer.MAX_VALUE);
+        return interpreter.visit(source).getValue();
+    }
+
+    private static Ast.Source parse(String input) {
+        return new Parser(new Lexer(input).lex()).parseSource();
+    }
+
+}
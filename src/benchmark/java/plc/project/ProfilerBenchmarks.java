@@ -0,0 +1,50 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.time.Duration;
+
+public final class ProfilerBenchmarks {
+
+    private static final String INPUT = "VAR total: Integer = 0; " +
+            "FUN twice(x: Integer): Integer DO RETURN x * 2; END " +
+            "FUN add(x: Integer): Integer DO total = total + twice(x); RETURN total; END " +
+            "FUN main(): Integer DO LET i = 0; WHILE i != 20000 DO add(i); i = i + 1; END RETURN total; END";
+
+    private static final int ROUNDS = 10;
+
+    /**
+     * The same calls with and without a profiler sampling every millisecond,
+     * which should cost less than 5%.
+     */
+    @Test
+    void benchmarkOverhead() throws InterruptedException {
+        Ast.Source source = new Parser(new Lexer(INPUT).lex()).parseSource();
+        BigInteger expected = BigInteger.valueOf(399980000);
+        Profiler profiler = new Profiler(Duration.ofMillis(1));
+        profiler.start();
+        long disabled = Long.MAX_VALUE;
+        long enabled = Long.MAX_VALUE;
+        try {
+            // the two alternate, so that neither is timed while the other
+            // is still being compiled
+            for (int i = 0; i < ROUNDS; i++) {
+                disabled = Math.min(disabled, Benchmarks.time(expected, () -> run(source, null)));
+                enabled = Math.min(enabled, Benchmarks.time(expected, () -> run(source, profiler)));
+            }
+        } finally {
+            profiler.stop();
+        }
+        Benchmarks.report("Profiler", new String[] {"disabled", "enabled"}, new long[] {disabled, enabled});
+        Assertions.assertTrue(enabled < disabled * 1.05, "The profiler costs " + (100.0 * enabled / disabled - 100) + "%.");
+    }
+
+    private static Object run(Ast.Source source, Profiler profiler) {
+        Interpreter interpreter = new Interpreter(new Scope(null));
+        interpreter.setProfiler(profiler);
+        return interpreter.visit(source).getValue();
+    }
+
+}
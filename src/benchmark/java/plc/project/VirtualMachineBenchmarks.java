@@ -0,0 +1,35 @@
+package plc.project;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+
+public final class VirtualMachineBenchmarks {
+
+    private static final String LOOP = "FUN main(): Integer DO LET total = 0; LET i = 0; " +
+            "WHILE i != 200000 DO total = total + i * 2; i = i + 1; END RETURN total; END";
+
+    /**
+     * The same loop interpreted and run as bytecode.
+     */
+    @Test
+    void benchmarkThroughput() {
+        Ast.Source interpreted = parse(LOOP);
+        new Resolver().visit(interpreted);
+        Bytecode.Program program = new Compiler().compile(parse(LOOP));
+        BigInteger expected = BigInteger.valueOf(39999800000L);
+        Benchmarks.report("Loop", new String[] {"interpreter", "virtual machine"}, new long[] {
+                Benchmarks.time(expected, () -> {
+                    Interpreter interpreter = new Interpreter(new Scope(null));
+                    interpreter.setThresholds(Integer.MAX_VALUE, Integer.MAX_VALUE);
+                    return interpreter.visit(interpreted).getValue();
+                }),
+                Benchmarks.time(expected, () -> new VirtualMachine(program, new Scope(null)).run().getValue())
+        });
+    }
+
+    private static Ast.Source parse(String input) {
+        return new Parser(new Lexer(input).lex()).parseSource();
+    }
+
+}
@@ -18,6 +18,12 @@ public final class Analyzer implements Ast.Visitor<Void> {
     public Analyzer(Scope parent) {
         scope = new Scope(parent);
         scope.defineFunction("print", "System.out.println", Arrays.asList(Environment.Type.ANY), Environment.Type.NIL, args -> Environment.NIL);
+        // the list builtins (see Lists), which only the Interpreter runs
+        scope.defineFunction("map", "map", Arrays.asList(Environment.Type.ANY, Environment.Type.STRING), Environment.Type.ANY, args -> Environment.NIL);
+        scope.defineFunction("filter", "filter", Arrays.asList(Environment.Type.ANY, Environment.Type.STRING), Environment.Type.ANY, args -> Environment.NIL);
+        scope.defineFunction("reduce", "reduce", Arrays.asList(Environment.Type.ANY, Environment.Type.STRING, Environment.Type.ANY), Environment.Type.ANY, args -> Environment.NIL);
+        scope.defineFunction("sort", "sort", Arrays.asList(Environment.Type.ANY), Environment.Type.ANY, args -> Environment.NIL);
+        scope.defineFunction("sort", "sort", Arrays.asList(Environment.Type.ANY, Environment.Type.STRING), Environment.Type.ANY, args -> Environment.NIL);
     }
 
     public Scope getScope() {
@@ -48,6 +54,11 @@ public final class Analyzer implements Ast.Visitor<Void> {
                 }
             }
         }
+        Effects effects = new Effects(ast);
+        for (Ast.Function f : ast.getFunctions())
+        {
+            f.setPure(effects.isPure(f.getName(), f.getParameters().size()));
+        }
         if (!mainExists || !mainTypeInt)
         {
             throw new RuntimeException("Missing main/0 function");
@@ -302,6 +313,10 @@ public final class Analyzer implements Ast.Visitor<Void> {
         try
         {
             scope = new Scope(scope);
+            for (Ast.Statement stmt : ast.getStatements())
+            {
+                visit(stmt);
+            }
         }
         finally
         {
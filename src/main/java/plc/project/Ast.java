@@ -53,6 +53,7 @@ public abstract class Ast {
         private final boolean mutable;
         private final Optional<Expression> value;
         private Environment.Variable variable = null;
+        private int slot = -1;
 
         public Global(String name, boolean mutable, Optional<Expression> value) {
             this(name, "Any", mutable, value);
@@ -93,6 +94,18 @@ public abstract class Ast {
             this.variable = variable;
         }
 
+        /**
+         * Returns the index of this global in the globals frame, or -1 if it
+         * has not been resolved (see {@link Resolver}).
+         */
+        public int getSlot() {
+            return slot;
+        }
+
+        public void setSlot(int slot) {
+            this.slot = slot;
+        }
+
 
         @Override
         public boolean equals(Object obj) {
@@ -125,6 +138,8 @@ public abstract class Ast {
         private final Optional<String> returnTypeName;
         private final List<Statement> statements;
         private Environment.Function function = null;
+        private int frameSize = -1;
+        private boolean pure = false;
         
         public Function(String name, List<String> parameters, List<Statement> statements) {
             this(name, parameters, new ArrayList<>(), Optional.of("Any"), statements);
@@ -173,6 +188,31 @@ public abstract class Ast {
             this.function = function;
         }
 
+        /**
+         * Returns the number of slots in a frame of this function, or -1 if it
+         * has not been resolved (see {@link Resolver}).
+         */
+        public int getFrameSize() {
+            return frameSize;
+        }
+
+        public void setFrameSize(int frameSize) {
+            this.frameSize = frameSize;
+        }
+
+        /**
+         * Returns true if the {@link Analyzer} found that calls of this
+         * function depend only on their arguments and have no effects, so
+         * their results may be reused (see {@link Effects#isPure}).
+         */
+        public boolean isPure() {
+            return pure;
+        }
+
+        public void setPure(boolean pure) {
+            this.pure = pure;
+        }
+
 
         @Override
         public boolean equals(Object obj) {
@@ -235,6 +275,7 @@ public abstract class Ast {
             private final Optional<String> typeName;
             private Optional<Ast.Expression> value;
             private Environment.Variable variable = null;
+            private int slot = -1;
 
             public Declaration(String name, Optional<Ast.Expression> value) {
                 this(name, Optional.empty(), value);
@@ -268,6 +309,18 @@ public abstract class Ast {
             public void setVariable(Environment.Variable variable) {
                 this.variable = variable;
             }
+
+            /**
+             * Returns the index of this variable in the frame of its function,
+             * or -1 if it has not been resolved (see {@link Resolver}).
+             */
+            public int getSlot() {
+                return slot;
+            }
+
+            public void setSlot(int slot) {
+                this.slot = slot;
+            }
             
             
             @Override
@@ -600,6 +653,7 @@ public abstract class Ast {
             private final Expression left;
             private final Expression right;
             private Environment.Type type = null;
+            private Interpreter.Node node = null;
 
             public Binary(String operator, Expression left, Expression right) {
                 this.operator = operator;
@@ -631,6 +685,19 @@ public abstract class Ast {
                 this.type = type;
             }
 
+            /**
+             * Returns the node the interpreter evaluates this expression
+             * with, or null if it has not been evaluated (see
+             * {@link Interpreter}).
+             */
+            Interpreter.Node getNode() {
+                return node;
+            }
+
+            void setNode(Interpreter.Node node) {
+                this.node = node;
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Binary &&
@@ -658,6 +725,8 @@ public abstract class Ast {
             private final Optional<Expression> offset;
             private final String name;
             private Environment.Variable variable = null;
+            private int depth = -1;
+            private int slot = -1;
 
             public Access(Optional<Expression> offset, String name) {
                 this.offset = offset;
@@ -683,6 +752,30 @@ public abstract class Ast {
                 this.variable = variable;
             }
 
+            /**
+             * Returns the frame holding the accessed variable, which is
+             * {@link Resolver#LOCAL} or {@link Resolver#GLOBAL}, or -1 if it
+             * has not been resolved (see {@link Resolver}).
+             */
+            public int getDepth() {
+                return depth;
+            }
+
+            public void setDepth(int depth) {
+                this.depth = depth;
+            }
+
+            /**
+             * Returns the index of the accessed variable in its frame.
+             */
+            public int getSlot() {
+                return slot;
+            }
+
+            public void setSlot(int slot) {
+                this.slot = slot;
+            }
+
             @Override
             public Environment.Type getType() {
                 return getVariable().getType();
@@ -713,6 +806,8 @@ public abstract class Ast {
             private final String name;
             private final List<Expression> arguments;
             private Environment.Function function = null;
+            private int slot = -1;
+            private Target target = null;
 
             public Function(String name, List<Expression> arguments) {
                 this.name = name;
@@ -738,6 +833,33 @@ public abstract class Ast {
                 this.function = function;
             }
 
+            /**
+             * Returns the number of this call within its source, which
+             * indexes the functions each interpreter caches for it, or -1 if
+             * it has not been resolved (see {@link Resolver}).
+             */
+            public int getSlot() {
+                return slot;
+            }
+
+            public void setSlot(int slot) {
+                this.slot = slot;
+            }
+
+            /**
+             * Returns the function this call last invoked if it has not been
+             * resolved, or null if it has not been called (see
+             * {@link Interpreter}). A resolved call is cached by each
+             * interpreter on its own instead.
+             */
+            public Target getTarget() {
+                return target;
+            }
+
+            public void setTarget(Target target) {
+                this.target = target;
+            }
+
             @Override
             public Environment.Type getType() {
                 return getFunction().getReturnType();
@@ -760,6 +882,69 @@ public abstract class Ast {
                         '}';
             }
 
+            /**
+             * A function looked up by a call, along with the scopes that
+             * define any functions between the scope it was looked up in and
+             * the one defining it, and their versions (see
+             * {@link Scope#getVersion()}). A lookup from another scope finds
+             * the same function while it passes the same scopes with
+             * functions, unchanged, whatever scopes without functions are in
+             * between, such as those of the blocks of a loop.
+             */
+            public static final class Target {
+
+                private final Scope[] scopes;
+                private final int[] versions;
+                private final Environment.Function function;
+
+                /**
+                 * Looks the function up from the given scope, as
+                 * {@link Scope#lookupFunction(String, int)} does.
+                 */
+                public Target(Scope scope, String name, int arity) {
+                    List<Scope> scopes = new ArrayList<>();
+                    Environment.Function function = null;
+                    for (Scope current = scope; current != null && function == null; current = current.getParent()) {
+                        if (current.getVersion() != 0) {
+                            scopes.add(current);
+                            function = current.getFunction(name, arity);
+                        }
+                    }
+                    if (function == null) {
+                        throw new RuntimeException("The function " + name + "/" + arity + " is not defined in this scope.");
+                    }
+                    this.scopes = scopes.toArray(new Scope[0]);
+                    this.versions = new int[this.scopes.length];
+                    for (int i = 0; i < versions.length; i++) {
+                        versions[i] = this.scopes[i].getVersion();
+                    }
+                    this.function = function;
+                }
+
+                /**
+                 * Returns true if a lookup from the given scope would find the
+                 * same function.
+                 */
+                public boolean isValid(Scope scope) {
+                    int i = 0;
+                    for (Scope current = scope; current != null; current = current.getParent()) {
+                        if (current.getVersion() == 0) {
+                            continue;
+                        } else if (current != scopes[i] || current.getVersion() != versions[i]) {
+                            return false;
+                        } else if (++i == scopes.length) {
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+
+                public Environment.Function getFunction() {
+                    return function;
+                }
+
+            }
+
         }
 
         public static final class PlcList extends Expression {
@@ -0,0 +1,197 @@
+package plc.project;
+
+import java.util.List;
+
+/**
+ * The instruction set of the {@link VirtualMachine}, and the compiled form of
+ * a source produced by the {@link Compiler}.
+ *
+ * Each function is compiled to a {@link Chunk}, an array of instructions in
+ * which every opcode is followed by its operands. Instructions work on an
+ * operand stack, above the slots of the running function's frame; the slots
+ * are those assigned by the {@link Resolver}. Literals are held in a constant
+ * pool shared by the whole program.
+ */
+public final class Bytecode {
+
+    /** {@code CONST k}: pushes constant {@code k}. */
+    public static final int CONST = 0;
+    /** {@code NIL}: pushes nil. */
+    public static final int NIL = 1;
+    /** {@code POP}: discards the top of the stack. */
+    public static final int POP = 2;
+    /** {@code LOAD s}: pushes local slot {@code s}. */
+    public static final int LOAD = 3;
+    /** {@code STORE s}: pops into local slot {@code s}. */
+    public static final int STORE = 4;
+    /** {@code LOAD_GLOBAL s}: pushes global slot {@code s}. */
+    public static final int LOAD_GLOBAL = 5;
+    /** {@code STORE_GLOBAL s}: pops into global slot {@code s}. */
+    public static final int STORE_GLOBAL = 6;
+    /** {@code LOAD_NAME k}: pushes the variable named by constant {@code k}, looked up in the machine's scope. */
+    public static final int LOAD_NAME = 7;
+    /** {@code STORE_NAME k}: pops into the variable named by constant {@code k}, defining it if needed. */
+    public static final int STORE_NAME = 8;
+    /** {@code LIST n k}: pops {@code n} values and pushes a list of them, of the element type named by constant {@code k}. */
+    public static final int LIST = 9;
+    /** {@code INDEX}: pops an offset and a list, and pushes the element. */
+    public static final int INDEX = 10;
+    /** {@code STORE_INDEX}: pops a value, an offset and a list, and sets the element. */
+    public static final int STORE_INDEX = 11;
+    /** {@code ADD}, {@code SUB}, {@code MUL}, {@code DIV}, {@code POW}: pop two operands and push the result. */
+    public static final int ADD = 12;
+    public static final int SUB = 13;
+    public static final int MUL = 14;
+    public static final int DIV = 15;
+    public static final int POW = 16;
+    /** {@code LT}, {@code GT}, {@code EQ}, {@code NE}: pop two operands and push the comparison. */
+    public static final int LT = 17;
+    public static final int GT = 18;
+    public static final int EQ = 19;
+    public static final int NE = 20;
+    /** {@code CHECK_BOOLEAN}: fails unless the top of the stack is a Boolean. */
+    public static final int CHECK_BOOLEAN = 21;
+    /** {@code MATCH}: pops a case value and a switch condition, and pushes whether the case matches. */
+    public static final int MATCH = 22;
+    /** {@code JUMP t}: continues at {@code t}. */
+    public static final int JUMP = 23;
+    /** {@code JUMP_IF_FALSE t}: pops a Boolean, and continues at {@code t} if it is false. */
+    public static final int JUMP_IF_FALSE = 24;
+    /** {@code JUMP_IF_TRUE t}: pops a Boolean, and continues at {@code t} if it is true. */
+    public static final int JUMP_IF_TRUE = 25;
+    /** {@code CALL f n}: calls function {@code f} with the top {@code n} values as arguments. */
+    public static final int CALL = 26;
+    /** {@code TAIL_CALL f n}: calls the running function {@code f} again, reusing its frame. */
+    public static final int TAIL_CALL = 27;
+    /** {@code NATIVE k n}: calls the function named by constant {@code k} in the machine's scope. */
+    public static final int NATIVE = 28;
+    /** {@code RETURN}: pops the result and returns it to the caller. */
+    public static final int RETURN = 29;
+
+    private static final String[] NAMES = {
+            "CONST", "NIL", "POP", "LOAD", "STORE", "LOAD_GLOBAL", "STORE_GLOBAL", "LOAD_NAME", "STORE_NAME",
+            "LIST", "INDEX", "STORE_INDEX", "ADD", "SUB", "MUL", "DIV", "POW", "LT", "GT", "EQ", "NE",
+            "CHECK_BOOLEAN", "MATCH", "JUMP", "JUMP_IF_FALSE", "JUMP_IF_TRUE", "CALL", "TAIL_CALL", "NATIVE", "RETURN"
+    };
+
+    private static final int[] OPERANDS = {
+            1, 0, 0, 1, 1, 1, 1, 1, 1,
+            2, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 1, 1, 1, 2, 2, 2, 0
+    };
+
+    private Bytecode() {}
+
+    /**
+     * Returns the number of operands following the given opcode.
+     */
+    public static int getOperands(int opcode) {
+        return OPERANDS[opcode];
+    }
+
+    /**
+     * The instructions of a single function. The frame holds the parameters
+     * in its first slots, followed by the other variables of the function.
+     */
+    public static final class Chunk {
+
+        private final String name;
+        private final int arity;
+        private final int frameSize;
+        private final int[] code;
+
+        public Chunk(String name, int arity, int frameSize, int[] code) {
+            this.name = name;
+            this.arity = arity;
+            this.frameSize = frameSize;
+            this.code = code;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getArity() {
+            return arity;
+        }
+
+        public int getFrameSize() {
+            return frameSize;
+        }
+
+        public int[] getCode() {
+            return code;
+        }
+
+    }
+
+    /**
+     * A compiled source. The {@code initializer} chunk defines the globals,
+     * and is run before {@code main}.
+     */
+    public static final class Program {
+
+        private final Chunk initializer;
+        private final List<Chunk> functions;
+        private final Environment.PlcObject[] constants;
+        private final int globals;
+
+        public Program(Chunk initializer, List<Chunk> functions, Environment.PlcObject[] constants, int globals) {
+            this.initializer = initializer;
+            this.functions = functions;
+            this.constants = constants;
+            this.globals = globals;
+        }
+
+        public Chunk getInitializer() {
+            return initializer;
+        }
+
+        public List<Chunk> getFunctions() {
+            return functions;
+        }
+
+        public Environment.PlcObject[] getConstants() {
+            return constants;
+        }
+
+        public int getGlobals() {
+            return globals;
+        }
+
+    }
+
+    /**
+     * Returns a readable listing of a program, with one instruction per line
+     * preceded by its offset. Constants and called functions are shown after
+     * the instructions that refer to them.
+     */
+    public static String disassemble(Program program) {
+        StringBuilder builder = new StringBuilder();
+        disassemble(program, program.getInitializer(), builder);
+        for (Chunk chunk : program.getFunctions()) {
+            disassemble(program, chunk, builder);
+        }
+        return builder.toString();
+    }
+
+    private static void disassemble(Program program, Chunk chunk, StringBuilder builder) {
+        builder.append(chunk.getName()).append('/').append(chunk.getArity())
+                .append(" (frame ").append(chunk.getFrameSize()).append("):").append(System.lineSeparator());
+        int[] code = chunk.getCode();
+        for (int ip = 0; ip < code.length; ip += 1 + OPERANDS[code[ip]]) {
+            int opcode = code[ip];
+            builder.append(String.format("%04d %s", ip, NAMES[opcode]));
+            for (int i = 1; i <= OPERANDS[opcode]; i++) {
+                builder.append(' ').append(code[ip + i]);
+            }
+            if (opcode == CONST || opcode == LOAD_NAME || opcode == STORE_NAME || opcode == NATIVE) {
+                builder.append(" (").append(program.getConstants()[code[ip + 1]].getValue()).append(')');
+            } else if (opcode == CALL || opcode == TAIL_CALL) {
+                builder.append(" (").append(program.getFunctions().get(code[ip + 1]).getName()).append(')');
+            }
+            builder.append(System.lineSeparator());
+        }
+    }
+
+}
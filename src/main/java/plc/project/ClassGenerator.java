@@ -0,0 +1,689 @@
+package plc.project;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles an analyzed source directly to a JVM class, as an alternative to
+ * the {@link Generator} that needs no Java source or compiler. The program
+ * behaves as the Java the {@link Generator} produces, with Integers as
+ * {@code int}s and Decimals as {@code double}s.
+ *
+ * Globals become static fields, initialized in the order they are declared,
+ * and functions become static methods. The class is defined as a hidden
+ * class, which is unloaded once it is no longer used.
+ *
+ * {@code print} writes to the {@link Output} held in the static field
+ * {@link #OUTPUT}, which is initially {@link Output#getDefault()} and which
+ * {@link #run(Ast.Source, Output)} sets to the output it is given.
+ */
+public final class ClassGenerator implements Ast.Visitor<Void> {
+
+    /**
+     * The name of the generated class, in this package as hidden classes must
+     * be in the package of the lookup defining them.
+     */
+    private static final String CLASS_NAME = "plc/project/Program";
+
+    /**
+     * The name of the field holding where {@code print} writes, which no
+     * global can have.
+     */
+    static final String OUTPUT = "$output";
+
+    private final ClassWriter writer = new ClassWriter(CLASS_NAME);
+    private final Map<String, String> globals = new HashMap<>();
+    private final Map<String, String> functions = new HashMap<>();
+    private final List<Map<String, Local>> locals = new ArrayList<>();
+    private ClassWriter.Code code;
+    private String returnDescriptor;
+    private int nextLocal;
+    private int maxLocals;
+
+    /**
+     * Compiles an analyzed source, returning the contents of the class file.
+     */
+    public byte[] generate(Ast.Source ast) {
+        visit(ast);
+        return writer.toByteArray();
+    }
+
+    /**
+     * Optimizes, compiles and defines an analyzed source, and returns the
+     * result of its {@code main} function.
+     */
+    public static Object run(Ast.Source ast) {
+        return run(ast, Output.getDefault());
+    }
+
+    /**
+     * Runs an analyzed source as above, printing to the given output, which
+     * is flushed once it has run.
+     */
+    public static Object run(Ast.Source ast, Output output) {
+        String descriptor = null;
+        for (Ast.Function function : ast.getFunctions()) {
+            if (function.getName().equals("main") && function.getParameters().isEmpty()) {
+                descriptor = descriptor(function.getFunction().getReturnType());
+            }
+        }
+        if (descriptor == null) {
+            throw new RuntimeException("The function main/0 is not defined in this scope.");
+        }
+        byte[] bytes = new ClassGenerator().generate(new Optimizer().visit(ast));
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            lookup.findStaticSetter(lookup.lookupClass(), OUTPUT, Output.class).invoke(output);
+            return lookup.findStatic(lookup.lookupClass(), "main", MethodType.methodType(type(descriptor))).invoke();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        } finally {
+            output.flush();
+        }
+    }
+
+    @Override
+    public Void visit(Ast.Source ast) {
+        code = new ClassWriter.Code();
+        nextLocal = 0;
+        maxLocals = 0;
+        writer.addField(ClassWriter.ACC_STATIC, OUTPUT, "Lplc/project/Output;");
+        code.op16(ClassWriter.INVOKESTATIC, 1, writer.method("plc/project/Output", "getDefault", "()Lplc/project/Output;"));
+        code.op16(ClassWriter.PUTSTATIC, -1, writer.field(CLASS_NAME, OUTPUT, "Lplc/project/Output;"));
+        for (Ast.Global global : ast.getGlobals()) {
+            visit(global);
+        }
+        code.op(ClassWriter.RETURN, 0);
+        writer.addMethod(ClassWriter.ACC_STATIC, "<clinit>", "()V", code, maxLocals);
+        for (Ast.Function function : ast.getFunctions()) {
+            functions.put(function.getName() + "/" + function.getParameters().size(), descriptor(function.getFunction()));
+        }
+        for (Ast.Function function : ast.getFunctions()) {
+            visit(function);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Global ast) {
+        boolean list = ast.getValue().isPresent() && ast.getValue().get() instanceof Ast.Expression.PlcList;
+        String descriptor = (list ? "[" : "") + descriptor(ast.getVariable().getType());
+        writer.addField(ClassWriter.ACC_STATIC | (ast.getMutable() ? 0 : ClassWriter.ACC_FINAL), ast.getName(), descriptor);
+        if (ast.getValue().isPresent()) {
+            visit(ast.getValue().get());
+            code.op16(ClassWriter.PUTSTATIC, -ClassWriter.size(descriptor), writer.field(CLASS_NAME, ast.getName(), descriptor));
+        }
+        globals.put(ast.getName(), descriptor);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Function ast) {
+        code = new ClassWriter.Code();
+        returnDescriptor = descriptor(ast.getFunction().getReturnType());
+        nextLocal = 0;
+        maxLocals = 0;
+        locals.add(new HashMap<>());
+        for (int i = 0; i < ast.getParameters().size(); i++) {
+            declare(ast.getParameters().get(i), descriptor(ast.getFunction().getParameterTypes().get(i)));
+        }
+        block(ast.getStatements());
+        locals.remove(locals.size() - 1);
+        if (code.isReachable()) {
+            // javac would reject a function that does not return, so this returns a default
+            if (!returnDescriptor.equals("V")) {
+                zero(returnDescriptor);
+            }
+            code.op(returnOpcode(returnDescriptor), -ClassWriter.size(returnDescriptor));
+        }
+        writer.addMethod(ClassWriter.ACC_STATIC, ast.getFunction().getJvmName(), descriptor(ast.getFunction()), code, maxLocals);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Expression ast) {
+        visit(ast.getExpression());
+        pop(descriptor(ast.getExpression()));
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Declaration ast) {
+        boolean list = ast.getValue().isPresent() && ast.getValue().get() instanceof Ast.Expression.PlcList;
+        String descriptor = (list ? "[" : "") + descriptor(ast.getVariable().getType());
+        if (ast.getValue().isPresent()) {
+            visit(ast.getValue().get());
+        } else {
+            zero(descriptor);
+        }
+        Local local = declare(ast.getName(), descriptor);
+        store(local.descriptor, local.index);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Assignment ast) {
+        if (!(ast.getReceiver() instanceof Ast.Expression.Access)) {
+            throw new RuntimeException("Only Ast.Expression.Access is assignable");
+        }
+        Ast.Expression.Access receiver = (Ast.Expression.Access) ast.getReceiver();
+        if (receiver.getOffset().isPresent()) {
+            String descriptor = load(receiver.getName());
+            visit(receiver.getOffset().get());
+            visit(ast.getValue());
+            String element = descriptor.substring(1);
+            code.op(arrayOpcode(element, true), -2 - ClassWriter.size(element));
+        } else {
+            visit(ast.getValue());
+            Local local = lookup(receiver.getName());
+            if (local != null) {
+                store(local.descriptor, local.index);
+            } else {
+                String descriptor = globals.get(receiver.getName());
+                code.op16(ClassWriter.PUTSTATIC, -ClassWriter.size(descriptor), writer.field(CLASS_NAME, receiver.getName(), descriptor));
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.If ast) {
+        ClassWriter.Label otherwise = new ClassWriter.Label();
+        branch(ast.getCondition(), otherwise, false);
+        block(ast.getThenStatements());
+        if (ast.getElseStatements().isEmpty()) {
+            code.mark(otherwise);
+        } else {
+            ClassWriter.Label end = new ClassWriter.Label();
+            code.jump(ClassWriter.GOTO, 0, end);
+            code.mark(otherwise);
+            block(ast.getElseStatements());
+            code.mark(end);
+        }
+        return null;
+    }
+
+    /**
+     * Jumps to the first case equal to the condition, and falls through the
+     * cases after it, as a Java switch does.
+     */
+    @Override
+    public Void visit(Ast.Statement.Switch ast) {
+        String descriptor = descriptor(ast.getCondition());
+        visit(ast.getCondition());
+        locals.add(new HashMap<>());
+        Local condition = declare("$switch", descriptor);
+        store(descriptor, condition.index);
+        List<ClassWriter.Label> labels = new ArrayList<>();
+        ClassWriter.Label otherwise = null;
+        for (Ast.Statement.Case c : ast.getCases()) {
+            ClassWriter.Label label = new ClassWriter.Label();
+            labels.add(label);
+            if (!c.getValue().isPresent()) {
+                otherwise = label;
+                continue;
+            }
+            load(descriptor, condition.index);
+            visit(c.getValue().get());
+            if (descriptor.equals("D")) {
+                code.op(ClassWriter.DCMPL, -3);
+                code.jump(ClassWriter.IFEQ, -1, label);
+            } else if (descriptor.length() == 1) {
+                code.jump(ClassWriter.IF_ICMPEQ, -2, label);
+            } else {
+                code.op16(ClassWriter.INVOKEVIRTUAL, -1, writer.method("java/lang/Object", "equals", "(Ljava/lang/Object;)Z"));
+                code.jump(ClassWriter.IFNE, -1, label);
+            }
+        }
+        ClassWriter.Label end = new ClassWriter.Label();
+        code.jump(ClassWriter.GOTO, 0, otherwise != null ? otherwise : end);
+        for (int i = 0; i < ast.getCases().size(); i++) {
+            code.mark(labels.get(i));
+            block(ast.getCases().get(i).getStatements());
+        }
+        code.mark(end);
+        locals.remove(locals.size() - 1);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Case ast) {
+        block(ast.getStatements());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.While ast) {
+        ClassWriter.Label start = new ClassWriter.Label();
+        ClassWriter.Label end = new ClassWriter.Label();
+        code.mark(start);
+        branch(ast.getCondition(), end, false);
+        block(ast.getStatements());
+        code.jump(ClassWriter.GOTO, 0, start);
+        code.mark(end);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Return ast) {
+        visit(ast.getValue());
+        if (returnDescriptor.equals("V")) {
+            pop(descriptor(ast.getValue()));
+        }
+        code.op(returnOpcode(returnDescriptor), -ClassWriter.size(returnDescriptor));
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Literal ast) {
+        Object literal = ast.getLiteral();
+        if (literal == null) {
+            code.op(ClassWriter.ACONST_NULL, 1);
+        } else if (literal instanceof Boolean) {
+            push((Boolean) literal ? 1 : 0);
+        } else if (literal instanceof Character) {
+            push((Character) literal);
+        } else if (literal instanceof BigInteger) {
+            push(((BigInteger) literal).intValue());
+        } else if (literal instanceof BigDecimal) {
+            code.op16(ClassWriter.LDC2_W, 2, writer.decimal(((BigDecimal) literal).doubleValue()));
+        } else {
+            code.op16(ClassWriter.LDC_W, 1, writer.string(literal.toString()));
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Group ast) {
+        visit(ast.getExpression());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Binary ast) {
+        String descriptor = descriptor(ast);
+        switch (ast.getOperator()) {
+            case "&&":
+            case "||":
+            case "<":
+            case ">":
+            case "==":
+            case "!=": {
+                ClassWriter.Label otherwise = new ClassWriter.Label();
+                ClassWriter.Label end = new ClassWriter.Label();
+                branch(ast, otherwise, false);
+                push(1);
+                code.jump(ClassWriter.GOTO, 0, end);
+                code.mark(otherwise);
+                push(0);
+                code.mark(end);
+                return null;
+            }
+            case "^": {
+                // ^ is exclusive or in Java, so as in the Generator powers are multiplied out, use
+                // the exact Power.pow for Integers, or Math.pow for Decimals
+                Ast.Expression reduced = Power.reduce(ast);
+                if (reduced != null) {
+                    return visit(reduced);
+                }
+                visit(ast.getLeft());
+                if (descriptor.equals("I")) {
+                    visit(ast.getRight());
+                    code.op16(ClassWriter.INVOKESTATIC, -1, writer.method("plc/project/Power", "pow", "(II)I"));
+                    return null;
+                }
+                if (!descriptor(ast.getLeft()).equals("D")) {
+                    code.op(ClassWriter.I2D, 1);
+                }
+                visit(ast.getRight());
+                code.op(ClassWriter.I2D, 1);
+                code.op16(ClassWriter.INVOKESTATIC, -2, writer.method("java/lang/Math", "pow", "(DD)D"));
+                return null;
+            }
+            case "+":
+                if (descriptor.equals("Ljava/lang/String;")) {
+                    string(ast.getLeft());
+                    string(ast.getRight());
+                    code.op16(ClassWriter.INVOKEVIRTUAL, -1, writer.method("java/lang/String", "concat", "(Ljava/lang/String;)Ljava/lang/String;"));
+                    return null;
+                }
+                return arithmetic(ast, ClassWriter.IADD, ClassWriter.DADD);
+            case "-": return arithmetic(ast, ClassWriter.ISUB, ClassWriter.DSUB);
+            case "*": return arithmetic(ast, ClassWriter.IMUL, ClassWriter.DMUL);
+            case "/": return arithmetic(ast, ClassWriter.IDIV, ClassWriter.DDIV);
+            default:
+                throw new RuntimeException("Invalid operator " + ast.getOperator());
+        }
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Access ast) {
+        String descriptor = load(ast.getName());
+        if (ast.getOffset().isPresent()) {
+            visit(ast.getOffset().get());
+            String element = descriptor.substring(1);
+            code.op(arrayOpcode(element, false), ClassWriter.size(element) - 2);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Function ast) {
+        String function = functions.get(ast.getName() + "/" + ast.getArguments().size());
+        if (function != null) {
+            for (Ast.Expression argument : ast.getArguments()) {
+                visit(argument);
+            }
+            code.op16(ClassWriter.INVOKESTATIC, ClassWriter.effect(function), writer.method(CLASS_NAME, ast.getFunction().getJvmName(), function));
+        } else if (ast.getFunction().getJvmName().equals("System.out.println") && ast.getArguments().size() == 1) {
+            code.op16(ClassWriter.GETSTATIC, 1, writer.field(CLASS_NAME, OUTPUT, "Lplc/project/Output;"));
+            Ast.Expression argument = ast.getArguments().get(0);
+            visit(argument);
+            box(descriptor(argument));
+            code.op16(ClassWriter.INVOKEVIRTUAL, -2, writer.method("plc/project/Output", "println", "(Ljava/lang/Object;)V"));
+        } else if (Lists.isBuiltin(ast.getName(), ast.getArguments().size())) {
+            throw new UnsupportedOperationException("The builtin " + ast.getName() + "/" + ast.getArguments().size() + " is only run by the Interpreter.");
+        } else {
+            throw new UnsupportedOperationException("The function " + ast.getName() + "/" + ast.getArguments().size() + " has no direct translation.");
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.PlcList ast) {
+        String element = descriptor(ast.getType());
+        push(ast.getValues().size());
+        switch (element) {
+            case "Z": code.op(ClassWriter.NEWARRAY, 0, 4); break;
+            case "C": code.op(ClassWriter.NEWARRAY, 0, 5); break;
+            case "D": code.op(ClassWriter.NEWARRAY, 0, 7); break;
+            case "I": code.op(ClassWriter.NEWARRAY, 0, 10); break;
+            default:
+                code.op16(ClassWriter.ANEWARRAY, 0, writer.classRef(element.substring(1, element.length() - 1)));
+        }
+        for (int i = 0; i < ast.getValues().size(); i++) {
+            code.op(ClassWriter.DUP, 1);
+            push(i);
+            visit(ast.getValues().get(i));
+            code.op(arrayOpcode(element, true), -2 - ClassWriter.size(element));
+        }
+        return null;
+    }
+
+    /**
+     * Jumps to {@code label} if the condition evaluates to {@code when}, and
+     * continues otherwise.
+     */
+    private void branch(Ast.Expression condition, ClassWriter.Label label, boolean when) {
+        if (condition instanceof Ast.Expression.Group) {
+            branch(((Ast.Expression.Group) condition).getExpression(), label, when);
+            return;
+        } else if (!(condition instanceof Ast.Expression.Binary)) {
+            visit(condition);
+            code.jump(when ? ClassWriter.IFNE : ClassWriter.IFEQ, -1, label);
+            return;
+        }
+        Ast.Expression.Binary ast = (Ast.Expression.Binary) condition;
+        String operator = ast.getOperator();
+        if (operator.equals("&&") || operator.equals("||")) {
+            // a && b jumps when false as soon as either is, and a || b jumps when true
+            if (operator.equals("&&") != when) {
+                branch(ast.getLeft(), label, when);
+                branch(ast.getRight(), label, when);
+            } else {
+                ClassWriter.Label skip = new ClassWriter.Label();
+                branch(ast.getLeft(), skip, !when);
+                branch(ast.getRight(), label, when);
+                code.mark(skip);
+            }
+            return;
+        } else if (!operator.equals("<") && !operator.equals(">") && !operator.equals("==") && !operator.equals("!=")) {
+            visit(condition);
+            code.jump(when ? ClassWriter.IFNE : ClassWriter.IFEQ, -1, label);
+            return;
+        }
+        // the condition codes of <, >, == and != when true, and when false
+        int index = operator.equals("<") ? 0 : operator.equals(">") ? 1 : operator.equals("==") ? 2 : 3;
+        int[] integers = when
+                ? new int[] {ClassWriter.IF_ICMPLT, ClassWriter.IF_ICMPGT, ClassWriter.IF_ICMPEQ, ClassWriter.IF_ICMPNE}
+                : new int[] {ClassWriter.IF_ICMPGE, ClassWriter.IF_ICMPLE, ClassWriter.IF_ICMPNE, ClassWriter.IF_ICMPEQ};
+        int[] signs = when
+                ? new int[] {ClassWriter.IFLT, ClassWriter.IFGT, ClassWriter.IFEQ, ClassWriter.IFNE}
+                : new int[] {ClassWriter.IFGE, ClassWriter.IFLE, ClassWriter.IFNE, ClassWriter.IFEQ};
+        String descriptor = descriptor(ast.getLeft());
+        visit(ast.getLeft());
+        visit(ast.getRight());
+        if (descriptor.equals("D")) {
+            code.op(operator.equals("<") ? ClassWriter.DCMPG : ClassWriter.DCMPL, -3);
+            code.jump(signs[index], -1, label);
+        } else if (descriptor.length() == 1) {
+            code.jump(integers[index], -2, label);
+        } else if (index >= 2) {
+            code.jump(index == 2 == when ? ClassWriter.IF_ACMPEQ : ClassWriter.IF_ACMPNE, -2, label);
+        } else {
+            int method = writer.interfaceMethod("java/lang/Comparable", "compareTo", "(Ljava/lang/Object;)I");
+            code.op(ClassWriter.INVOKEINTERFACE, -1, method >> 8 & 0xff, method & 0xff, 2, 0);
+            code.jump(signs[index], -1, label);
+        }
+    }
+
+    private Void arithmetic(Ast.Expression.Binary ast, int integer, int decimal) {
+        visit(ast.getLeft());
+        visit(ast.getRight());
+        if (descriptor(ast).equals("D")) {
+            code.op(decimal, -2);
+        } else {
+            code.op(integer, -1);
+        }
+        return null;
+    }
+
+    /**
+     * Pushes the value of an expression converted to a String, for
+     * concatenation.
+     */
+    private void string(Ast.Expression ast) {
+        visit(ast);
+        String descriptor = descriptor(ast);
+        if (descriptor.length() > 1) {
+            descriptor = "Ljava/lang/Object;";
+        }
+        code.op16(ClassWriter.INVOKESTATIC, ClassWriter.effect("(" + descriptor + ")Ljava/lang/String;"),
+                writer.method("java/lang/String", "valueOf", "(" + descriptor + ")Ljava/lang/String;"));
+    }
+
+    /**
+     * Boxes the primitive of the given descriptor on top of the stack, which
+     * prints as the primitive does.
+     */
+    private void box(String descriptor) {
+        String type;
+        switch (descriptor) {
+            case "I": type = "java/lang/Integer"; break;
+            case "D": type = "java/lang/Double"; break;
+            case "Z": type = "java/lang/Boolean"; break;
+            case "C": type = "java/lang/Character"; break;
+            default:
+                return;
+        }
+        String method = "(" + descriptor + ")L" + type + ";";
+        code.op16(ClassWriter.INVOKESTATIC, ClassWriter.effect(method), writer.method(type, "valueOf", method));
+    }
+
+    private void block(List<Ast.Statement> statements) {
+        locals.add(new HashMap<>());
+        for (Ast.Statement statement : statements) {
+            visit(statement);
+        }
+        locals.remove(locals.size() - 1);
+    }
+
+    private Local declare(String name, String descriptor) {
+        Local local = new Local(nextLocal, descriptor);
+        locals.get(locals.size() - 1).put(name, local);
+        nextLocal += ClassWriter.size(descriptor);
+        maxLocals = Math.max(maxLocals, nextLocal);
+        return local;
+    }
+
+    private Local lookup(String name) {
+        for (int i = locals.size() - 1; i >= 0; i--) {
+            Local local = locals.get(i).get(name);
+            if (local != null) {
+                return local;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Pushes a variable, returning its type descriptor.
+     */
+    private String load(String name) {
+        Local local = lookup(name);
+        if (local != null) {
+            load(local.descriptor, local.index);
+            return local.descriptor;
+        }
+        String descriptor = globals.get(name);
+        if (descriptor == null) {
+            throw new RuntimeException("The variable " + name + " is not defined in this scope.");
+        }
+        code.op16(ClassWriter.GETSTATIC, ClassWriter.size(descriptor), writer.field(CLASS_NAME, name, descriptor));
+        return descriptor;
+    }
+
+    private void load(String descriptor, int index) {
+        int opcode = descriptor.equals("D") ? ClassWriter.DLOAD : descriptor.length() == 1 ? ClassWriter.ILOAD : ClassWriter.ALOAD;
+        code.op(opcode, ClassWriter.size(descriptor), index);
+    }
+
+    private void store(String descriptor, int index) {
+        int opcode = descriptor.equals("D") ? ClassWriter.DSTORE : descriptor.length() == 1 ? ClassWriter.ISTORE : ClassWriter.ASTORE;
+        code.op(opcode, -ClassWriter.size(descriptor), index);
+    }
+
+    private void push(int value) {
+        if (value >= -1 && value <= 5) {
+            code.op(ClassWriter.ICONST_0 + value, 1);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            code.op(ClassWriter.BIPUSH, 1, value & 0xff);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            code.op16(ClassWriter.SIPUSH, 1, value);
+        } else {
+            code.op16(ClassWriter.LDC_W, 1, writer.integer(value));
+        }
+    }
+
+    private void zero(String descriptor) {
+        if (descriptor.equals("D")) {
+            code.op(ClassWriter.DCONST_0, 2);
+        } else if (descriptor.length() == 1) {
+            code.op(ClassWriter.ICONST_0, 1);
+        } else {
+            code.op(ClassWriter.ACONST_NULL, 1);
+        }
+    }
+
+    private void pop(String descriptor) {
+        if (ClassWriter.size(descriptor) == 2) {
+            code.op(ClassWriter.POP2, -2);
+        } else if (ClassWriter.size(descriptor) == 1) {
+            code.op(ClassWriter.POP, -1);
+        }
+    }
+
+    private static int returnOpcode(String descriptor) {
+        switch (descriptor) {
+            case "V": return ClassWriter.RETURN;
+            case "D": return ClassWriter.DRETURN;
+            case "I":
+            case "Z":
+            case "C": return ClassWriter.IRETURN;
+            default: return ClassWriter.ARETURN;
+        }
+    }
+
+    private static int arrayOpcode(String element, boolean store) {
+        switch (element) {
+            case "I": return store ? ClassWriter.IASTORE : ClassWriter.IALOAD;
+            case "D": return store ? ClassWriter.DASTORE : ClassWriter.DALOAD;
+            case "Z": return store ? ClassWriter.BASTORE : ClassWriter.BALOAD;
+            case "C": return store ? ClassWriter.CASTORE : ClassWriter.CALOAD;
+            default: return store ? ClassWriter.AASTORE : ClassWriter.AALOAD;
+        }
+    }
+
+    private String descriptor(Ast.Expression ast) {
+        if (ast instanceof Ast.Expression.Literal && ((Ast.Expression.Literal) ast).getLiteral() == null) {
+            return "Ljava/lang/Object;";
+        } else if (ast instanceof Ast.Expression.Access && !((Ast.Expression.Access) ast).getOffset().isPresent()) {
+            // a list variable is typed by its elements, so its descriptor is the declared one
+            String name = ((Ast.Expression.Access) ast).getName();
+            Local local = lookup(name);
+            if (local != null) {
+                return local.descriptor;
+            } else if (globals.containsKey(name)) {
+                return globals.get(name);
+            }
+        }
+        return descriptor(ast.getType());
+    }
+
+    private static String descriptor(Environment.Function function) {
+        StringBuilder builder = new StringBuilder("(");
+        for (Environment.Type type : function.getParameterTypes()) {
+            builder.append(descriptor(type));
+        }
+        return builder.append(')').append(descriptor(function.getReturnType())).toString();
+    }
+
+    private static String descriptor(Environment.Type type) {
+        switch (type.getJvmName()) {
+            case "int": return "I";
+            case "double": return "D";
+            case "boolean": return "Z";
+            case "char": return "C";
+            case "Void": return "V";
+            case "String": return "Ljava/lang/String;";
+            case "Comparable": return "Ljava/lang/Comparable;";
+            case "Object": return "Ljava/lang/Object;";
+            default:
+                throw new UnsupportedOperationException("The type " + type.getName() + " has no direct translation.");
+        }
+    }
+
+    private static Class<?> type(String descriptor) {
+        switch (descriptor) {
+            case "I": return int.class;
+            case "D": return double.class;
+            case "Z": return boolean.class;
+            case "C": return char.class;
+            case "V": return void.class;
+            case "Ljava/lang/String;": return String.class;
+            case "Ljava/lang/Comparable;": return Comparable.class;
+            default: return Object.class;
+        }
+    }
+
+    private static final class Local {
+
+        private final int index;
+        private final String descriptor;
+
+        private Local(int index, String descriptor) {
+            this.index = index;
+            this.descriptor = descriptor;
+        }
+
+    }
+
+}
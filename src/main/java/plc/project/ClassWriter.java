@@ -0,0 +1,367 @@
+package plc.project;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a class file holding static fields and methods, for the
+ * {@link ClassGenerator}. Only the parts of the format that the generator
+ * needs are supported.
+ *
+ * Classes are written in version 49 (Java 5) of the format, which is verified
+ * by type inference and so needs no stack map frames; the maximum stack size
+ * of each method is tracked as its instructions are written.
+ */
+final class ClassWriter {
+
+    static final int ACC_STATIC = 0x0008;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+
+    static final int ACONST_NULL = 0x01;
+    static final int ICONST_0 = 0x03;
+    static final int DCONST_0 = 0x0e;
+    static final int BIPUSH = 0x10;
+    static final int SIPUSH = 0x11;
+    static final int LDC_W = 0x13;
+    static final int LDC2_W = 0x14;
+    static final int ILOAD = 0x15;
+    static final int DLOAD = 0x18;
+    static final int ALOAD = 0x19;
+    static final int IALOAD = 0x2e;
+    static final int DALOAD = 0x31;
+    static final int AALOAD = 0x32;
+    static final int BALOAD = 0x33;
+    static final int CALOAD = 0x34;
+    static final int ISTORE = 0x36;
+    static final int DSTORE = 0x39;
+    static final int ASTORE = 0x3a;
+    static final int IASTORE = 0x4f;
+    static final int DASTORE = 0x52;
+    static final int AASTORE = 0x53;
+    static final int BASTORE = 0x54;
+    static final int CASTORE = 0x55;
+    static final int POP = 0x57;
+    static final int POP2 = 0x58;
+    static final int DUP = 0x59;
+    static final int IADD = 0x60;
+    static final int DADD = 0x63;
+    static final int ISUB = 0x64;
+    static final int DSUB = 0x67;
+    static final int IMUL = 0x68;
+    static final int DMUL = 0x6b;
+    static final int IDIV = 0x6c;
+    static final int DDIV = 0x6f;
+    static final int I2D = 0x87;
+    static final int D2I = 0x8e;
+    static final int DCMPL = 0x97;
+    static final int DCMPG = 0x98;
+    static final int IFEQ = 0x99;
+    static final int IFNE = 0x9a;
+    static final int IFLT = 0x9b;
+    static final int IFGE = 0x9c;
+    static final int IFGT = 0x9d;
+    static final int IFLE = 0x9e;
+    static final int IF_ICMPEQ = 0x9f;
+    static final int IF_ICMPNE = 0xa0;
+    static final int IF_ICMPLT = 0xa1;
+    static final int IF_ICMPGE = 0xa2;
+    static final int IF_ICMPGT = 0xa3;
+    static final int IF_ICMPLE = 0xa4;
+    static final int IF_ACMPEQ = 0xa5;
+    static final int IF_ACMPNE = 0xa6;
+    static final int GOTO = 0xa7;
+    static final int IRETURN = 0xac;
+    static final int DRETURN = 0xaf;
+    static final int ARETURN = 0xb0;
+    static final int RETURN = 0xb1;
+    static final int GETSTATIC = 0xb2;
+    static final int PUTSTATIC = 0xb3;
+    static final int INVOKEVIRTUAL = 0xb6;
+    static final int INVOKESTATIC = 0xb8;
+    static final int INVOKEINTERFACE = 0xb9;
+    static final int NEWARRAY = 0xbc;
+    static final int ANEWARRAY = 0xbd;
+
+    private final String name;
+    private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+    private final DataOutputStream poolData = new DataOutputStream(pool);
+    private final Map<String, Integer> entries = new HashMap<>();
+    private int count = 1;
+    private final List<byte[]> fields = new ArrayList<>();
+    private final List<byte[]> methods = new ArrayList<>();
+
+    ClassWriter(String name) {
+        this.name = name;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    void addField(int access, String name, String descriptor) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        write(() -> {
+            data.writeShort(access);
+            data.writeShort(utf8(name));
+            data.writeShort(utf8(descriptor));
+            data.writeShort(0);
+        });
+        fields.add(bytes.toByteArray());
+    }
+
+    void addMethod(int access, String name, String descriptor, Code code, int maxLocals) {
+        byte[] instructions = code.finish();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        write(() -> {
+            data.writeShort(access);
+            data.writeShort(utf8(name));
+            data.writeShort(utf8(descriptor));
+            data.writeShort(1);
+            data.writeShort(utf8("Code"));
+            data.writeInt(12 + instructions.length);
+            data.writeShort(code.maxStack);
+            data.writeShort(maxLocals);
+            data.writeInt(instructions.length);
+            data.write(instructions);
+            data.writeShort(0);
+            data.writeShort(0);
+        });
+        methods.add(bytes.toByteArray());
+    }
+
+    byte[] toByteArray() {
+        int thisClass = classRef(name);
+        int superClass = classRef("java/lang/Object");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        write(() -> {
+            data.writeInt(0xCAFEBABE);
+            data.writeShort(0);
+            data.writeShort(49);
+            data.writeShort(count);
+            pool.writeTo(data);
+            data.writeShort(ACC_FINAL | ACC_SUPER);
+            data.writeShort(thisClass);
+            data.writeShort(superClass);
+            data.writeShort(0);
+            data.writeShort(fields.size());
+            for (byte[] field : fields) {
+                data.write(field);
+            }
+            data.writeShort(methods.size());
+            for (byte[] method : methods) {
+                data.write(method);
+            }
+            data.writeShort(0);
+        });
+        return bytes.toByteArray();
+    }
+
+    int utf8(String value) {
+        return entry("Utf8:" + value, 1, () -> {
+            poolData.writeByte(1);
+            poolData.writeUTF(value);
+        });
+    }
+
+    int classRef(String internalName) {
+        int utf8 = utf8(internalName);
+        return entry("Class:" + internalName, 1, () -> {
+            poolData.writeByte(7);
+            poolData.writeShort(utf8);
+        });
+    }
+
+    int string(String value) {
+        int utf8 = utf8(value);
+        return entry("String:" + value, 1, () -> {
+            poolData.writeByte(8);
+            poolData.writeShort(utf8);
+        });
+    }
+
+    int integer(int value) {
+        return entry("Integer:" + value, 1, () -> {
+            poolData.writeByte(3);
+            poolData.writeInt(value);
+        });
+    }
+
+    int decimal(double value) {
+        return entry("Double:" + Double.doubleToRawLongBits(value), 2, () -> {
+            poolData.writeByte(6);
+            poolData.writeDouble(value);
+        });
+    }
+
+    int field(String owner, String name, String descriptor) {
+        return member(9, owner, name, descriptor);
+    }
+
+    int method(String owner, String name, String descriptor) {
+        return member(10, owner, name, descriptor);
+    }
+
+    int interfaceMethod(String owner, String name, String descriptor) {
+        return member(11, owner, name, descriptor);
+    }
+
+    private int member(int tag, String owner, String name, String descriptor) {
+        int classRef = classRef(owner);
+        int nameRef = utf8(name);
+        int typeRef = utf8(descriptor);
+        int nameAndType = entry("NameAndType:" + name + ":" + descriptor, 1, () -> {
+            poolData.writeByte(12);
+            poolData.writeShort(nameRef);
+            poolData.writeShort(typeRef);
+        });
+        return entry(tag + ":" + owner + "." + name + ":" + descriptor, 1, () -> {
+            poolData.writeByte(tag);
+            poolData.writeShort(classRef);
+            poolData.writeShort(nameAndType);
+        });
+    }
+
+    private int entry(String key, int size, Writer writer) {
+        Integer index = entries.get(key);
+        if (index == null) {
+            write(writer);
+            index = count;
+            count += size;
+            entries.put(key, index);
+        }
+        return index;
+    }
+
+    private static void write(Writer writer) {
+        try {
+            writer.write();
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // writing to memory does not fail
+        }
+    }
+
+    /**
+     * Returns the number of stack slots taken by a value of the given type
+     * descriptor, which is 2 for {@code double} and 0 for {@code void}.
+     */
+    static int size(String descriptor) {
+        return descriptor.equals("D") ? 2 : descriptor.equals("V") ? 0 : 1;
+    }
+
+    /**
+     * Returns the stack effect of invoking a method with the given descriptor,
+     * excluding the receiver.
+     */
+    static int effect(String descriptor) {
+        int effect = 0;
+        int i = 1;
+        while (descriptor.charAt(i) != ')') {
+            int start = i;
+            while (descriptor.charAt(i) == '[') {
+                i++;
+            }
+            if (descriptor.charAt(i) == 'L') {
+                i = descriptor.indexOf(';', i);
+            }
+            effect -= size(descriptor.substring(start, i + 1));
+            i++;
+        }
+        return effect + size(descriptor.substring(i + 1));
+    }
+
+    private interface Writer {
+
+        void write() throws IOException;
+
+    }
+
+    /**
+     * A position in the code of a method, which may be jumped to before it is
+     * marked.
+     */
+    static final class Label {
+
+        private int position = -1;
+        private int depth = -1;
+        private final List<Integer> jumps = new ArrayList<>();
+
+    }
+
+    /**
+     * The instructions of a method.
+     */
+    static final class Code {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final List<Label> labels = new ArrayList<>();
+        private int depth = 0;
+        private int maxStack = 0;
+        private boolean reachable = true;
+
+        /**
+         * Writes an instruction with the given operand bytes, which changes the
+         * depth of the stack by {@code effect} slots.
+         */
+        void op(int opcode, int effect, int... operands) {
+            bytes.write(opcode);
+            for (int operand : operands) {
+                bytes.write(operand);
+            }
+            adjust(effect);
+            if (opcode == GOTO || opcode >= IRETURN && opcode <= RETURN) {
+                reachable = false;
+            }
+        }
+
+        void op16(int opcode, int effect, int operand) {
+            op(opcode, effect, operand >> 8 & 0xff, operand & 0xff);
+        }
+
+        void jump(int opcode, int effect, Label label) {
+            labels.add(label);
+            label.jumps.add(bytes.size());
+            op16(opcode, effect, 0);
+            label.depth = depth;
+        }
+
+        void mark(Label label) {
+            label.position = bytes.size();
+            if (!reachable && label.depth >= 0) {
+                depth = label.depth;
+            }
+            reachable = true;
+        }
+
+        boolean isReachable() {
+            return reachable;
+        }
+
+        void adjust(int effect) {
+            depth += effect;
+            maxStack = Math.max(maxStack, depth);
+        }
+
+        private byte[] finish() {
+            byte[] code = bytes.toByteArray();
+            for (Label label : labels) {
+                for (int jump : label.jumps) {
+                    int offset = label.position - jump;
+                    code[jump + 1] = (byte) (offset >> 8);
+                    code[jump + 2] = (byte) offset;
+                }
+            }
+            return code;
+        }
+
+    }
+
+}
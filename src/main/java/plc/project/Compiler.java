@@ -0,0 +1,407 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles a source into {@link Bytecode} for the {@link VirtualMachine}. The
+ * source is resolved first, so variables are compiled to the frame slots
+ * assigned by the {@link Resolver}; a name the source does not declare is
+ * looked up by name at runtime, as the {@link Interpreter} does.
+ *
+ * The compiled program behaves as the interpreter does on the same source,
+ * with one exception: both operands of a comparison are evaluated before the
+ * left one is checked to be comparable.
+ */
+public final class Compiler implements Ast.Visitor<Void> {
+
+    private final List<Environment.PlcObject> constants = new ArrayList<>();
+    private final Map<Object, Integer> constantIndices = new HashMap<>();
+    private final Map<String, Integer> functions = new HashMap<>();
+    private final Map<String, Ast.Global> globals = new HashMap<>();
+
+    private boolean standalone = false;
+    private Ast.Function function;
+    private int[] code;
+    private int length;
+    private int extraSlots;
+    private Bytecode.Program program;
+
+    /**
+     * Compiles a source to a program. The source is resolved in place first,
+     * which sets the same slots on its nodes as an {@link Engine} does and is
+     * the only change made to it, so it can still be interpreted afterwards.
+     */
+    public Bytecode.Program compile(Ast.Source ast) {
+        visit(ast);
+        return program;
+    }
+
+    /**
+     * Compiles a single function, which must already have been resolved, to
+     * a program holding only that function. Its globals and calls to other
+     * functions are looked up by name, so it can replace the function in the
+     * scope of an {@link Interpreter}. Assignments to immutable globals are
+     * left to the {@link Analyzer} to reject.
+     */
+    public Bytecode.Program compile(Ast.Function ast) {
+        if (ast.getFrameSize() < 0) {
+            throw new IllegalArgumentException("The function " + ast.getName() + " has not been resolved.");
+        }
+        standalone = true;
+        functions.put(ast.getName() + "/" + ast.getParameters().size(), 0);
+        begin(null);
+        emit(Bytecode.NIL);
+        emit(Bytecode.RETURN);
+        Bytecode.Chunk initializer = end("<globals>", 0, 0);
+        begin(ast);
+        visit(ast);
+        Bytecode.Chunk chunk = end(ast.getName(), ast.getParameters().size(), ast.getFrameSize());
+        return new Bytecode.Program(initializer, Arrays.asList(chunk), constants.toArray(new Environment.PlcObject[0]), 0);
+    }
+
+    /**
+     * Compiles the source, see {@link #compile(Ast.Source)}.
+     */
+    @Override
+    public Void visit(Ast.Source ast) {
+        new Resolver().visit(ast);
+        for (Ast.Function function : ast.getFunctions()) {
+            functions.put(function.getName() + "/" + function.getParameters().size(), functions.size());
+        }
+        begin(null);
+        for (Ast.Global global : ast.getGlobals()) {
+            visit(global);
+        }
+        emit(Bytecode.NIL);
+        emit(Bytecode.RETURN);
+        Bytecode.Chunk initializer = end("<globals>", 0, 0);
+        List<Bytecode.Chunk> chunks = new ArrayList<>();
+        for (Ast.Function function : ast.getFunctions()) {
+            begin(function);
+            visit(function);
+            chunks.add(end(function.getName(), function.getParameters().size(), function.getFrameSize()));
+        }
+        program = new Bytecode.Program(initializer, chunks, constants.toArray(new Environment.PlcObject[0]), ast.getGlobals().size());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Global ast) {
+        if (ast.getValue().isPresent() && ast.getValue().get() instanceof Ast.Expression.PlcList) {
+            list((Ast.Expression.PlcList) ast.getValue().get(), ast.getTypeName());
+        } else if (ast.getValue().isPresent()) {
+            visit(ast.getValue().get());
+        } else {
+            emit(Bytecode.NIL);
+        }
+        emit(Bytecode.STORE_GLOBAL, ast.getSlot());
+        globals.put(ast.getName(), ast);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Function ast) {
+        for (Ast.Statement statement : ast.getStatements()) {
+            visit(statement);
+        }
+        emit(Bytecode.NIL);
+        emit(Bytecode.RETURN);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Expression ast) {
+        visit(ast.getExpression());
+        emit(Bytecode.POP);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Declaration ast) {
+        if (ast.getValue().isPresent()) {
+            visit(ast.getValue().get());
+        } else {
+            emit(Bytecode.NIL);
+        }
+        emit(Bytecode.STORE, ast.getSlot());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Assignment ast) {
+        if (!(ast.getReceiver() instanceof Ast.Expression.Access)) {
+            throw new RuntimeException("Only Ast.Expression.Access is assignable");
+        }
+        Ast.Expression.Access receiver = (Ast.Expression.Access) ast.getReceiver();
+        if (receiver.getDepth() == Resolver.GLOBAL && !standalone && !globals.get(receiver.getName()).getMutable()) {
+            throw new RuntimeException("Non mutable");
+        }
+        if (receiver.getOffset().isPresent()) {
+            load(receiver);
+            visit(receiver.getOffset().get());
+            visit(ast.getValue());
+            emit(Bytecode.STORE_INDEX);
+        } else {
+            visit(ast.getValue());
+            if (receiver.getDepth() == Resolver.LOCAL) {
+                emit(Bytecode.STORE, receiver.getSlot());
+            } else if (receiver.getDepth() == Resolver.GLOBAL && !standalone) {
+                emit(Bytecode.STORE_GLOBAL, receiver.getSlot());
+            } else {
+                emit(Bytecode.STORE_NAME, constant(receiver.getName()));
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.If ast) {
+        visit(ast.getCondition());
+        int otherwise = jump(Bytecode.JUMP_IF_FALSE);
+        for (Ast.Statement statement : ast.getThenStatements()) {
+            visit(statement);
+        }
+        int end = jump(Bytecode.JUMP);
+        patch(otherwise);
+        for (Ast.Statement statement : ast.getElseStatements()) {
+            visit(statement);
+        }
+        patch(end);
+        return null;
+    }
+
+    /**
+     * Runs every case whose value equals the condition, in order, and the
+     * default cases if none did. The condition and whether a case matched are
+     * kept in two extra slots of the frame.
+     */
+    @Override
+    public Void visit(Ast.Statement.Switch ast) {
+        int condition = slot();
+        int matched = slot();
+        visit(ast.getCondition());
+        emit(Bytecode.STORE, condition);
+        emit(Bytecode.CONST, constant(false));
+        emit(Bytecode.STORE, matched);
+        for (Ast.Statement.Case c : ast.getCases()) {
+            if (c.getValue().isPresent()) {
+                emit(Bytecode.LOAD, condition);
+                visit(c.getValue().get());
+                emit(Bytecode.MATCH);
+                int next = jump(Bytecode.JUMP_IF_FALSE);
+                emit(Bytecode.CONST, constant(true));
+                emit(Bytecode.STORE, matched);
+                visit(c);
+                patch(next);
+            }
+        }
+        emit(Bytecode.LOAD, matched);
+        int end = jump(Bytecode.JUMP_IF_TRUE);
+        for (Ast.Statement.Case c : ast.getCases()) {
+            if (!c.getValue().isPresent()) {
+                visit(c);
+            }
+        }
+        patch(end);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Case ast) {
+        for (Ast.Statement statement : ast.getStatements()) {
+            visit(statement);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.While ast) {
+        int start = length;
+        visit(ast.getCondition());
+        int end = jump(Bytecode.JUMP_IF_FALSE);
+        for (Ast.Statement statement : ast.getStatements()) {
+            visit(statement);
+        }
+        emit(Bytecode.JUMP, start);
+        patch(end);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Return ast) {
+        if (ast.getValue() instanceof Ast.Expression.Function && function != null) {
+            Ast.Expression.Function call = (Ast.Expression.Function) ast.getValue();
+            if (call.getName().equals(function.getName()) && call.getArguments().size() == function.getParameters().size()) {
+                for (Ast.Expression argument : call.getArguments()) {
+                    visit(argument);
+                }
+                emit(Bytecode.TAIL_CALL, functions.get(call.getName() + "/" + call.getArguments().size()), call.getArguments().size());
+                return null;
+            }
+        }
+        visit(ast.getValue());
+        emit(Bytecode.RETURN);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Literal ast) {
+        if (ast.getLiteral() == null) {
+            emit(Bytecode.NIL);
+        } else {
+            emit(Bytecode.CONST, constant(ast.getLiteral()));
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Group ast) {
+        visit(ast.getExpression());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Binary ast) {
+        switch (ast.getOperator()) {
+            case "&&":
+            case "||": {
+                boolean and = ast.getOperator().equals("&&");
+                visit(ast.getLeft());
+                int shortCircuit = jump(and ? Bytecode.JUMP_IF_FALSE : Bytecode.JUMP_IF_TRUE);
+                visit(ast.getRight());
+                emit(Bytecode.CHECK_BOOLEAN);
+                int end = jump(Bytecode.JUMP);
+                patch(shortCircuit);
+                emit(Bytecode.CONST, constant(!and));
+                patch(end);
+                return null;
+            }
+            case "+": return binary(ast, Bytecode.ADD);
+            case "-": return binary(ast, Bytecode.SUB);
+            case "*": return binary(ast, Bytecode.MUL);
+            case "/": return binary(ast, Bytecode.DIV);
+            case "^": return binary(ast, Bytecode.POW);
+            case "<": return binary(ast, Bytecode.LT);
+            case ">": return binary(ast, Bytecode.GT);
+            case "==": return binary(ast, Bytecode.EQ);
+            case "!=": return binary(ast, Bytecode.NE);
+            default:
+                throw new RuntimeException("Invalid operator " + ast.getOperator());
+        }
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Access ast) {
+        load(ast);
+        if (ast.getOffset().isPresent()) {
+            visit(ast.getOffset().get());
+            emit(Bytecode.INDEX);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Function ast) {
+        for (Ast.Expression argument : ast.getArguments()) {
+            visit(argument);
+        }
+        Integer index = functions.get(ast.getName() + "/" + ast.getArguments().size());
+        if (index != null) {
+            emit(Bytecode.CALL, index, ast.getArguments().size());
+        } else {
+            emit(Bytecode.NATIVE, constant(ast.getName()), ast.getArguments().size());
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.PlcList ast) {
+        return list(ast, Environment.Type.ANY.getName());
+    }
+
+    /**
+     * Emits a list of the named element type, see {@link TypedList}.
+     */
+    private Void list(Ast.Expression.PlcList ast, String typeName) {
+        for (Ast.Expression value : ast.getValues()) {
+            visit(value);
+        }
+        emit(Bytecode.LIST, ast.getValues().size(), constant(typeName));
+        return null;
+    }
+
+    private Void binary(Ast.Expression.Binary ast, int opcode) {
+        visit(ast.getLeft());
+        visit(ast.getRight());
+        emit(opcode);
+        return null;
+    }
+
+    /**
+     * Pushes the variable of an access, without its offset.
+     */
+    private void load(Ast.Expression.Access ast) {
+        if (ast.getDepth() == Resolver.LOCAL) {
+            emit(Bytecode.LOAD, ast.getSlot());
+        } else if (ast.getDepth() == Resolver.GLOBAL && !standalone) {
+            emit(Bytecode.LOAD_GLOBAL, ast.getSlot());
+        } else {
+            emit(Bytecode.LOAD_NAME, constant(ast.getName()));
+        }
+    }
+
+    private int constant(Object value) {
+        Integer index = constantIndices.get(value);
+        if (index == null) {
+            index = constants.size();
+            constants.add(Environment.create(value));
+            constantIndices.put(value, index);
+        }
+        return index;
+    }
+
+    private void begin(Ast.Function function) {
+        this.function = function;
+        code = new int[64];
+        length = 0;
+        extraSlots = 0;
+    }
+
+    private Bytecode.Chunk end(String name, int arity, int frameSize) {
+        return new Bytecode.Chunk(name, arity, frameSize + extraSlots, Arrays.copyOf(code, length));
+    }
+
+    /**
+     * Allocates a slot after those of the function's variables.
+     */
+    private int slot() {
+        int frameSize = function != null ? function.getFrameSize() : 0;
+        return frameSize + extraSlots++;
+    }
+
+    private void emit(int... instruction) {
+        if (length + instruction.length > code.length) {
+            code = Arrays.copyOf(code, Math.max(code.length * 2, length + instruction.length));
+        }
+        for (int value : instruction) {
+            code[length++] = value;
+        }
+    }
+
+    /**
+     * Emits a jump with a target to be patched, returning its offset.
+     */
+    private int jump(int opcode) {
+        emit(opcode, -1);
+        return length - 2;
+    }
+
+    private void patch(int jump) {
+        code[jump + 1] = length;
+    }
+
+}
@@ -0,0 +1,355 @@
+package plc.project;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Summarizes which variables each part of a source may write. Functions are
+ * keyed by {@code name/arity} as in {@link Scope}, and a function's summary
+ * contains the globals it may write either directly or through the functions
+ * it calls.
+ *
+ * A {@code null} summary means the writes are unknown, which happens when a
+ * function that is not part of the source (and not a builtin) may be called.
+ *
+ * Writes to list elements are tracked separately, since a list may be
+ * reachable through several variables (or parameters) at once; any indexed
+ * assignment is assumed to change every list.
+ *
+ * A function is pure if its calls depend only on their arguments and have no
+ * effects: it reads no mutable globals and assigns no variables other than
+ * its own, assigns no list elements, and calls only pure functions. Names
+ * that are neither the function's own nor globals are assumed to be mutable,
+ * since they may be found in the caller's scope.
+ */
+public final class Effects implements Ast.Visitor<Void> {
+
+    /**
+     * Builtins defined by the {@link Interpreter}, none of which write any
+     * variables.
+     */
+    private static final Set<String> BUILTINS = new HashSet<>(Arrays.asList("print/1", "logarithm/1", "converter/2"));
+
+    /**
+     * Builtins that write output, which are not pure.
+     */
+    private static final Set<String> OUTPUT = new HashSet<>(Arrays.asList("print/1"));
+
+    private final Set<String> globals = new HashSet<>();
+    private final Map<String, Set<String>> functions = new HashMap<>();
+    private final Set<String> mutators = new HashSet<>();
+    private final Set<String> impure = new HashSet<>();
+
+    private Set<String> writes;
+    private Set<String> calls;
+    private boolean mutates;
+    private Set<String> reads;
+    private Set<String> assignments;
+    private Set<String> declarations;
+
+    public Effects(Ast.Source source) {
+        Set<String> mutable = new HashSet<>();
+        for (Ast.Global global : source.getGlobals()) {
+            globals.add(global.getName());
+            if (global.getMutable()) {
+                mutable.add(global.getName());
+            }
+        }
+        Map<String, Set<String>> callees = new HashMap<>();
+        for (Ast.Function function : source.getFunctions()) {
+            String key = function.getName() + "/" + function.getParameters().size();
+            writes = new HashSet<>();
+            calls = new HashSet<>();
+            mutates = false;
+            reads = new HashSet<>();
+            assignments = new HashSet<>();
+            declarations = new HashSet<>(function.getParameters());
+            for (Ast.Statement statement : function.getStatements()) {
+                visit(statement);
+            }
+            if (mutates || reads.stream().anyMatch(name -> mutable.contains(name) || !declarations.contains(name) && !globals.contains(name))
+                    || assignments.stream().anyMatch(name -> globals.contains(name) || !declarations.contains(name))) {
+                impure.add(key);
+            }
+            writes.retainAll(globals);
+            writes.removeAll(function.getParameters());
+            functions.put(key, writes);
+            callees.put(key, calls);
+            if (mutates) {
+                mutators.add(key);
+            }
+        }
+        // propagate writes through calls until no summary changes
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Map.Entry<String, Set<String>> entry : callees.entrySet()) {
+                Set<String> summary = functions.get(entry.getKey());
+                for (String callee : entry.getValue()) {
+                    if (!mutators.contains(entry.getKey()) && mutatesLists(callee)) {
+                        mutators.add(entry.getKey());
+                        changed = true;
+                    }
+                    if (!impure.contains(entry.getKey()) && !isPure(callee)) {
+                        impure.add(entry.getKey());
+                        changed = true;
+                    }
+                    Set<String> other = lookup(callee);
+                    if (summary == null) {
+                        continue;
+                    } else if (other == null) {
+                        functions.put(entry.getKey(), null);
+                        summary = null;
+                        changed = true;
+                    } else if (summary.addAll(other)) {
+                        changed = true;
+                    }
+                }
+            }
+        }
+        writes = null;
+        calls = null;
+        mutates = false;
+        reads = null;
+        assignments = null;
+        declarations = null;
+    }
+
+    /**
+     * Returns true if the given function is pure.
+     */
+    public boolean isPure(String name, int arity) {
+        return isPure(name + "/" + arity);
+    }
+
+    /**
+     * Returns the globals that may be written by calling the given function,
+     * or {@code null} if they are unknown.
+     */
+    public Set<String> getWrites(String name, int arity) {
+        return lookup(name + "/" + arity);
+    }
+
+    /**
+     * Returns the names of all variables that may be assigned or declared
+     * while evaluating the given ASTs, including the globals written by any
+     * functions they call, or {@code null} if they are unknown.
+     */
+    public Set<String> getWrites(List<? extends Ast> asts) {
+        writes = new HashSet<>();
+        calls = new HashSet<>();
+        try {
+            for (Ast ast : asts) {
+                visit(ast);
+            }
+            for (String callee : calls) {
+                Set<String> summary = lookup(callee);
+                if (summary == null) {
+                    return null;
+                }
+                writes.addAll(summary);
+            }
+            return writes;
+        } finally {
+            writes = null;
+            calls = null;
+        }
+    }
+
+    /**
+     * Returns true if evaluating the given ASTs may assign an element of any
+     * list, either directly or through the functions they call.
+     */
+    public boolean mutatesLists(List<? extends Ast> asts) {
+        calls = new HashSet<>();
+        writes = new HashSet<>();
+        mutates = false;
+        try {
+            for (Ast ast : asts) {
+                visit(ast);
+            }
+            if (mutates) {
+                return true;
+            }
+            for (String callee : calls) {
+                if (mutatesLists(callee)) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            writes = null;
+            calls = null;
+            mutates = false;
+        }
+    }
+
+    private boolean isPure(String key) {
+        if (BUILTINS.contains(key)) {
+            return !OUTPUT.contains(key);
+        }
+        return functions.containsKey(key) && !impure.contains(key);
+    }
+
+    private boolean mutatesLists(String key) {
+        return !BUILTINS.contains(key) && (!functions.containsKey(key) || mutators.contains(key));
+    }
+
+    private Set<String> lookup(String key) {
+        if (BUILTINS.contains(key)) {
+            return new HashSet<>();
+        }
+        return functions.get(key);
+    }
+
+    @Override
+    public Void visit(Ast.Source ast) {
+        for (Ast.Function function : ast.getFunctions()) {
+            visit(function);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Global ast) {
+        writes.add(ast.getName());
+        ast.getValue().ifPresent(this::visit);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Function ast) {
+        for (Ast.Statement statement : ast.getStatements()) {
+            visit(statement);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Expression ast) {
+        visit(ast.getExpression());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Declaration ast) {
+        writes.add(ast.getName());
+        if (declarations != null) {
+            declarations.add(ast.getName());
+        }
+        ast.getValue().ifPresent(this::visit);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Assignment ast) {
+        if (ast.getReceiver() instanceof Ast.Expression.Access) {
+            Ast.Expression.Access receiver = (Ast.Expression.Access) ast.getReceiver();
+            if (receiver.getOffset().isPresent()) {
+                mutates = true;
+            } else {
+                writes.add(receiver.getName());
+                if (assignments != null) {
+                    assignments.add(receiver.getName());
+                }
+            }
+        }
+        visit(ast.getReceiver());
+        visit(ast.getValue());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.If ast) {
+        visit(ast.getCondition());
+        for (Ast.Statement statement : ast.getThenStatements()) {
+            visit(statement);
+        }
+        for (Ast.Statement statement : ast.getElseStatements()) {
+            visit(statement);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Switch ast) {
+        visit(ast.getCondition());
+        for (Ast.Statement.Case c : ast.getCases()) {
+            visit(c);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Case ast) {
+        ast.getValue().ifPresent(this::visit);
+        for (Ast.Statement statement : ast.getStatements()) {
+            visit(statement);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.While ast) {
+        visit(ast.getCondition());
+        for (Ast.Statement statement : ast.getStatements()) {
+            visit(statement);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Return ast) {
+        visit(ast.getValue());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Literal ast) {
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Group ast) {
+        visit(ast.getExpression());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Binary ast) {
+        visit(ast.getLeft());
+        visit(ast.getRight());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Access ast) {
+        if (reads != null) {
+            reads.add(ast.getName());
+        }
+        ast.getOffset().ifPresent(this::visit);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Function ast) {
+        calls.add(ast.getName() + "/" + ast.getArguments().size());
+        for (Ast.Expression argument : ast.getArguments()) {
+            visit(argument);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.PlcList ast) {
+        for (Ast.Expression value : ast.getValues()) {
+            visit(value);
+        }
+        return null;
+    }
+
+}
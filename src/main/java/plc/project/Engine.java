@@ -0,0 +1,64 @@
+package plc.project;
+
+/**
+ * A source prepared once to be run any number of times, from any number of
+ * threads at once.
+ *
+ * Preparing the source optimizes it if it was analyzed (see
+ * {@link Optimizer}) and resolves its variables (see {@link Resolver}), after
+ * which nothing changes the tree except the nodes binary expressions are
+ * specialized to, which hold no state. Each run gets its own
+ * {@link Interpreter}, which holds the state of that run alone: its globals in
+ * a scope of the frozen, shared {@link Interpreter#BUILTINS}, its frames, and
+ * its caches, including the functions its calls invoke. Nothing is copied or
+ * locked between runs.
+ */
+public final class Engine {
+
+    private final Ast.Source source;
+    private volatile int invocationThreshold = Integer.MAX_VALUE;
+    private volatile int backEdgeThreshold = Integer.MAX_VALUE;
+
+    public Engine(Ast.Source source) {
+        this.source = new Optimizer().visit(source);
+        new Resolver().visit(this.source);
+    }
+
+    public Ast.Source getSource() {
+        return source;
+    }
+
+    /**
+     * Sets the thresholds at which the interpreters of later runs compile
+     * hot functions, see {@link Interpreter#setThresholds(int, int)}. Each
+     * run counts calls and iterations on its own. Compilation is disabled
+     * unless this is called.
+     */
+    public void setThresholds(int invocations, int backEdges) {
+        invocationThreshold = invocations;
+        backEdgeThreshold = backEdges;
+    }
+
+    /**
+     * Returns a new interpreter for one run of the source, which may be
+     * configured before it is started with {@link #run(Interpreter)}.
+     */
+    public Interpreter newInterpreter() {
+        Interpreter interpreter = new Interpreter(Interpreter.BUILTINS);
+        interpreter.setThresholds(invocationThreshold, backEdgeThreshold);
+        return interpreter;
+    }
+
+    /**
+     * Runs the source in a new interpreter, returning the result of
+     * {@code main/0}.
+     */
+    public Environment.PlcObject run() {
+        return run(newInterpreter());
+    }
+
+    public Environment.PlcObject run(Interpreter interpreter) {
+        return interpreter.visit(source);
+    }
+
+}
@@ -1,5 +1,6 @@
 package plc.project;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -8,8 +9,110 @@ import java.util.Map;
 
 public final class Environment {
 
+    /**
+     * The scope and type shared by all objects created here, which are never
+     * modified.
+     */
+    private static final Scope SCOPE = new Scope(null);
+    private static final Type UNKNOWN = new Type("Unknown", "Unknown", SCOPE);
+
+    public static final PlcObject TRUE = new PlcObject(UNKNOWN, SCOPE, true);
+    public static final PlcObject FALSE = new PlcObject(UNKNOWN, SCOPE, false);
+
+    /**
+     * Objects for the Integers from {@code -128} to {@code 1023}, created with
+     * their BigIntegers up front.
+     */
+    private static final PlcObject[] INTEGERS = new PlcObject[1152];
+
+    /**
+     * Objects for the ASCII Characters.
+     */
+    private static final PlcObject[] CHARACTERS = new PlcObject[128];
+
+    /**
+     * The length from which a concatenated String is deferred.
+     */
+    private static final int DEFERRED = 256;
+
+    /**
+     * Recently created Strings, indexed by their hash code.
+     */
+    private static final PlcObject[] STRINGS = new PlcObject[256];
+
+    static {
+        for (int i = 0; i < INTEGERS.length; i++) {
+            INTEGERS[i] = new PlcObject(UNKNOWN, SCOPE, BigInteger.valueOf(i - 128));
+        }
+        for (char c = 0; c < CHARACTERS.length; c++) {
+            CHARACTERS[c] = new PlcObject(UNKNOWN, SCOPE, c);
+        }
+    }
+
+    /**
+     * Creates an object holding the given value. Objects are immutable, so
+     * booleans, small Integers, ASCII Characters and recently created Strings
+     * share theirs.
+     */
     public static PlcObject create(Object value) {
-        return new PlcObject(new Scope(null), value);
+        if (value instanceof Boolean) {
+            return (Boolean) value ? TRUE : FALSE;
+        } else if (value instanceof BigInteger && ((BigInteger) value).bitLength() < Long.SIZE) {
+            long integer = ((BigInteger) value).longValue();
+            if (integer >= -128 && integer < INTEGERS.length - 128) {
+                return INTEGERS[(int) integer + 128];
+            }
+        } else if (value instanceof Character && (Character) value < CHARACTERS.length) {
+            return CHARACTERS[(Character) value];
+        } else if (value instanceof String) {
+            int index = value.hashCode() & (STRINGS.length - 1);
+            PlcObject cached = STRINGS[index];
+            if (cached == null || !value.equals(cached.getValue())) {
+                cached = new PlcObject(UNKNOWN, SCOPE, value);
+                STRINGS[index] = cached;
+            }
+            return cached;
+        }
+        return new PlcObject(UNKNOWN, SCOPE, value);
+    }
+
+    /**
+     * Creates the String that concatenates the values of the two objects. A
+     * String that long is deferred (see {@link PlcObject}), and a deferred
+     * String on the left is appended to in place if nothing was appended to it
+     * since, so a String built by repeated concatenation takes linear time.
+     */
+    public static PlcObject concatenate(PlcObject left, PlcObject right) {
+        String suffix = right.getValue().toString();
+        StringBuilder builder = left.builder;
+        if (builder != null) {
+            int length = (int) left.integer;
+            synchronized (builder) {
+                if (builder.length() == length) {
+                    builder.append(suffix);
+                    return new PlcObject(builder, builder.length());
+                }
+                builder = new StringBuilder(Math.max(2 * length, length + suffix.length())).append(builder, 0, length);
+            }
+            builder.append(suffix);
+            return new PlcObject(builder, builder.length());
+        }
+        String prefix = left.getValue().toString();
+        if (prefix.length() + suffix.length() < DEFERRED) {
+            return create(prefix.concat(suffix));
+        }
+        builder = new StringBuilder(2 * (prefix.length() + suffix.length())).append(prefix).append(suffix);
+        return new PlcObject(builder, builder.length());
+    }
+
+    /**
+     * Creates an Integer held as a {@code long}, see {@link PlcObject#isLong()}.
+     */
+    public static PlcObject createInteger(long value) {
+        if (value >= -128 && value < INTEGERS.length - 128) {
+            return INTEGERS[(int) value + 128];
+        }
+        return new PlcObject(UNKNOWN, SCOPE, null, value, true);
     }
 
     public static final PlcObject NIL = new PlcObject(Type.NIL, new Scope(null), new Object() {
@@ -89,20 +192,57 @@ public final class Environment {
 
     }
 
+    /**
+     * An Integer value that fits in a {@code long} is also held as one, so the
+     * interpreter can do arithmetic on it without allocating. Its value is
+     * still observed as a {@code BigInteger}, which is only created when
+     * {@link #getValue()} is first called.
+     *
+     * A String made by {@link #concatenate(PlcObject, PlcObject)} may likewise
+     * be deferred: held as the first {@code integer} characters of a builder,
+     * which later concatenations may extend past them. It is only created
+     * when {@link #getValue()} is first called.
+     *
+     * Objects are shared between threads, so the value given to an object is
+     * final; the created {@code BigInteger} or {@code String} is immutable, so
+     * a thread that does not see another's creates its own.
+     */
     public static final class PlcObject {
 
         private final Type type;
         private final Scope scope;
         private final Object value;
+        private Object created = null;
+        private final long integer;
+        private final boolean isLong;
+        private final StringBuilder builder;
 
         public PlcObject(Scope scope, Object value) {
             this(new Type("Unknown", "Unknown", scope), scope, value);
         }
 
         public PlcObject(Type type, Scope scope, Object value) {
+            this(type, scope, value,
+                    value instanceof BigInteger && ((BigInteger) value).bitLength() < Long.SIZE ? ((BigInteger) value).longValue() : 0,
+                    value instanceof BigInteger && ((BigInteger) value).bitLength() < Long.SIZE);
+        }
+
+        private PlcObject(Type type, Scope scope, Object value, long integer, boolean isLong) {
             this.type = type;
             this.scope = scope;
             this.value = value;
+            this.integer = integer;
+            this.isLong = isLong;
+            this.builder = null;
+        }
+
+        private PlcObject(StringBuilder builder, int length) {
+            this.type = UNKNOWN;
+            this.scope = SCOPE;
+            this.value = null;
+            this.integer = length;
+            this.isLong = false;
+            this.builder = builder;
         }
 
         public Type getType() {
@@ -110,7 +250,41 @@ public final class Environment {
         }
 
         public Object getValue() {
-            return value;
+            if (value != null) {
+                return value;
+            }
+            Object created = this.created;
+            if (created == null) {
+                if (isLong) {
+                    created = BigInteger.valueOf(integer);
+                } else {
+                    synchronized (builder) {
+                        created = builder.substring(0, (int) integer);
+                    }
+                }
+                this.created = created;
+            }
+            return created;
+        }
+
+        /**
+         * Returns true if this is a String, without creating it if it is
+         * deferred.
+         */
+        public boolean isString() {
+            return builder != null || value instanceof String;
+        }
+
+        /**
+         * Returns true if this is an Integer that fits in a {@code long},
+         * available through {@link #getLong()}.
+         */
+        public boolean isLong() {
+            return isLong;
+        }
+
+        public long getLong() {
+            return integer;
         }
 
         @Override
@@ -118,7 +292,7 @@ public final class Environment {
             return "Object{" +
                     "type=" + type +
                     ", scope=" + scope +
-                    ", value=" + value +
+                    ", value=" + getValue() +
                     '}';
         }
 
@@ -196,7 +370,7 @@ public final class Environment {
         private final String jvmName;
         private final List<Type> parameterTypes;
         private final Type returnType;
-        private final java.util.function.Function<List<PlcObject>, PlcObject> function;
+        private final Invoker invoker;
 
         public Function(String name, int arity, java.util.function.Function<List<PlcObject>, PlcObject> function) {
             this(name, name, new ArrayList<>(), Type.ANY, function);
@@ -206,11 +380,15 @@ public final class Environment {
         }
 
         public Function(String name, String jvmName, List<Type> parameterTypes, Type returnType, java.util.function.Function<List<PlcObject>, PlcObject> function) {
+            this(name, jvmName, parameterTypes, returnType, Invoker.of(function));
+        }
+
+        public Function(String name, String jvmName, List<Type> parameterTypes, Type returnType, Invoker invoker) {
             this.name = name;
             this.jvmName = jvmName;
             this.parameterTypes = parameterTypes;
             this.returnType = returnType;
-            this.function = function;
+            this.invoker = invoker;
         }
 
         public String getName() {
@@ -235,7 +413,31 @@ public final class Environment {
         }
 
         public PlcObject invoke(List<PlcObject> arguments) {
-            return function.apply(arguments);
+            return invoker.invoke(arguments);
+        }
+
+        public PlcObject invoke() {
+            return invoker.invoke();
+        }
+
+        public PlcObject invoke(PlcObject first) {
+            return invoker.invoke(first);
+        }
+
+        public PlcObject invoke(PlcObject first, PlcObject second) {
+            return invoker.invoke(first, second);
+        }
+
+        public PlcObject invoke(PlcObject first, PlcObject second, PlcObject third) {
+            return invoker.invoke(first, second, third);
+        }
+
+        public PlcObject invoke(PlcObject first, PlcObject second, PlcObject third, PlcObject fourth) {
+            return invoker.invoke(first, second, third, fourth);
+        }
+
+        public PlcObject invoke(PlcObject... arguments) {
+            return invoker.invoke(arguments);
         }
 
         @Override
@@ -255,10 +457,158 @@ public final class Environment {
                     ", arity=" + parameterTypes.size() +
                     ", parameterTypes=" + parameterTypes +
                     ", returnType=" + returnType +
-                    ", function=" + function +
+                    ", function=" + invoker +
                     '}';
         }
 
+        public interface Arity0 {
+
+            PlcObject apply();
+
+        }
+
+        public interface Arity1 {
+
+            PlcObject apply(PlcObject first);
+
+        }
+
+        public interface Arity2 {
+
+            PlcObject apply(PlcObject first, PlcObject second);
+
+        }
+
+        public interface Arity3 {
+
+            PlcObject apply(PlcObject first, PlcObject second, PlcObject third);
+
+        }
+
+        public interface Arity4 {
+
+            PlcObject apply(PlcObject first, PlcObject second, PlcObject third, PlcObject fourth);
+
+        }
+
+        /**
+         * The implementation of a function, with an entry point for each
+         * number of arguments up to four so that callers need not allocate a
+         * list. Each entry point defaults to collecting its arguments for
+         * {@link #invoke(List)}; an implementation of a fixed arity overrides
+         * its own entry point, and unpacks the list for the others. The
+         * factories of a fixed arity are named for it, as a lambda of one
+         * parameter would otherwise match both {@link #of} and {@link #of1}.
+         */
+        public abstract static class Invoker {
+
+            public abstract PlcObject invoke(List<PlcObject> arguments);
+
+            public PlcObject invoke() {
+                return invoke(new ArrayList<>(0));
+            }
+
+            public PlcObject invoke(PlcObject first) {
+                return invoke(Arrays.asList(first));
+            }
+
+            public PlcObject invoke(PlcObject first, PlcObject second) {
+                return invoke(Arrays.asList(first, second));
+            }
+
+            public PlcObject invoke(PlcObject first, PlcObject second, PlcObject third) {
+                return invoke(Arrays.asList(first, second, third));
+            }
+
+            public PlcObject invoke(PlcObject first, PlcObject second, PlcObject third, PlcObject fourth) {
+                return invoke(Arrays.asList(first, second, third, fourth));
+            }
+
+            public PlcObject invoke(PlcObject[] arguments) {
+                return invoke(Arrays.asList(arguments));
+            }
+
+            public static Invoker of(java.util.function.Function<List<PlcObject>, PlcObject> function) {
+                return new Invoker() {
+                    @Override
+                    public PlcObject invoke(List<PlcObject> arguments) {
+                        return function.apply(arguments);
+                    }
+                };
+            }
+
+            public static Invoker of0(Arity0 function) {
+                return new Invoker() {
+                    @Override
+                    public PlcObject invoke(List<PlcObject> arguments) {
+                        return function.apply();
+                    }
+
+                    @Override
+                    public PlcObject invoke() {
+                        return function.apply();
+                    }
+                };
+            }
+
+            public static Invoker of1(Arity1 function) {
+                return new Invoker() {
+                    @Override
+                    public PlcObject invoke(List<PlcObject> arguments) {
+                        return function.apply(arguments.get(0));
+                    }
+
+                    @Override
+                    public PlcObject invoke(PlcObject first) {
+                        return function.apply(first);
+                    }
+                };
+            }
+
+            public static Invoker of2(Arity2 function) {
+                return new Invoker() {
+                    @Override
+                    public PlcObject invoke(List<PlcObject> arguments) {
+                        return function.apply(arguments.get(0), arguments.get(1));
+                    }
+
+                    @Override
+                    public PlcObject invoke(PlcObject first, PlcObject second) {
+                        return function.apply(first, second);
+                    }
+                };
+            }
+
+            public static Invoker of3(Arity3 function) {
+                return new Invoker() {
+                    @Override
+                    public PlcObject invoke(List<PlcObject> arguments) {
+                        return function.apply(arguments.get(0), arguments.get(1), arguments.get(2));
+                    }
+
+                    @Override
+                    public PlcObject invoke(PlcObject first, PlcObject second, PlcObject third) {
+                        return function.apply(first, second, third);
+                    }
+                };
+            }
+
+            public static Invoker of4(Arity4 function) {
+                return new Invoker() {
+                    @Override
+                    public PlcObject invoke(List<PlcObject> arguments) {
+                        return function.apply(arguments.get(0), arguments.get(1), arguments.get(2), arguments.get(3));
+                    }
+
+                    @Override
+                    public PlcObject invoke(PlcObject first, PlcObject second, PlcObject third, PlcObject fourth) {
+                        return function.apply(first, second, third, fourth);
+                    }
+                };
+            }
+
+        }
+
     }
 
     static {
@@ -0,0 +1,171 @@
+package plc.project;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs many invocations of prepared programs (see {@link Engine}) at once,
+ * each completing a {@link CompletableFuture} with its result.
+ *
+ * Each invocation runs on its own virtual thread when the Java runtime has
+ * them (Java 21 and later); otherwise invocations share a pool with a thread
+ * per processor, since a run does not block. At most {@code capacity}
+ * invocations may be pending or running at a time, beyond which new ones are
+ * rejected rather than queued without bound.
+ *
+ * An invocation that does not finish within its timeout completes with a
+ * {@link TimeoutException}. Its thread is interrupted, which stops the program
+ * at its next call or loop iteration (see {@link Interpreter}), and its place
+ * is freed once it has stopped.
+ */
+public final class ExecutionService implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(ExecutionService.class.getName());
+
+    private static final ScheduledThreadPoolExecutor TIMEOUTS = new ScheduledThreadPoolExecutor(1, daemon("plc-timeout"));
+
+    static {
+        TIMEOUTS.setRemoveOnCancelPolicy(true);
+    }
+
+    private final ExecutorService executor;
+    private final boolean virtual;
+    private final Semaphore permits;
+    private final Duration timeout;
+    private final Output output;
+
+    public ExecutionService(int capacity, Duration timeout) {
+        this(capacity, timeout, null);
+    }
+
+    /**
+     * Creates a service whose invocations print to the given output, such as
+     * an {@link Output.Async} so that runs do not wait on the output. If it
+     * is null, they print to {@link Output#getDefault()}.
+     */
+    public ExecutionService(int capacity, Duration timeout, Output output) {
+        ExecutorService executor;
+        try {
+            executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            LOGGER.log(Level.FINE, "Virtual threads are not available, so invocations share a pool", e);
+            executor = null;
+        }
+        this.virtual = executor != null;
+        this.executor = virtual ? executor : Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), daemon("plc-worker"));
+        this.permits = new Semaphore(capacity);
+        this.timeout = timeout;
+        this.output = output;
+    }
+
+    /**
+     * Returns true if invocations run on virtual threads.
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    public CompletableFuture<Environment.PlcObject> submit(Engine engine) {
+        return submit(engine, timeout);
+    }
+
+    /**
+     * Starts an invocation of the program, returning the future of its
+     * result. If the service is at capacity, the future has already failed
+     * with a {@link RejectedExecutionException}.
+     */
+    public CompletableFuture<Environment.PlcObject> submit(Engine engine, Duration timeout) {
+        if (!permits.tryAcquire()) {
+            CompletableFuture<Environment.PlcObject> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(new RejectedExecutionException("The execution service is at capacity."));
+            return rejected;
+        }
+        Invocation invocation = new Invocation(engine);
+        try {
+            executor.execute(invocation);
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            invocation.result.completeExceptionally(e);
+            return invocation.result;
+        }
+        ScheduledFuture<?> expiry = TIMEOUTS.schedule(() -> invocation.expire(timeout), timeout.toNanos(), TimeUnit.NANOSECONDS);
+        invocation.result.whenComplete((result, exception) -> expiry.cancel(false));
+        return invocation.result;
+    }
+
+    /**
+     * Stops accepting invocations. Those already submitted still finish.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * A run of a program, which keeps the thread running it so that it can be
+     * interrupted if it expires.
+     */
+    private final class Invocation implements Runnable {
+
+        private final Engine engine;
+        private final CompletableFuture<Environment.PlcObject> result = new CompletableFuture<>();
+        private Thread thread = null;
+
+        private Invocation(Engine engine) {
+            this.engine = engine;
+        }
+
+        @Override
+        public void run() {
+            try {
+                synchronized (this) {
+                    if (result.isDone()) {
+                        return; // expired before it started
+                    }
+                    thread = Thread.currentThread();
+                }
+                try {
+                    Interpreter interpreter = engine.newInterpreter();
+                    interpreter.setOutput(output);
+                    result.complete(engine.run(interpreter));
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    synchronized (this) {
+                        thread = null;
+                        Thread.interrupted(); // an interrupt after the run is not meant for the next one
+                    }
+                }
+            } finally {
+                permits.release();
+            }
+        }
+
+        private synchronized void expire(Duration timeout) {
+            if (result.completeExceptionally(new TimeoutException("The invocation did not finish within " + timeout + ".")) && thread != null) {
+                thread.interrupt();
+            }
+        }
+
+    }
+
+}
@@ -5,10 +5,58 @@ import java.io.PrintWriter;
 public final class Generator implements Ast.Visitor<Void> {
 
     private final PrintWriter writer;
+    private final boolean output;
     private int indent = 0;
+    private boolean power = false;
+
+    /**
+     * The exact Integer power used for {@code ^}, which is
+     * {@link Power#pow(int, int)} in Java. The generated class cannot see the
+     * classes of this project, so it declares its own.
+     */
+    private static final String[] POWER = {
+            "static int $pow(int base, int exponent) {",
+            "    if (base == 1 || exponent == 0) {",
+            "        return 1;",
+            "    } else if (base == -1) {",
+            "        return (exponent & 1) == 0 ? 1 : -1;",
+            "    } else if (base == 0) {",
+            "        if (exponent < 0) {",
+            "            throw new ArithmeticException(\"Invalid exponent: zero raised to a negative power\");",
+            "        }",
+            "        return 0;",
+            "    } else if (exponent < 0) {",
+            "        return 0;",
+            "    }",
+            "    int result = 1;",
+            "    while (true) {",
+            "        if ((exponent & 1) != 0) {",
+            "            result = Math.multiplyExact(result, base);",
+            "        }",
+            "        exponent >>= 1;",
+            "        if (exponent == 0) {",
+            "            return result;",
+            "        }",
+            "        base = Math.multiplyExact(base, base);",
+            "    }",
+            "}"
+    };
 
     public Generator(PrintWriter writer) {
+        this(writer, false);
+    }
+
+    /**
+     * Creates a generator whose class, if {@code output} is true, prints
+     * through its static field {@code $output}, a
+     * {@code java.util.function.Consumer<Object>} that initially writes to
+     * {@code System.out}, so that the runner can set where it prints (see
+     * {@link JavaRunner#run(Ast.Source, Output)}). No identifier of the
+     * source has that name.
+     */
+    public Generator(PrintWriter writer, boolean output) {
         this.writer = writer;
+        this.output = output;
     }
 
     private void print(Object... objects) {
@@ -35,6 +83,15 @@ public final class Generator implements Ast.Visitor<Void> {
         print("public class Main {");
         newline(indent);
 
+        if (output)
+        {
+            indent+=1;
+            newline(indent);
+            print("static java.util.function.Consumer<Object> $output = System.out::println;");
+            indent-=1;
+            newline(indent);
+        }
+
         // 2. if there are globals...
         if (ast.getGlobals().size() > 0)
         {
@@ -58,7 +115,16 @@ public final class Generator implements Ast.Visitor<Void> {
         print("public static void main(String[] args) {");
         indent+=1;
         newline(indent);
-        print("System.exit(new Main().main());");
+        if (isIntegerMain(ast))
+        {
+            print("System.exit(new Main().main());");
+        }
+        else
+        {
+            print("new Main().main();");
+            newline(indent);
+            print("System.exit(0);");
+        }
         indent-=1;
         newline(indent);
         print("}");
@@ -77,7 +143,24 @@ public final class Generator implements Ast.Visitor<Void> {
             newline(indent);
         }
 
-        // 5. closing brace
+        // 5. the Integer power, if ^ used it
+        if (power)
+        {
+            indent+=1;
+            newline(indent);
+            for (int i = 0; i < POWER.length; i++)
+            {
+                if (i > 0)
+                {
+                    newline(indent);
+                }
+                print(POWER[i]);
+            }
+            indent-=1;
+            newline(indent);
+        }
+
+        // 6. closing brace
         newline(indent);
         print("}");
 
@@ -85,6 +168,21 @@ public final class Generator implements Ast.Visitor<Void> {
         return null;
     }
 
+    /**
+     * Returns false if the source's {@code main/0} returns something other
+     * than an Integer, which cannot be the exit status.
+     */
+    private static boolean isIntegerMain(Ast.Source ast) {
+        for (Ast.Function function : ast.getFunctions())
+        {
+            if (function.getName().equals("main") && function.getParameters().isEmpty())
+            {
+                return function.getFunction().getReturnType() == Environment.Type.INTEGER;
+            }
+        }
+        return true;
+    }
+
     @Override
     public Void visit(Ast.Global ast) {
 
@@ -360,6 +458,26 @@ public final class Generator implements Ast.Visitor<Void> {
 
     @Override
     public Void visit(Ast.Expression.Binary ast) {
+        if (ast.getOperator().equals("^"))
+        {
+            // ^ is exclusive or in Java, so powers are multiplied out, use the
+            // class's exact $pow for Integers, or Math.pow for Decimals
+            Ast.Expression reduced = Power.reduce(ast);
+            if (reduced != null)
+            {
+                visit(reduced);
+            }
+            else if (ast.getType() == Environment.Type.INTEGER)
+            {
+                power = true;
+                print("$pow(", ast.getLeft(), ", ", ast.getRight(), ")");
+            }
+            else
+            {
+                print("Math.pow(", ast.getLeft(), ", ", ast.getRight(), ")");
+            }
+            return null;
+        }
         visit(ast.getLeft());
         writer.write(" " + ast.getOperator() + " ");
         visit(ast.getRight());
@@ -386,7 +504,18 @@ public final class Generator implements Ast.Visitor<Void> {
     public Void visit(Ast.Expression.Function ast) {
         String params = "";
         boolean first = true;
-        writer.write(ast.getFunction().getJvmName()+ "(");
+        if (Lists.isBuiltin(ast.getName(), ast.getArguments().size()))
+        {
+            throw new UnsupportedOperationException("The builtin " + ast.getName() + "/" + ast.getArguments().size() + " is only run by the Interpreter.");
+        }
+        if (output && ast.getFunction().getJvmName().equals("System.out.println"))
+        {
+            writer.write("$output.accept(");
+        }
+        else
+        {
+            writer.write(ast.getFunction().getJvmName()+ "(");
+        }
         for (Ast.Expression s : ast.getArguments())
         {
             if (!first)
@@ -4,37 +4,213 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BinaryOperator;
+import java.util.function.LongBinaryOperator;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
+    /**
+     * Signals that a statement executed a {@code RETURN}, whose value is held
+     * in {@link #returned} until the enclosing function picks it up.
+     */
+    private static final Environment.PlcObject RETURN = new Environment.PlcObject(new Scope(null), "RETURN");
+
+    /**
+     * Signals that a statement executed a self-recursive tail call, whose
+     * arguments are held in {@link #tailArguments}.
+     */
+    private static final Environment.PlcObject TAIL_CALL = new Environment.PlcObject(new Scope(null), "TAIL_CALL");
+
+    private static final Logger LOGGER = Logger.getLogger(Interpreter.class.getName());
+
+    /**
+     * Compiles hot functions in the background, see {@link #tierUp(Tier, String)}.
+     */
+    private static final ExecutorService COMPILER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "plc-compiler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * The builtins, defined once in a frozen scope that is shared by the
+     * interpreters of an {@link Engine}.
+     */
+    static final Scope BUILTINS = builtins();
+
+    /**
+     * The interpreter running a source on each thread, through which builtins
+     * call the functions of the source (see {@link Lists}).
+     */
+    private static final ThreadLocal<Interpreter> RUNNING = new ThreadLocal<>();
+
     private Scope scope = new Scope(null);
+    private final Scope root;
+    private Ast.Source source = null;
+    private final Map<Ast.Statement.Switch, JumpTable> jumpTables = new IdentityHashMap<>();
+    private Ast.Expression.Function.Target[] targets = new Ast.Expression.Function.Target[0];
+    private Ast.Function function = null;
+    private Environment.PlcObject[] frame = null;
+    private Environment.Variable[] globals = new Environment.Variable[0];
+    private Environment.PlcObject returned = Environment.NIL;
+    private Environment.PlcObject[] tailArguments = null;
+    private Tier tier = null;
+    private int invocationThreshold = Integer.MAX_VALUE;
+    private int backEdgeThreshold = Integer.MAX_VALUE;
+    private final Memo memo = new Memo();
+    private Profiler profiler = null;
+    private int offHeapThreshold = 1 << 20;
+    private Output output = null;
+    private final List<TypedList> offHeap = new ArrayList<>();
 
+    /**
+     * Creates an interpreter whose globals and functions are defined in a new
+     * scope of the given one. The builtins are defined there too, unless the
+     * given scope is {@link #BUILTINS}.
+     */
     public Interpreter(Scope parent) {
         scope = new Scope(parent);
-        scope.defineFunction("print", 1, args -> {
-            System.out.println(args.get(0).getValue());
+        root = scope;
+        if (parent != BUILTINS)
+        {
+            defineBuiltins(scope);
+        }
+    }
+
+    /**
+     * Creates a fork of the given interpreter, which has its own definitions
+     * of the functions of its source, for calling them on another thread. The
+     * fork sees the globals of the interpreter, which must not change while it
+     * is used.
+     */
+    private Interpreter(Interpreter parent) {
+        scope = new Scope(parent.root);
+        root = scope;
+        source = parent.source;
+        globals = parent.globals;
+        invocationThreshold = parent.invocationThreshold;
+        backEdgeThreshold = parent.backEdgeThreshold;
+        memo.capacity = parent.memo.capacity;
+        output = parent.output;
+        for (Ast.Function f : source.getFunctions())
+        {
+            visit(f);
+        }
+    }
+
+    /**
+     * Sets how many calls of a function, or iterations of the loops within
+     * it, make the function hot enough to be compiled. Compilation is
+     * disabled by thresholds of {@link Integer#MAX_VALUE}, which they are
+     * unless set, so functions are only compiled if this is called.
+     */
+    public void setThresholds(int invocations, int backEdges) {
+        invocationThreshold = invocations;
+        backEdgeThreshold = backEdges;
+    }
+
+    /**
+     * Sets how many results of pure functions are remembered, evicting the
+     * least recently used beyond it. Memoization is disabled by a capacity of
+     * 0.
+     */
+    public void setMemoCapacity(int entries) {
+        memo.capacity = entries;
+        while (memo.size() > entries)
+        {
+            memo.remove(memo.keySet().iterator().next());
+        }
+    }
+
+    /**
+     * Sets the profiler that records the calls of source functions, or
+     * disables profiling if it is null.
+     */
+    public void setProfiler(Profiler profiler) {
+        this.profiler = profiler;
+    }
+
+    /**
+     * Sets the number of elements from which a list of Integers, Decimals or
+     * Characters is held off the heap (see {@link TypedList}). Its memory is
+     * released when the source that declared it has run, unless it is the
+     * result.
+     */
+    public void setOffHeapThreshold(int elements) {
+        offHeapThreshold = elements;
+    }
+
+    /**
+     * Sets where {@code print} writes, which is {@link Output#getDefault()}
+     * if it is null. The output is flushed once a source has run.
+     */
+    public void setOutput(Output output) {
+        this.output = output;
+    }
+
+    public Output getOutput() {
+        return output != null ? output : Output.getDefault();
+    }
+
+    /**
+     * Returns how many calls of pure functions reused a remembered result.
+     */
+    public long getMemoHits() {
+        return memo.hits;
+    }
+
+    /**
+     * Returns how many calls of pure functions were run and remembered.
+     */
+    public long getMemoMisses() {
+        return memo.misses;
+    }
+
+    /**
+     * Defines the builtin functions in the given scope, which are shared with
+     * the {@link VirtualMachine}.
+     */
+    static void defineBuiltins(Scope scope) {
+        scope.defineFunction("print", value -> {
+            Interpreter interpreter = RUNNING.get();
+            (interpreter != null ? interpreter.getOutput() : Output.getDefault()).println(value.getValue());
             return Environment.NIL;
         });
 
-        scope.defineFunction("logarithm", 1, args -> {
-            if (!(args.get(0).getValue() instanceof BigDecimal))
+        scope.defineFunction("logarithm", value -> {
+            if (!(value.getValue() instanceof BigDecimal))
             {
-                throw new RuntimeException("Expected type BigDecimal, received " + args.get(0).getValue().getClass().getName());
+                throw new RuntimeException("Expected type BigDecimal, received " + value.getValue().getClass().getName());
             }
 
-            BigDecimal bd1 = (BigDecimal) args.get(0).getValue();
+            BigDecimal bd1 = (BigDecimal) value.getValue();
 
-            BigDecimal bd2 = requireType(BigDecimal.class, Environment.create(args.get(0).getValue()));
+            BigDecimal bd2 = requireType(BigDecimal.class, Environment.create(value.getValue()));
 
             BigDecimal result = BigDecimal.valueOf(Math.log(bd2.doubleValue()));
             return Environment.create(result);
         });
 
-        scope.defineFunction("converter", 2, args ->{
-            BigInteger decimal = requireType(BigInteger.class, Environment.create(args.get(0).getValue()));
-            BigInteger base = requireType(BigInteger.class, Environment.create(args.get(1).getValue()));
+        scope.defineFunction("converter", (first, second) ->{
+            BigInteger decimal = requireType(BigInteger.class, Environment.create(first.getValue()));
+            BigInteger base = requireType(BigInteger.class, Environment.create(second.getValue()));
 
             String number = new String();
             int i, n = 0;
@@ -58,6 +234,70 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
             return Environment.create(number);
         });
+
+        Lists.define(scope);
+    }
+
+    /**
+     * Returns the interpreter running a source on this thread.
+     */
+    static Interpreter running() {
+        Interpreter interpreter = RUNNING.get();
+        if (interpreter == null)
+        {
+            throw new RuntimeException("No source is running on this thread.");
+        }
+        return interpreter;
+    }
+
+    /**
+     * Returns true if the named function is defined in the running source and
+     * is pure, so that it may be called in forks of this interpreter at once.
+     */
+    boolean isPure(String name, int arity) {
+        if (source == null)
+        {
+            return false;
+        }
+        for (Ast.Function f : source.getFunctions())
+        {
+            if (f.getName().equals(name) && f.getParameters().size() == arity)
+            {
+                return f.isPure();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a new fork of this interpreter, see {@link #Interpreter(Interpreter)}.
+     */
+    Interpreter fork() {
+        return new Interpreter(this);
+    }
+
+    /**
+     * Performs the action with this interpreter as the one running on this
+     * thread.
+     */
+    <T> T enter(Supplier<T> action) {
+        Interpreter previous = RUNNING.get();
+        RUNNING.set(this);
+        try
+        {
+            return action.get();
+        }
+        finally
+        {
+            RUNNING.set(previous);
+        }
+    }
+
+    private static Scope builtins() {
+        Scope scope = new Scope(null);
+        defineBuiltins(scope);
+        scope.freeze();
+        return scope;
     }
 
     public Scope getScope() {
@@ -68,23 +308,88 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
     public Environment.PlcObject visit(Ast.Source ast) {
         Environment.PlcObject mainOutput = Environment.NIL;
         boolean hasMain = false;
-        for (plc.project.Ast.Global g : ast.getGlobals())
+        source = ast;
+        globals = new Environment.Variable[ast.getGlobals().size()];
+        try
+        {
+            for (plc.project.Ast.Global g : ast.getGlobals())
+            {
+                visit(g);
+            }
+            for (plc.project.Ast.Function f : ast.getFunctions())
+            {
+                Environment.PlcObject current = visit(f);
+            }
+            mainOutput = enter(() -> scope.lookupFunction("main",0).invoke());
+            return mainOutput;
+        }
+        finally
+        {
+            release(mainOutput);
+            getOutput().flush();
+        }
+    }
+
+    /**
+     * Releases the lists held off the heap once the source has run, moving
+     * those reachable from the result onto the heap.
+     */
+    private void release(Environment.PlcObject result) {
+        if (offHeap.isEmpty())
+        {
+            return;
+        }
+        Set<Object> reachable = Collections.newSetFromMap(new IdentityHashMap<>());
+        reach(result.getValue(), reachable);
+        for (TypedList list : offHeap)
+        {
+            if (reachable.contains(list))
+            {
+                list.moveOnHeap();
+            }
+            else
+            {
+                list.release();
+            }
+        }
+        offHeap.clear();
+    }
+
+    /**
+     * Adds the value to the set if it is a list, along with the lists among
+     * its elements, at any depth.
+     */
+    private static void reach(Object value, Set<Object> reachable) {
+        if (!(value instanceof List) || !reachable.add(value))
+        {
+            return;
+        }
+        // the elements of a list of primitives are not lists
+        if (value instanceof TypedList && !((TypedList) value).isBoxed())
         {
-            visit(g);
+            return;
         }
-        for (plc.project.Ast.Function f : ast.getFunctions())
+        for (Object element : (List<?>) value)
         {
-            Environment.PlcObject current = visit(f);
+            reach(element, reachable);
         }
-        mainOutput = scope.lookupFunction("main",0).invoke(new ArrayList<Environment.PlcObject>());
-        return mainOutput;
     }
 
     @Override
     public Environment.PlcObject visit(Ast.Global ast) {
         // TODO: globals
         // set the variable
-        if (ast.getValue().isPresent())
+        if (ast.getValue().isPresent() && ast.getValue().get() instanceof Ast.Expression.PlcList)
+        {
+            List<Object> values = (List<Object>) visit(ast.getValue().get()).getValue();
+            TypedList list = TypedList.of(ast.getTypeName(), values, offHeapThreshold);
+            if (list.isOffHeap())
+            {
+                offHeap.add(list);
+            }
+            scope.defineVariable(ast.getName(), ast.getMutable(), Environment.create(list));
+        }
+        else if (ast.getValue().isPresent())
         {
             scope.defineVariable(ast.getName(), ast.getMutable(), visit(ast.getValue().get()));
         }
@@ -92,35 +397,186 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
         {
             scope.defineVariable(ast.getName(), ast.getMutable(), Environment.NIL);
         }
+        if (ast.getSlot() >= 0)
+        {
+            globals[ast.getSlot()] = scope.lookupVariable(ast.getName());
+        }
         return Environment.NIL;
     }
 
+    /**
+     * Defines the function in the current scope. A self-recursive tail call
+     * (see {@link #visit(Ast.Statement.Return)}) does not invoke the function
+     * again, but instead restarts its body with the new arguments in a fresh
+     * scope, so tail recursion runs in constant stack.
+     *
+     * If the function was resolved by the {@link Resolver}, its variables are
+     * held in a frame array rather than a scope, and a tail call reuses it.
+     * Calls and loop iterations of a resolved function are counted, and once
+     * it is hot it is compiled for the {@link VirtualMachine}, which runs all
+     * of its later calls.
+     */
     @Override
     public Environment.PlcObject visit(Ast.Function ast) {
-        scope.defineFunction(ast.getName(), ast.getParameters().size(), args ->{
-            try
+        scope.defineFunction(ast.getName(), ast.getParameters().size(), new Body(new Tier(ast, scope)));
+        return Environment.NIL;
+    }
+
+    /**
+     * Runs a call of a function with its arguments at the start of the given
+     * array, which is its frame if it was resolved, recording it in the
+     * profiler if there is one.
+     */
+    private Environment.PlcObject call(Tier counters, Environment.PlcObject[] arguments) {
+        checkInterrupted();
+        if (profiler == null)
+        {
+            return remember(counters, arguments);
+        }
+        Profiler profiler = this.profiler;
+        if (counters.profiler != profiler)
+        {
+            counters.calls = profiler.counter(counters.name);
+            counters.profiler = profiler;
+        }
+        profiler.enter(counters.name, counters.calls);
+        try
+        {
+            return remember(counters, arguments);
+        }
+        finally
+        {
+            profiler.exit();
+        }
+    }
+
+    /**
+     * Runs a call of a function. The result of a call of a pure function
+     * (see {@link Ast.Function#isPure()}) is remembered by its argument
+     * values, unless the arguments or the result hold a list, which may
+     * change later.
+     */
+    private Environment.PlcObject remember(Tier counters, Environment.PlcObject[] arguments) {
+        Call key = memo.capacity > 0 && counters.ast.isPure() ? Call.of(counters.ast, arguments) : null;
+        if (key == null)
+        {
+            return run(counters, arguments);
+        }
+        Environment.PlcObject result = memo.get(key);
+        if (result != null)
+        {
+            memo.hits++;
+            return result;
+        }
+        memo.misses++;
+        result = run(counters, arguments);
+        if (!(result.getValue() instanceof List))
+        {
+            memo.put(key, result);
+        }
+        return result;
+    }
+
+    private Environment.PlcObject run(Tier counters, Environment.PlcObject[] arguments) {
+        if (counters.machine != null || install(counters))
+        {
+            return counters.machine.invoke(0, arguments);
+        }
+        if (++counters.invocations == invocationThreshold)
+        {
+            tierUp(counters, counters.invocations + " calls");
+        }
+        Ast.Function ast = counters.ast;
+        int arity = ast.getParameters().size();
+        Ast.Function caller = function;
+        Environment.PlcObject[] callerFrame = frame;
+        Tier callerTier = tier;
+        function = ast;
+        tier = counters;
+        frame = ast.getFrameSize() >= 0 ? arguments : null;
+        try
+        {
+            while (true)
             {
-                scope = new Scope(scope);
-                for (int i = 0; i < args.size(); i++)
+                try
                 {
-                    scope.defineVariable(ast.getParameters().get(i), true, args.get(i));
+                    push();
+                    if (frame == null)
+                    {
+                        for (int i = 0; i < arity; i++)
+                        {
+                            scope.defineVariable(ast.getParameters().get(i), true, arguments[i]);
+                        }
+                    }
+                    Environment.PlcObject result = execute(ast.getStatements());
+                    if (result == RETURN)
+                    {
+                        return returned;
+                    }
+                    else if (result != TAIL_CALL)
+                    {
+                        return Environment.NIL;
+                    }
+                    System.arraycopy(tailArguments, 0, arguments, 0, arity);
                 }
-                for (Ast.Statement stmt : ast.getStatements())
+                finally
                 {
-                    visit(stmt);
+                    pop();
                 }
             }
-            catch(Return r)
-            {
-                return r.value;
-            }
-            finally
-            {
-                scope = scope.getParent();
-            }
-            return Environment.NIL;
-        });
-        return Environment.NIL;
+        }
+        finally
+        {
+            function = caller;
+            frame = callerFrame;
+            tier = callerTier;
+        }
+    }
+
+    /**
+     * Starts compiling a hot function in the background. The compiled
+     * function is installed by {@link #install(Tier)} on a later call, so
+     * calls that are running finish in the interpreter.
+     */
+    private void tierUp(Tier tier, String reason) {
+        if (tier.compiling)
+        {
+            return;
+        }
+        tier.compiling = true;
+        String name = tier.name;
+        if (tier.ast.getFrameSize() < 0)
+        {
+            LOGGER.fine(() -> name + " is hot after " + reason + ", but stays interpreted as it is not resolved");
+            return;
+        }
+        LOGGER.fine(() -> "Compiling " + name + " after " + reason);
+        tier.program = COMPILER.submit(() -> new Compiler().compile(tier.ast));
+    }
+
+    /**
+     * Installs the compiled function once its compilation is done, returning
+     * whether it was.
+     */
+    private boolean install(Tier tier) {
+        if (tier.program == null || !tier.program.isDone())
+        {
+            return false;
+        }
+        String name = tier.name;
+        try
+        {
+            // the interpreter's scope already sees the builtins
+            tier.machine = new VirtualMachine(tier.program.get(), tier.scope, false);
+            LOGGER.fine(() -> "Installed compiled " + name);
+            return true;
+        }
+        catch (InterruptedException | ExecutionException e)
+        {
+            LOGGER.log(Level.WARNING, "Compiling " + name + " failed, so it stays interpreted", e);
+            tier.program = null;
+            return false;
+        }
     }
 
     @Override
@@ -137,7 +593,11 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
         Boolean present = optional.isPresent();
         String name = ast.getName();
         //throw new RuntimeException(name);
-        if (present)
+        if (ast.getSlot() >= 0)
+        {
+            frame[ast.getSlot()] = present ? visit((Ast.Expression) optional.get()) : Environment.NIL;
+        }
+        else if (present)
         {
             Ast.Expression expression = (Ast.Expression) optional.get();
             scope.defineVariable(name, true, visit(expression));
@@ -156,6 +616,11 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
         if (ast.getReceiver() instanceof Ast.Expression.Access)
         {
             Ast.Expression.Access acc = (Ast.Expression.Access) ast.getReceiver();
+            if (acc.getDepth() >= 0)
+            {
+                assign(acc, ast.getValue());
+                return Environment.NIL;
+            }
             // check to see if already defined
             try {
                 Environment.Variable ev = scope.lookupVariable(acc.getName());
@@ -165,10 +630,8 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
                 }
                 if (acc.getOffset().isPresent())
                 {
-                    List<Object> p = (List<Object>) scope.lookupVariable(acc.getName()).getValue().getValue();
-                    BigInteger b = requireType(BigInteger.class, visit(acc.getOffset().get()));
-                    p.set(b.intValue(), visit(ast.getValue()).getValue());
-                    ev.setValue(Environment.create(p));
+                    Environment.PlcObject offset = visit(acc.getOffset().get());
+                    TypedList.setElement(ev.getValue(), offset, visit(ast.getValue()));
                 }
                 else
                 {
@@ -199,6 +662,31 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
     }
 
+    /**
+     * Assigns to a variable resolved by the {@link Resolver}.
+     */
+    private void assign(Ast.Expression.Access receiver, Ast.Expression value) {
+        Environment.Variable global = receiver.getDepth() == Resolver.GLOBAL ? globals[receiver.getSlot()] : null;
+        if (global != null && !global.getMutable())
+        {
+            throw new RuntimeException("Non mutable");
+        }
+        if (receiver.getOffset().isPresent())
+        {
+            Environment.PlcObject current = global != null ? global.getValue() : frame[receiver.getSlot()];
+            Environment.PlcObject offset = visit(receiver.getOffset().get());
+            TypedList.setElement(current, offset, visit(value));
+        }
+        else if (global != null)
+        {
+            global.setValue(visit(value));
+        }
+        else
+        {
+            frame[receiver.getSlot()] = visit(value);
+        }
+    }
+
     @Override
     public Environment.PlcObject visit(Ast.Statement.If ast) {
 
@@ -206,33 +694,26 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
         {
             try
             {
-                scope = new Scope(scope);
-                for (Ast.Statement stmt : ast.getThenStatements())
-                {
-                    visit(stmt);
-                }
+                push();
+                return execute(ast.getThenStatements());
             }
             finally
             {
-                scope = scope.getParent();
+                pop();
             }
         }
         else
         {
             try
             {
-                scope = new Scope(scope);
-                for (Ast.Statement stmt : ast.getElseStatements())
-                {
-                    visit(stmt);
-                }
+                push();
+                return execute(ast.getElseStatements());
             }
             finally
             {
-                scope = scope.getParent();
+                pop();
             }
         }
-        return Environment.NIL;
     }
 
     @Override
@@ -241,17 +722,33 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
         {
             try
             {
-                scope = new Scope(scope);
+                push();
                 Environment.PlcObject cond = visit(ast.getCondition());
+                JumpTable table = jumpTable(ast);
+                if (table != null)
+                {
+                    // constant cases, so only the matching ones are visited
+                    List<Ast.Statement.Case> matches = table.cases.get(cond.getValue());
+                    for (Ast.Statement.Case stmt : matches != null ? matches : table.defaults)
+                    {
+                        Environment.PlcObject result = execute(stmt.getStatements());
+                        if (result != Environment.NIL)
+                        {
+                            return result;
+                        }
+                    }
+                    return Environment.NIL;
+                }
                 boolean matched = false;
                 for (Ast.Statement.Case stmt : ast.getCases())
                 {
                     if (visit(stmt).getValue().equals(cond.getValue()))
                     {
                         matched = true;
-                        for (Ast.Statement inner : stmt.getStatements())
+                        Environment.PlcObject result = execute(stmt.getStatements());
+                        if (result != Environment.NIL)
                         {
-                            visit(inner);
+                            return result;
                         }
                     }
                 }
@@ -261,9 +758,10 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
                     {
                         if (visit(stmt).equals(Environment.NIL))
                         {
-                            for (Ast.Statement inner : stmt.getStatements())
+                            Environment.PlcObject result = execute(stmt.getStatements());
+                            if (result != Environment.NIL)
                             {
-                                visit(inner);
+                                return result;
                             }
                         }
                     }
@@ -271,12 +769,61 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
             }
             finally
             {
-                scope = scope.getParent();
+                pop();
             }
         }
         return Environment.NIL;
     }
 
+    /**
+     * Compares the operands of a {@code <} or {@code >}, comparing Integers
+     * held as longs without creating their BigIntegers.
+     */
+    private static int compare(Environment.PlcObject leftObj, Environment.PlcObject rightObj) {
+        Comparable b1 = leftObj.isLong() ? null : requireType(Comparable.class, leftObj);
+        if (leftObj.isLong() && rightObj.isLong())
+        {
+            return Long.compare(leftObj.getLong(), rightObj.getLong());
+        }
+        if (b1 == null)
+        {
+            b1 = (Comparable) leftObj.getValue();
+        }
+        Comparable b2 = requireType(Comparable.class, rightObj);
+        return b1.compareTo(b2);
+    }
+
+    /**
+     * Returns the jump table of a switch, building it on its first execution,
+     * or null if one of its case values is not a constant literal.
+     */
+    private JumpTable jumpTable(Ast.Statement.Switch ast) {
+        if (jumpTables.containsKey(ast))
+        {
+            return jumpTables.get(ast);
+        }
+        JumpTable table = new JumpTable();
+        for (Ast.Statement.Case stmt : ast.getCases())
+        {
+            if (!stmt.getValue().isPresent())
+            {
+                table.defaults.add(stmt);
+            }
+            else if (stmt.getValue().get() instanceof Ast.Expression.Literal && ((Ast.Expression.Literal) stmt.getValue().get()).getLiteral() != null)
+            {
+                Object value = ((Ast.Expression.Literal) stmt.getValue().get()).getLiteral();
+                table.cases.computeIfAbsent(value, v -> new ArrayList<>()).add(stmt);
+            }
+            else
+            {
+                table = null;
+                break;
+            }
+        }
+        jumpTables.put(ast, table);
+        return table;
+    }
+
     @Override
     public Environment.PlcObject visit(Ast.Statement.Case ast) {
         if (ast.getValue().isPresent())
@@ -293,16 +840,22 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
         {
             try
             {
-                scope = new Scope(scope);
-                for (Ast.Statement stmt : ast.getStatements())
+                push();
+                Environment.PlcObject result = execute(ast.getStatements());
+                if (result != Environment.NIL)
                 {
-                    visit(stmt);
+                    return result;
                 }
             }
             finally
             {
-                scope = scope.getParent();
+                pop();
+            }
+            if (tier != null && ++tier.backEdges == backEdgeThreshold)
+            {
+                tierUp(tier, tier.backEdges + " loop iterations");
             }
+            checkInterrupted();
 
         }
 
@@ -311,7 +864,40 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
     @Override
     public Environment.PlcObject visit(Ast.Statement.Return ast) {
-        throw new Return(visit(ast.getValue()));
+        if (function != null && ast.getValue() instanceof Ast.Expression.Function)
+        {
+            Ast.Expression.Function call = (Ast.Expression.Function) ast.getValue();
+            if (call.getName().equals(function.getName()) && call.getArguments().size() == function.getParameters().size())
+            {
+                // tail call to the running function
+                Environment.PlcObject[] arguments = new Environment.PlcObject[call.getArguments().size()];
+                for (int i = 0; i < arguments.length; i++)
+                {
+                    arguments[i] = visit(call.getArguments().get(i));
+                }
+                tailArguments = arguments;
+                return TAIL_CALL;
+            }
+        }
+        returned = visit(ast.getValue());
+        return RETURN;
+    }
+
+    /**
+     * Visits the statements of a block in order. If one of them completes
+     * with {@link #RETURN} or {@link #TAIL_CALL}, the rest are skipped and
+     * the signal is returned, and otherwise the result is {@code NIL}.
+     */
+    private Environment.PlcObject execute(List<Ast.Statement> statements) {
+        for (Ast.Statement stmt : statements)
+        {
+            Environment.PlcObject result = visit(stmt);
+            if (result == RETURN || result == TAIL_CALL)
+            {
+                return result;
+            }
+        }
+        return Environment.NIL;
     }
 
     @Override
@@ -328,69 +914,223 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
         return visit(ast.getExpression());
     }
 
+    /**
+     * Evaluates the expression through the node specialized to the operand
+     * types this expression has seen, see {@link #specialize}.
+     */
     @Override
     public Environment.PlcObject visit(Ast.Expression.Binary ast) {
+        Node node = ast.getNode();
+        if (node == null)
+        {
+            return specialize(ast);
+        }
+        return node.execute(this, ast);
+    }
 
-        if (ast.getOperator().equals("&&"))
+    /**
+     * Evaluates a binary expression for the first time, replacing it with a
+     * node specialized to its operator and the types of its operands. Logical
+     * and equality operators do not depend on types. Arithmetic on two longs
+     * or two Decimals, comparison of two longs and concatenation each have a
+     * node that checks the types it expects, and replaces itself with the
+     * generic node if they ever change. Any other operation is generic.
+     *
+     * The node is kept on the expression, so every run of the tree shares it,
+     * whichever interpreter it is in. Nodes hold no state of their own, and
+     * replacing one races harmlessly with runs on other threads, which
+     * evaluate the expression correctly through either node.
+     */
+    private Environment.PlcObject specialize(Ast.Expression.Binary ast) {
+        String operator = ast.getOperator();
+        if (operator.equals("&&") || operator.equals("||"))
+        {
+            ast.setNode(operator.equals("&&") ? Interpreter::and : Interpreter::or);
+            return visit(ast);
+        }
+        else if (operator.equals("==") || operator.equals("!="))
+        {
+            boolean expected = operator.equals("==");
+            ast.setNode((interpreter, binary) -> Environment.create(equal(interpreter.visit(binary.getLeft()), interpreter.visit(binary.getRight())) == expected));
+            return visit(ast);
+        }
+        else if (!Arrays.asList("<", ">", "+", "-", "*", "/", "^").contains(operator))
         {
-            Environment.PlcObject leftObj = visit(ast.getLeft());
-            boolean b1 = requireType(Boolean.class, leftObj);
-            if (b1 == false)
+            throw new RuntimeException("Invalid operator " + ast.getOperator());
+        }
+        Environment.PlcObject leftObj = visit(ast.getLeft());
+        Environment.PlcObject rightObj = right(ast, leftObj);
+        Node node = Interpreter::generic;
+        if (leftObj.isLong() && rightObj.isLong())
+        {
+            switch (operator)
             {
-                return Environment.create(false);
+                case "<": node = integerComparison(false); break;
+                case ">": node = integerComparison(true); break;
+                // - adds, as in the generic case
+                case "+": case "-": node = integerArithmetic(Math::addExact); break;
+                case "*": node = integerArithmetic(Math::multiplyExact); break;
+                // division by zero fails in the generic case
+                case "/": node = integerArithmetic((a, b) -> b == -1 ? Math.negateExact(a) : a / b); break;
             }
-            Environment.PlcObject rightObj = visit(ast.getRight());
-            boolean b2 = requireType(Boolean.class, rightObj);
-            return Environment.create(b1 && b2);
         }
-        else if (ast.getOperator().equals("||"))
+        else if (leftObj.getValue() instanceof BigDecimal && rightObj.getValue() instanceof BigDecimal)
         {
-            Environment.PlcObject leftObj = visit(ast.getLeft());
-            boolean b1 = requireType(Boolean.class, leftObj);
-            if (b1 == true)
+            switch (operator)
             {
-                return Environment.create(true);
+                case "+": case "-": node = decimalArithmetic(BigDecimal::add); break;
+                case "*": node = decimalArithmetic(BigDecimal::multiply); break;
+                case "/": node = decimalArithmetic((a, b) -> a.divide(b, RoundingMode.HALF_EVEN)); break;
             }
-            Environment.PlcObject rightObj = visit(ast.getRight());
-            boolean b2 = requireType(Boolean.class, rightObj);
-            return Environment.create(b1 || b2);
         }
-        else if (ast.getOperator().equals("<"))
+        else if (operator.equals("+") && (leftObj.isString() || rightObj.isString()))
+        {
+            node = Interpreter::concatenation;
+        }
+        ast.setNode(node);
+        return evaluate(ast.getOperator(), leftObj, rightObj);
+    }
+
+    private Environment.PlcObject and(Ast.Expression.Binary ast) {
+        Environment.PlcObject leftObj = visit(ast.getLeft());
+        boolean b1 = requireType(Boolean.class, leftObj);
+        if (b1 == false)
+        {
+            return Environment.create(false);
+        }
+        Environment.PlcObject rightObj = visit(ast.getRight());
+        boolean b2 = requireType(Boolean.class, rightObj);
+        return Environment.create(b1 && b2);
+    }
+
+    private Environment.PlcObject or(Ast.Expression.Binary ast) {
+        Environment.PlcObject leftObj = visit(ast.getLeft());
+        boolean b1 = requireType(Boolean.class, leftObj);
+        if (b1 == true)
         {
-            Environment.PlcObject leftObj = visit(ast.getLeft());
-            Comparable b1 = requireType(Comparable.class, leftObj);
-            Environment.PlcObject rightObj = visit(ast.getRight());
-            Comparable b2 = requireType(Comparable.class, rightObj);
-            return Environment.create(b1.compareTo(b2) < 0);
+            return Environment.create(true);
         }
-        else if (ast.getOperator().equals(">"))
+        Environment.PlcObject rightObj = visit(ast.getRight());
+        boolean b2 = requireType(Boolean.class, rightObj);
+        return Environment.create(b1 || b2);
+    }
+
+    private Environment.PlcObject generic(Ast.Expression.Binary ast) {
+        Environment.PlcObject leftObj = visit(ast.getLeft());
+        return evaluate(ast.getOperator(), leftObj, right(ast, leftObj));
+    }
+
+    /**
+     * Evaluates the right operand of a generic expression. The left operand
+     * of a comparison must be comparable before the right one is evaluated.
+     */
+    private Environment.PlcObject right(Ast.Expression.Binary ast, Environment.PlcObject leftObj) {
+        if ((ast.getOperator().equals("<") || ast.getOperator().equals(">")) && !leftObj.isLong())
+        {
+            requireType(Comparable.class, leftObj);
+        }
+        return visit(ast.getRight());
+    }
+
+    /**
+     * Replaces a specialized node whose operand types changed with the
+     * generic one, and finishes evaluating the expression. The right operand
+     * is null if it was not evaluated yet.
+     */
+    private Environment.PlcObject deoptimize(Ast.Expression.Binary ast, Environment.PlcObject leftObj, Environment.PlcObject rightObj) {
+        ast.setNode(Interpreter::generic);
+        return evaluate(ast.getOperator(), leftObj, rightObj != null ? rightObj : right(ast, leftObj));
+    }
+
+    private static Node integerArithmetic(LongBinaryOperator operation) {
+        return (interpreter, ast) -> {
+            Environment.PlcObject leftObj = interpreter.visit(ast.getLeft());
+            Environment.PlcObject rightObj = interpreter.visit(ast.getRight());
+            if (!leftObj.isLong() || !rightObj.isLong())
+            {
+                return interpreter.deoptimize(ast, leftObj, rightObj);
+            }
+            try
+            {
+                return Environment.createInteger(operation.applyAsLong(leftObj.getLong(), rightObj.getLong()));
+            }
+            catch (ArithmeticException e)
+            {
+                // overflow or division by zero, which the generic case handles
+                return evaluate(ast.getOperator(), leftObj, rightObj);
+            }
+        };
+    }
+
+    private static Node integerComparison(boolean greater) {
+        return (interpreter, ast) -> {
+            Environment.PlcObject leftObj = interpreter.visit(ast.getLeft());
+            if (!leftObj.isLong())
+            {
+                return interpreter.deoptimize(ast, leftObj, null);
+            }
+            Environment.PlcObject rightObj = interpreter.visit(ast.getRight());
+            if (!rightObj.isLong())
+            {
+                return interpreter.deoptimize(ast, leftObj, rightObj);
+            }
+            return Environment.create(greater ? leftObj.getLong() > rightObj.getLong() : leftObj.getLong() < rightObj.getLong());
+        };
+    }
+
+    private static Node decimalArithmetic(BinaryOperator<BigDecimal> operation) {
+        return (interpreter, ast) -> {
+            Environment.PlcObject leftObj = interpreter.visit(ast.getLeft());
+            Environment.PlcObject rightObj = interpreter.visit(ast.getRight());
+            if (!(leftObj.getValue() instanceof BigDecimal) || !(rightObj.getValue() instanceof BigDecimal))
+            {
+                return interpreter.deoptimize(ast, leftObj, rightObj);
+            }
+            return Environment.create(operation.apply((BigDecimal) leftObj.getValue(), (BigDecimal) rightObj.getValue()));
+        };
+    }
+
+    private Environment.PlcObject concatenation(Ast.Expression.Binary ast) {
+        Environment.PlcObject leftObj = visit(ast.getLeft());
+        Environment.PlcObject rightObj = visit(ast.getRight());
+        if (!leftObj.isString() && !rightObj.isString())
         {
-            Environment.PlcObject leftObj = visit(ast.getLeft());
-            Comparable b1 = requireType(Comparable.class, leftObj);
-            Environment.PlcObject rightObj = visit(ast.getRight());
-            Comparable b2 = requireType(Comparable.class, rightObj);
-            return Environment.create(b1.compareTo(b2) > 0);
+            return deoptimize(ast, leftObj, rightObj);
         }
-        else if (ast.getOperator().equals("=="))
+        return Environment.concatenate(leftObj, rightObj);
+    }
+
+    /**
+     * Evaluates an arithmetic or comparison operator on evaluated operands,
+     * for any operand types. Also used by the {@link VirtualMachine}.
+     */
+    static Environment.PlcObject evaluate(String operator, Environment.PlcObject leftObj, Environment.PlcObject rightObj) {
+
+        if (operator.equals("<"))
         {
-            Environment.PlcObject leftObj = visit(ast.getLeft());
-            Environment.PlcObject rightObj = visit(ast.getRight());
-            return Environment.create(leftObj.equals(rightObj));
+            return Environment.create(compare(leftObj, rightObj) < 0);
         }
-        else if (ast.getOperator().equals("!="))
+        else if (operator.equals(">"))
         {
-            Environment.PlcObject leftObj = visit(ast.getLeft());
-            Environment.PlcObject rightObj = visit(ast.getRight());
-            return Environment.create(!leftObj.equals(rightObj));
+            return Environment.create(compare(leftObj, rightObj) > 0);
         }
-        else if (ast.getOperator().equals("+"))
+        else if (operator.equals("+"))
         {
-            Environment.PlcObject leftObj = visit(ast.getLeft());
-            Environment.PlcObject rightObj = visit(ast.getRight());
-            if (leftObj.getValue() instanceof String || rightObj.getValue() instanceof String)
+            if (leftObj.isLong() && rightObj.isLong())
+            {
+                try
+                {
+                    return Environment.createInteger(Math.addExact(leftObj.getLong(), rightObj.getLong()));
+                }
+                catch (ArithmeticException e)
+                {
+                    // overflow, so add as BigIntegers below
+                }
+            }
+            if (leftObj.isString() || rightObj.isString())
             {
                 // concatenation
-                return Environment.create(leftObj.getValue().toString().concat(rightObj.getValue().toString()));
+                return Environment.concatenate(leftObj, rightObj);
             }
             else if (leftObj.getValue() instanceof BigDecimal && rightObj.getValue() instanceof BigDecimal)
             {
@@ -406,15 +1146,29 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
             }
             throw new RuntimeException("Invalid addition between " + leftObj.getClass().toString() + " and " + rightObj.getClass().toString());
         }
-        else if (ast.getOperator().equals("-") || ast.getOperator().equals("*"))
+        else if (operator.equals("-") || operator.equals("*"))
         {
-            Environment.PlcObject leftObj = visit(ast.getLeft());
-            Environment.PlcObject rightObj = visit(ast.getRight());
+            if (leftObj.isLong() && rightObj.isLong())
+            {
+                try
+                {
+                    if (operator.equals("-"))
+                    {
+                        // same as the BigInteger case below
+                        return Environment.createInteger(Math.addExact(leftObj.getLong(), rightObj.getLong()));
+                    }
+                    return Environment.createInteger(Math.multiplyExact(leftObj.getLong(), rightObj.getLong()));
+                }
+                catch (ArithmeticException e)
+                {
+                    // overflow, so compute with BigIntegers below
+                }
+            }
             if (leftObj.getValue() instanceof BigDecimal && rightObj.getValue() instanceof BigDecimal)
             {
                 BigDecimal b1 = requireType(BigDecimal.class, leftObj);
                 BigDecimal b2 = requireType(BigDecimal.class, rightObj);
-                if (ast.getOperator().equals("-"))
+                if (operator.equals("-"))
                 {
                     return Environment.create(b1.add(b2));
                 }
@@ -427,7 +1181,7 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
             {
                 BigInteger b1 = requireType(BigInteger.class, leftObj);
                 BigInteger b2 = requireType(BigInteger.class, rightObj);
-                if (ast.getOperator().equals("-"))
+                if (operator.equals("-"))
                 {
                     return Environment.create(b1.add(b2));
                 }
@@ -438,10 +1192,13 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
             }
             throw new RuntimeException("Invalid arithmetic between " + leftObj.getClass().toString() + " and " + rightObj.getClass().toString());
         }
-        else if (ast.getOperator().equals("/"))
+        else if (operator.equals("/"))
         {
-            Environment.PlcObject leftObj = visit(ast.getLeft());
-            Environment.PlcObject rightObj = visit(ast.getRight());
+            // zero and Long.MIN_VALUE / -1 are left to BigInteger, which fails or promotes
+            if (leftObj.isLong() && rightObj.isLong() && rightObj.getLong() != 0 && rightObj.getLong() != -1)
+            {
+                return Environment.createInteger(leftObj.getLong() / rightObj.getLong());
+            }
             if (leftObj.getValue() instanceof BigDecimal && rightObj.getValue() instanceof BigDecimal)
             {
                 BigDecimal b1 = requireType(BigDecimal.class, leftObj);
@@ -457,76 +1214,123 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
             }
             throw new RuntimeException("Invalid division between " + leftObj.getClass().toString() + " and " + rightObj.getClass().toString());
         }
-        else if (ast.getOperator().equals("^"))
+        else if (operator.equals("^"))
         {
-            Environment.PlcObject leftObj = visit(ast.getLeft());
-            Environment.PlcObject rightObj = visit(ast.getRight());
             BigInteger exp = requireType(BigInteger.class, rightObj);
             if (leftObj.getValue() instanceof BigInteger)
             {
-                BigInteger b1 = requireType(BigInteger.class, leftObj);
-                BigInteger b2 = b1;
-                while (exp.compareTo(BigInteger.ZERO) > 0)
-                {
-                    b2 = b2.multiply(b1);
-                }
-                if (exp.compareTo(BigInteger.ZERO) < 0)
-                {
-                    b2 = BigInteger.ONE;
-                }
-                while (exp.compareTo(BigInteger.ZERO) < 0)
-                {
-
-                    b2 = b2.divide(b1);
-                }
-                return Environment.create(b2);
+                return Environment.create(Power.pow(requireType(BigInteger.class, leftObj), exp));
             }
             else if (leftObj.getValue() instanceof BigDecimal)
             {
-                BigDecimal b1 = requireType(BigDecimal.class, leftObj);
-                BigDecimal b2 = b1;
-                while (exp.compareTo(BigInteger.ZERO) > 0)
-                {
-                    b2 = b2.multiply(b1);
-                }
-                if (exp.compareTo(BigInteger.ZERO) < 0)
-                {
-                    b2 = BigDecimal.ZERO;
-                }
-                while (exp.compareTo(BigInteger.ZERO) < 0)
-                {
-                    b2 = b2.divide(b1);
-                }
-                return Environment.create(b2);
+                return Environment.create(Power.pow(requireType(BigDecimal.class, leftObj), exp));
             }
             throw new RuntimeException("Invalid arithmetic between " + leftObj.getClass().toString() + " and " + rightObj.getClass().toString());
         }
         else
         {
-            throw new RuntimeException("Invalid operator " + ast.getOperator());
+            throw new RuntimeException("Invalid operator " + operator);
         }
     }
 
     @Override
     public Environment.PlcObject visit(Ast.Expression.Access ast) {
         //TODO: implement list access
+        if (ast.getDepth() >= 0)
+        {
+            Environment.PlcObject value = ast.getDepth() == Resolver.GLOBAL ? globals[ast.getSlot()].getValue() : frame[ast.getSlot()];
+            if (ast.getOffset().isPresent())
+            {
+                return TypedList.element(value, visit(ast.getOffset().get()));
+            }
+            return value;
+        }
         if (ast.getOffset().isPresent())
         {
-            BigInteger i = requireType(BigInteger.class, visit(ast.getOffset().get()));
-            List<Ast.Expression> p = (List<Ast.Expression>) scope.lookupVariable(ast.getName()).getValue().getValue();
-            return Environment.create(p.get(i.intValue()));
+            Environment.PlcObject offset = visit(ast.getOffset().get());
+            return TypedList.element(scope.lookupVariable(ast.getName()).getValue(), offset);
         }
-        return Environment.create(scope.lookupVariable(ast.getName()).getValue().getValue());
+        return scope.lookupVariable(ast.getName()).getValue();
     }
 
+    /**
+     * Evaluates the arguments and passes them to the entry point of the
+     * function for their number, so calls of up to four arguments do not
+     * collect them in a list.
+     */
     @Override
     public Environment.PlcObject visit(Ast.Expression.Function ast) {
-        ArrayList<Environment.PlcObject> list =  new ArrayList<>();
-        for (Ast.Expression e : ast.getArguments())
+        List<Ast.Expression> arguments = ast.getArguments();
+        switch (arguments.size())
+        {
+            case 0:
+                return target(ast).invoke();
+            case 1:
+            {
+                Environment.PlcObject first = visit(arguments.get(0));
+                return target(ast).invoke(first);
+            }
+            case 2:
+            {
+                Environment.PlcObject first = visit(arguments.get(0));
+                Environment.PlcObject second = visit(arguments.get(1));
+                return target(ast).invoke(first, second);
+            }
+            case 3:
+            {
+                Environment.PlcObject first = visit(arguments.get(0));
+                Environment.PlcObject second = visit(arguments.get(1));
+                Environment.PlcObject third = visit(arguments.get(2));
+                return target(ast).invoke(first, second, third);
+            }
+            case 4:
+            {
+                Environment.PlcObject first = visit(arguments.get(0));
+                Environment.PlcObject second = visit(arguments.get(1));
+                Environment.PlcObject third = visit(arguments.get(2));
+                Environment.PlcObject fourth = visit(arguments.get(3));
+                return target(ast).invoke(first, second, third, fourth);
+            }
+            default:
+            {
+                Environment.PlcObject[] values = new Environment.PlcObject[arguments.size()];
+                for (int i = 0; i < values.length; i++)
+                {
+                    values[i] = visit(arguments.get(i));
+                }
+                return target(ast).invoke(values);
+            }
+        }
+    }
+
+    /**
+     * Returns the function the call last invoked if a lookup from the current
+     * scope would still find it, which skips building the key and searching
+     * the scope chain (see {@link Ast.Expression.Function.Target}). The
+     * scopes of each run differ, so a resolved call is cached in an array of
+     * this interpreter, by its slot, and only an unresolved one on the call
+     * itself.
+     */
+    private Environment.Function target(Ast.Expression.Function ast) {
+        int slot = ast.getSlot();
+        Ast.Expression.Function.Target target = slot < 0 ? ast.getTarget() : slot < targets.length ? targets[slot] : null;
+        if (target == null || !target.isValid(scope))
         {
-            list.add(visit(e));
+            target = new Ast.Expression.Function.Target(scope, ast.getName(), ast.getArguments().size());
+            if (slot < 0)
+            {
+                ast.setTarget(target);
+            }
+            else
+            {
+                if (slot >= targets.length)
+                {
+                    targets = Arrays.copyOf(targets, Math.max(slot + 1, targets.length * 2));
+                }
+                targets[slot] = target;
+            }
         }
-        return scope.lookupFunction(ast.getName(), ast.getArguments().size()).invoke(list);
+        return target.getFunction();
     }
 
     @Override
@@ -539,10 +1343,52 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
         return Environment.create(al);
     }
 
+    /**
+     * Compares the values of two objects for {@code ==} and {@code !=}, since
+     * objects are shared by {@link Environment#create(Object)}.
+     */
+    static boolean equal(Environment.PlcObject left, Environment.PlcObject right) {
+        if (left.isLong() && right.isLong())
+        {
+            return left.getLong() == right.getLong();
+        }
+        return Objects.equals(left.getValue(), right.getValue());
+    }
+
+    /**
+     * Opens the scope of a block. The variables of a function resolved by
+     * the {@link Resolver} are already kept apart by their slots, so its
+     * blocks do not allocate scopes.
+     */
+    private void push() {
+        if (frame == null)
+        {
+            scope = new Scope(scope);
+        }
+    }
+
+    private void pop() {
+        if (frame == null)
+        {
+            scope = scope.getParent();
+        }
+    }
+
+    /**
+     * Stops the program if its thread was interrupted, which is checked on
+     * each call and loop iteration so that a run can be cancelled (see
+     * {@link ExecutionService}).
+     */
+    static void checkInterrupted() {
+        if (Thread.interrupted()) {
+            throw new RuntimeException("The program was interrupted.");
+        }
+    }
+
     /**
      * Helper function to ensure an object is of the appropriate type.
      */
-    private static <T> T requireType(Class<T> type, Environment.PlcObject object) {
+    static <T> T requireType(Class<T> type, Environment.PlcObject object) {
         if (type.isInstance(object.getValue())) {
             return type.cast(object.getValue());
         } else {
@@ -551,16 +1397,211 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
     }
 
     /**
-     * Exception class for returning values.
+     * An implementation of a binary expression, specialized to the operand
+     * types it has seen, which evaluates it in the given interpreter.
      */
-    private static class Return extends RuntimeException {
+    interface Node {
+
+        Environment.PlcObject execute(Interpreter interpreter, Ast.Expression.Binary ast);
 
-        private final Environment.PlcObject value;
+    }
 
-        private Return(Environment.PlcObject value) {
-            this.value = value;
+    /**
+     * The implementation of a function defined in the source, which puts the
+     * arguments of each entry point straight into a new frame for
+     * {@link #call(Tier, Environment.PlcObject[])}.
+     */
+    private final class Body extends Environment.Function.Invoker {
+
+        private final Tier counters;
+
+        private Body(Tier counters) {
+            this.counters = counters;
+        }
+
+        @Override
+        public Environment.PlcObject invoke(List<Environment.PlcObject> arguments) {
+            Environment.PlcObject[] frame = frame(arguments.size());
+            for (int i = 0; i < arguments.size(); i++)
+            {
+                frame[i] = arguments.get(i);
+            }
+            return call(counters, frame);
         }
 
+        @Override
+        public Environment.PlcObject invoke() {
+            return call(counters, frame(0));
+        }
+
+        @Override
+        public Environment.PlcObject invoke(Environment.PlcObject first) {
+            Environment.PlcObject[] frame = frame(1);
+            frame[0] = first;
+            return call(counters, frame);
+        }
+
+        @Override
+        public Environment.PlcObject invoke(Environment.PlcObject first, Environment.PlcObject second) {
+            Environment.PlcObject[] frame = frame(2);
+            frame[0] = first;
+            frame[1] = second;
+            return call(counters, frame);
+        }
+
+        @Override
+        public Environment.PlcObject invoke(Environment.PlcObject first, Environment.PlcObject second, Environment.PlcObject third) {
+            Environment.PlcObject[] frame = frame(3);
+            frame[0] = first;
+            frame[1] = second;
+            frame[2] = third;
+            return call(counters, frame);
+        }
+
+        @Override
+        public Environment.PlcObject invoke(Environment.PlcObject first, Environment.PlcObject second, Environment.PlcObject third, Environment.PlcObject fourth) {
+            Environment.PlcObject[] frame = frame(4);
+            frame[0] = first;
+            frame[1] = second;
+            frame[2] = third;
+            frame[3] = fourth;
+            return call(counters, frame);
+        }
+
+        @Override
+        public Environment.PlcObject invoke(Environment.PlcObject[] arguments) {
+            Environment.PlcObject[] frame = frame(arguments.length);
+            System.arraycopy(arguments, 0, frame, 0, arguments.length);
+            return call(counters, frame);
+        }
+
+        /**
+         * Returns an array for the given number of arguments, sized for the
+         * frame if the function was resolved.
+         */
+        private Environment.PlcObject[] frame(int arity) {
+            return new Environment.PlcObject[Math.max(arity, counters.ast.getFrameSize())];
+        }
+
+    }
+
+    /**
+     * The execution counts of a function, and its compiled form once it is
+     * hot.
+     */
+    private static final class Tier {
+
+        private final Ast.Function ast;
+        private final Scope scope;
+        private final String name;
+        private int invocations = 0;
+        private int backEdges = 0;
+        private boolean compiling = false;
+        private Future<Bytecode.Program> program = null;
+        private VirtualMachine machine = null;
+        private Profiler profiler = null;
+        private long[] calls = null;
+
+        private Tier(Ast.Function ast, Scope scope) {
+            this.ast = ast;
+            this.scope = scope;
+            this.name = ast.getName() + "/" + ast.getParameters().size();
+        }
+
+    }
+
+    /**
+     * The remembered results of calls of pure functions, in order of use.
+     */
+    private static final class Memo extends LinkedHashMap<Call, Environment.PlcObject> {
+
+        private static final long serialVersionUID = 1L;
+
+        private int capacity = 1024;
+        private long hits = 0;
+        private long misses = 0;
+
+        private Memo() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Call, Environment.PlcObject> eldest) {
+            return size() > capacity;
+        }
+
+    }
+
+    /**
+     * A call of a function with the given argument values, where functions
+     * are compared by identity.
+     */
+    private static final class Call {
+
+        private final Ast.Function function;
+        private final Object[] values;
+        private final int hash;
+
+        private Call(Ast.Function function, Object[] values) {
+            this.function = function;
+            this.values = values;
+            this.hash = 31 * System.identityHashCode(function) + Arrays.hashCode(values);
+        }
+
+        /**
+         * Returns the call with the given arguments, or null if any of them
+         * holds a list.
+         */
+        private static Call of(Ast.Function function, Environment.PlcObject[] arguments) {
+            Object[] values = new Object[function.getParameters().size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = key(arguments[i]);
+                if (values[i] instanceof List) {
+                    return null;
+                }
+            }
+            return new Call(function, values);
+        }
+
+        /**
+         * Returns the value of an argument as a key, where an Integer that
+         * fits in a {@code long} is a {@link Long} whether or not it is held
+         * as one, so that equal Integers are equal keys.
+         */
+        private static Object key(Environment.PlcObject argument) {
+            if (argument.isLong()) {
+                return argument.getLong();
+            }
+            Object value = argument.getValue();
+            if (value instanceof BigInteger && ((BigInteger) value).bitLength() < Long.SIZE) {
+                return ((BigInteger) value).longValue();
+            }
+            return value;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Call &&
+                    function == ((Call) obj).function &&
+                    Arrays.equals(values, ((Call) obj).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+    }
+
+    /**
+     * The cases of a switch whose case values are all constant, grouped by
+     * value in source order, along with its default cases.
+     */
+    private static final class JumpTable {
+
+        private final Map<Object, List<Ast.Statement.Case>> cases = new HashMap<>();
+        private final List<Ast.Statement.Case> defaults = new ArrayList<>();
+
     }
 
 }
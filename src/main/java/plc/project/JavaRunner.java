@@ -0,0 +1,166 @@
+package plc.project;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Runs the Java source produced by the {@link Generator} within the running
+ * JVM. The source is compiled in memory by the system Java compiler, and the
+ * classes are loaded by a class loader of their own, so nothing is written to
+ * disk and separate runs do not share any state.
+ */
+public final class JavaRunner {
+
+    /**
+     * The name of the class declared by the generated source.
+     */
+    public static final String CLASS_NAME = "Main";
+
+    private JavaRunner() {}
+
+    /**
+     * Optimizes, generates, compiles and runs an analyzed source, returning
+     * the result of its {@code main} function as Java boxes it: an
+     * {@link Integer} for an Integer, a {@link Double} for a Decimal, and so
+     * on, or null for Nil.
+     *
+     * The generated {@code main(String[])} method exits the JVM, so the
+     * instance method it delegates to is invoked instead.
+     */
+    public static Object run(Ast.Source ast) {
+        return run(ast, Output.getDefault());
+    }
+
+    /**
+     * Generates, compiles and runs an analyzed source as above, printing to
+     * the given output, which is flushed once it has run.
+     */
+    public static Object run(Ast.Source ast, Output output) {
+        StringWriter writer = new StringWriter();
+        new Generator(new PrintWriter(writer), true).visit(new Optimizer().visit(ast));
+        Class<?> main = compile(writer.toString());
+        try {
+            Field field = main.getDeclaredField("$output");
+            field.setAccessible(true);
+            field.set(null, (Consumer<Object>) output::println);
+            Object instance = main.getDeclaredConstructor().newInstance();
+            Method method = main.getDeclaredMethod("main");
+            method.setAccessible(true);
+            return method.invoke(instance);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException("The generated class does not declare main().", e);
+        } finally {
+            output.flush();
+        }
+    }
+
+    /**
+     * Compiles Java source declaring the class {@link #CLASS_NAME} and loads
+     * it in a new class loader, throwing a {@link RuntimeException} with the
+     * compiler's diagnostics if it does not compile.
+     */
+    public static Class<?> compile(String source) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("No Java compiler is available, which requires running on a JDK.");
+        }
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        MemoryFileManager files = new MemoryFileManager(compiler.getStandardFileManager(diagnostics, null, null));
+        JavaFileObject input = new SimpleJavaFileObject(URI.create("string:///" + CLASS_NAME + ".java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+        boolean success = compiler.getTask(null, files, diagnostics, Arrays.asList("-proc:none"), null, Arrays.asList(input)).call();
+        if (!success) {
+            StringBuilder message = new StringBuilder("The generated source does not compile:");
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                message.append(System.lineSeparator()).append(diagnostic.getLineNumber()).append(": ").append(diagnostic.getMessage(null));
+            }
+            throw new RuntimeException(message.toString());
+        }
+        try {
+            return new MemoryClassLoader(files.classes).loadClass(CLASS_NAME);
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException("The generated source does not declare " + CLASS_NAME + ".", e);
+        }
+    }
+
+    /**
+     * Keeps the compiled classes in memory, by binary name.
+     */
+    private static final class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+        private final Map<String, ByteArrayOutputStream> classes = new HashMap<>();
+
+        private MemoryFileManager(StandardJavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(JavaFileManager.Location location, String className, JavaFileObject.Kind kind, FileObject sibling) {
+            return new SimpleJavaFileObject(URI.create("bytes:///" + className.replace('.', '/') + kind.extension), kind) {
+                @Override
+                public OutputStream openOutputStream() {
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    classes.put(className, bytes);
+                    return bytes;
+                }
+            };
+        }
+
+    }
+
+    /**
+     * Defines the compiled classes. Its parent only sees the platform
+     * classes, so the generated code cannot reach the classes of this
+     * project.
+     */
+    private static final class MemoryClassLoader extends ClassLoader {
+
+        private final Map<String, ByteArrayOutputStream> classes;
+
+        private MemoryClassLoader(Map<String, ByteArrayOutputStream> classes) {
+            super(ClassLoader.getSystemClassLoader().getParent());
+            this.classes = classes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            ByteArrayOutputStream bytes = classes.get(name);
+            if (bytes == null) {
+                throw new ClassNotFoundException(name);
+            }
+            byte[] code = bytes.toByteArray();
+            return defineClass(name, code, 0, code.length);
+        }
+
+    }
+
+}
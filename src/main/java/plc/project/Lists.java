@@ -0,0 +1,281 @@
+package plc.project;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+
+/**
+ * The builtins that apply a function of the source, given by its name, to
+ * the elements of a list:
+ *
+ *  - {@code map(list, "f")} returns a list of {@code f(element)},
+ *  - {@code filter(list, "f")} returns a list of the elements for which
+ *    {@code f(element)} is {@code TRUE},
+ *  - {@code reduce(list, "f", initial)} returns
+ *    {@code f(...f(f(initial, first), second)..., last)},
+ *  - {@code sort(list)} returns a list of the elements in their natural
+ *    order, and {@code sort(list, "f")} in the order of {@code f(left, right)},
+ *    an {@code Integer} that is negative, zero or positive as for a
+ *    {@link Comparator}.
+ *
+ * The function is looked up by the {@link Interpreter} running on the calling
+ * thread. If it is pure (see {@link Ast.Function#isPure()}) and the list is
+ * longer than {@link #CUTOFF}, the list is split in halves until the parts are
+ * no longer than it, and the parts run on the common {@link ForkJoinPool}, each
+ * thread calling the function in its own fork of the interpreter, which is
+ * dropped once the builtin returns. Otherwise, the list is processed on the
+ * calling thread. As with {@link java.util.stream.Stream#reduce}, a pure
+ * function given to {@code reduce} must be associative, and accept its own
+ * results as either argument, for the parts to combine to the same result;
+ * any other function is folded from the left as above.
+ *
+ * These builtins are only run by the {@link Interpreter}: the
+ * {@link Generator} and the {@link ClassGenerator} reject calls of them (see
+ * {@link #isBuiltin(String, int)}), as compiled code has no functions to look
+ * up by name.
+ */
+final class Lists {
+
+    /**
+     * The length up to which a list, or a part of one, is processed on a
+     * single thread.
+     */
+    static final int CUTOFF = 1024;
+
+    private static final Scope BUILTINS = new Scope(null);
+
+    static {
+        define(BUILTINS);
+    }
+
+    private Lists() {
+    }
+
+    /**
+     * Returns true if the named function of the given arity is one of these
+     * builtins.
+     */
+    static boolean isBuiltin(String name, int arity) {
+        return BUILTINS.getFunction(name, arity) != null;
+    }
+
+    static void define(Scope scope) {
+        scope.defineFunction("map", (list, name) -> {
+            Callee callee = new Callee(name, 1);
+            return Environment.create(split(list(list), callee, (values, from, to) -> {
+                List<Object> mapped = new ArrayList<>(to - from);
+                for (int i = from; i < to; i++) {
+                    mapped.add(callee.apply(element(values, i)).getValue());
+                }
+                return mapped;
+            }, Lists::concatenate));
+        });
+
+        scope.defineFunction("filter", (list, name) -> {
+            Callee callee = new Callee(name, 1);
+            return Environment.create(split(list(list), callee, (values, from, to) -> {
+                List<Object> filtered = new ArrayList<>();
+                for (int i = from; i < to; i++) {
+                    if (Interpreter.requireType(Boolean.class, callee.apply(element(values, i)))) {
+                        filtered.add(values.get(i));
+                    }
+                }
+                return filtered;
+            }, Lists::concatenate));
+        });
+
+        scope.defineFunction("reduce", (list, name, initial) -> {
+            Callee callee = new Callee(name, 2);
+            List<Object> values = list(list);
+            if (!isSplit(values, callee)) {
+                Environment.PlcObject result = initial;
+                for (int i = 0; i < values.size(); i++) {
+                    result = callee.apply(result, element(values, i));
+                }
+                return result;
+            }
+            Environment.PlcObject reduced = split(values, callee, (elements, from, to) -> {
+                Environment.PlcObject result = element(elements, from);
+                for (int i = from + 1; i < to; i++) {
+                    result = callee.apply(result, element(elements, i));
+                }
+                return result;
+            }, callee::apply);
+            return callee.apply(initial, reduced);
+        });
+
+        scope.defineFunction("sort", list -> Environment.create(sort(list(list), null, Lists::compare)));
+
+        scope.defineFunction("sort", (list, name) -> {
+            Callee callee = new Callee(name, 2);
+            return Environment.create(sort(list(list), callee, (left, right) ->
+                    Interpreter.requireType(BigInteger.class, callee.apply(Environment.create(left), Environment.create(right))).signum()));
+        });
+    }
+
+    /**
+     * Sorts the list by merging its sorted parts.
+     */
+    private static List<Object> sort(List<Object> list, Callee callee, Comparator<Object> comparator) {
+        return split(list, callee, (values, from, to) -> {
+            Object[] sorted = values.subList(from, to).toArray();
+            Arrays.sort(sorted, comparator);
+            return Arrays.asList(sorted);
+        }, (left, right) -> {
+            List<Object> merged = new ArrayList<>(left.size() + right.size());
+            int i = 0;
+            int j = 0;
+            while (i < left.size() && j < right.size()) {
+                merged.add(comparator.compare(left.get(i), right.get(j)) <= 0 ? left.get(i++) : right.get(j++));
+            }
+            merged.addAll(left.subList(i, left.size()));
+            merged.addAll(right.subList(j, right.size()));
+            return merged;
+        });
+    }
+
+    /**
+     * Processes the list in parts, combining their results in order. The
+     * callee, which is null if there is none, decides whether the parts may run
+     * in parallel.
+     */
+    private static <T> T split(List<Object> list, Callee callee, Part<T> part, BinaryOperator<T> combiner) {
+        if (!isSplit(list, callee)) {
+            return part.process(list, 0, list.size());
+        }
+        return ForkJoinPool.commonPool().invoke(new Split<>(list, 0, list.size(), part, combiner));
+    }
+
+    /**
+     * Returns true if the list is processed in parts that may run in
+     * parallel.
+     */
+    private static boolean isSplit(List<Object> list, Callee callee) {
+        return list.size() > CUTOFF && (callee == null || callee.isParallel());
+    }
+
+    private static List<Object> concatenate(List<Object> left, List<Object> right) {
+        left.addAll(right);
+        return left;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compare(Object left, Object right) {
+        if (!(left instanceof Comparable) || left.getClass() != right.getClass()) {
+            throw new RuntimeException("Cannot compare " + left.getClass().getName() + " to " + right.getClass().getName() + ".");
+        }
+        return ((Comparable<Object>) left).compareTo(right);
+    }
+
+    /**
+     * Returns an element of the list, see {@link TypedList#getObject(int)}.
+     */
+    private static Environment.PlcObject element(List<Object> list, int index) {
+        return list instanceof TypedList ? ((TypedList) list).getObject(index) : Environment.create(list.get(index));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> list(Environment.PlcObject object) {
+        return Interpreter.requireType(List.class, object);
+    }
+
+    /**
+     * Processes the elements of a list from one index up to another.
+     */
+    private interface Part<T> {
+
+        T process(List<Object> list, int from, int to);
+
+    }
+
+    private static final class Split<T> extends RecursiveTask<T> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<Object> list;
+        private final int from;
+        private final int to;
+        private final Part<T> part;
+        private final BinaryOperator<T> combiner;
+
+        private Split(List<Object> list, int from, int to, Part<T> part, BinaryOperator<T> combiner) {
+            this.list = list;
+            this.from = from;
+            this.to = to;
+            this.part = part;
+            this.combiner = combiner;
+        }
+
+        @Override
+        protected T compute() {
+            if (to - from <= CUTOFF) {
+                return part.process(list, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            Split<T> left = new Split<>(list, from, middle, part, combiner);
+            left.fork();
+            T right = new Split<>(list, middle, to, part, combiner).compute();
+            return combiner.apply(left.join(), right);
+        }
+
+    }
+
+    /**
+     * A function of the source called by a builtin. The calling thread calls
+     * it in the interpreter that called the builtin, which is waiting for the
+     * builtin to return, and every other thread in a fork of that interpreter
+     * of its own. The forks are held by the callee, so that none outlives the
+     * call in the threads of the pool.
+     */
+    private static final class Callee {
+
+        private final Thread owner = Thread.currentThread();
+        private final Interpreter interpreter;
+        private final String name;
+        private final int arity;
+        private final Environment.Function function;
+        private final boolean parallel;
+        private final Map<Thread, Fork> forks = new ConcurrentHashMap<>();
+
+        private Callee(Environment.PlcObject name, int arity) {
+            this.interpreter = Interpreter.running();
+            this.name = Interpreter.requireType(String.class, name);
+            this.arity = arity;
+            this.function = interpreter.getScope().lookupFunction(this.name, arity);
+            this.parallel = interpreter.isPure(this.name, arity);
+        }
+
+        private boolean isParallel() {
+            return parallel;
+        }
+
+        private Environment.PlcObject apply(Environment.PlcObject... arguments) {
+            if (Thread.currentThread() == owner) {
+                return function.invoke(arguments);
+            }
+            Fork fork = forks.computeIfAbsent(Thread.currentThread(), thread -> new Fork(interpreter.fork(), name, arity));
+            return fork.interpreter.enter(() -> fork.function.invoke(arguments));
+        }
+
+    }
+
+    private static final class Fork {
+
+        private final Interpreter interpreter;
+        private final Environment.Function function;
+
+        private Fork(Interpreter interpreter, String name, int arity) {
+            this.interpreter = interpreter;
+            this.function = interpreter.getScope().lookupFunction(name, arity);
+        }
+
+    }
+
+}
@@ -0,0 +1,724 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Rewrites an analyzed AST into an equivalent one that is cheaper to execute.
+ * The optimizer runs after the {@link Analyzer} and before the
+ * {@link Resolver}, which gives the temporaries it declares their slots:
+ * {@link Engine} and {@link JavaRunner} run it on the sources they are given.
+ *
+ * Only expressions whose types were set by the analyzer are considered, so an
+ * AST that was never analyzed is returned unchanged. Visiting a node returns
+ * the rewritten node, which is the original node if nothing changed.
+ */
+public final class Optimizer implements Ast.Visitor<Ast> {
+
+    private Effects effects;
+    private Set<String> uninitialized = new HashSet<>();
+    private List<Ast.Statement> hoisted = new ArrayList<>();
+    private int temporaries = 0;
+
+    @Override
+    public Ast.Source visit(Ast.Source ast) {
+        effects = new Effects(ast);
+        for (Ast.Global global : ast.getGlobals()) {
+            visit(global);
+        }
+        Set<String> globals = uninitialized;
+        List<Ast.Function> functions = new ArrayList<>();
+        boolean changed = false;
+        for (Ast.Function function : ast.getFunctions()) {
+            uninitialized = new HashSet<>(globals);
+            Ast.Function optimized = visit(function);
+            changed |= optimized != function;
+            functions.add(optimized);
+        }
+        uninitialized = globals;
+        return changed ? new Ast.Source(ast.getGlobals(), functions) : ast;
+    }
+
+    @Override
+    public Ast.Global visit(Ast.Global ast) {
+        if (!ast.getValue().isPresent()) {
+            uninitialized.add(ast.getName());
+        }
+        return ast;
+    }
+
+    @Override
+    public Ast.Function visit(Ast.Function ast) {
+        List<Ast.Statement> statements = block(ast.getStatements());
+        if (statements == ast.getStatements()) {
+            return ast;
+        }
+        Ast.Function function = new Ast.Function(ast.getName(), ast.getParameters(), ast.getParameterTypeNames(), ast.getReturnTypeName(), statements);
+        copy(ast, function);
+        return function;
+    }
+
+    @Override
+    public Ast.Statement visit(Ast.Statement.Expression ast) {
+        return ast;
+    }
+
+    @Override
+    public Ast.Statement visit(Ast.Statement.Declaration ast) {
+        if (!ast.getValue().isPresent()) {
+            uninitialized.add(ast.getName());
+        }
+        return ast;
+    }
+
+    @Override
+    public Ast.Statement visit(Ast.Statement.Assignment ast) {
+        return ast;
+    }
+
+    @Override
+    public Ast.Statement visit(Ast.Statement.If ast) {
+        List<Ast.Statement> thenStatements = block(ast.getThenStatements());
+        List<Ast.Statement> elseStatements = block(ast.getElseStatements());
+        if (thenStatements == ast.getThenStatements() && elseStatements == ast.getElseStatements()) {
+            return ast;
+        }
+        return new Ast.Statement.If(ast.getCondition(), thenStatements, elseStatements);
+    }
+
+    @Override
+    public Ast.Statement visit(Ast.Statement.Switch ast) {
+        List<Ast.Statement.Case> cases = new ArrayList<>();
+        boolean changed = false;
+        for (Ast.Statement.Case c : ast.getCases()) {
+            Ast.Statement.Case optimized = visit(c);
+            changed |= optimized != c;
+            cases.add(optimized);
+        }
+        return changed ? new Ast.Statement.Switch(ast.getCondition(), cases) : ast;
+    }
+
+    @Override
+    public Ast.Statement.Case visit(Ast.Statement.Case ast) {
+        List<Ast.Statement> statements = block(ast.getStatements());
+        return statements == ast.getStatements() ? ast : new Ast.Statement.Case(ast.getValue(), statements);
+    }
+
+    /**
+     * Hoists the loop-invariant expressions of the loop into temporaries
+     * declared before it. Nested loops are optimized first, so an expression
+     * that is invariant in several enclosing loops moves outwards one loop at
+     * a time.
+     *
+     * An expression is only hoisted when it is pure and cannot fail, since it
+     * is now evaluated even if the loop body never runs. Its variables must
+     * not be declared or assigned anywhere in the loop, including by any
+     * function the loop calls, according to the {@link Effects} of the source.
+     */
+    @Override
+    public Ast.Statement visit(Ast.Statement.While ast) {
+        List<Ast.Statement> statements = block(ast.getStatements());
+        List<Ast> loop = new ArrayList<>(statements);
+        loop.add(ast.getCondition());
+        Set<String> variant = effects != null ? effects.getWrites(loop) : null;
+        if (variant == null) {
+            return statements == ast.getStatements() ? ast : new Ast.Statement.While(ast.getCondition(), statements);
+        }
+        List<Ast.Statement.Declaration> invariants = new ArrayList<>();
+        Function<Ast.Expression, Ast.Expression> replacement = expression -> {
+            if (!isCompound(expression) || !isPure(expression, variant, true)) {
+                return null;
+            }
+            for (Ast.Statement.Declaration declaration : invariants) {
+                if (declaration.getValue().get().equals(expression)) {
+                    return access(declaration);
+                }
+            }
+            Ast.Statement.Declaration declaration = declare(expression);
+            invariants.add(declaration);
+            return access(declaration);
+        };
+        Ast.Expression condition = rewrite(ast.getCondition(), replacement);
+        List<Ast.Statement> body = rewrite(statements, replacement);
+        if (invariants.isEmpty()) {
+            return statements == ast.getStatements() ? ast : new Ast.Statement.While(ast.getCondition(), statements);
+        }
+        hoisted.addAll(invariants);
+        return new Ast.Statement.While(condition, body);
+    }
+
+    @Override
+    public Ast.Statement visit(Ast.Statement.Return ast) {
+        return ast;
+    }
+
+    @Override
+    public Ast.Expression visit(Ast.Expression.Literal ast) {
+        return ast;
+    }
+
+    @Override
+    public Ast.Expression visit(Ast.Expression.Group ast) {
+        return ast;
+    }
+
+    /**
+     * Reduces a power with a small constant exponent to multiplications, see
+     * {@link Power#reduce(Ast.Expression.Binary)}.
+     */
+    @Override
+    public Ast.Expression visit(Ast.Expression.Binary ast) {
+        Ast.Expression reduced = Power.reduce(ast);
+        return reduced != null ? reduced : ast;
+    }
+
+    @Override
+    public Ast.Expression visit(Ast.Expression.Access ast) {
+        return ast;
+    }
+
+    @Override
+    public Ast.Expression visit(Ast.Expression.Function ast) {
+        return ast;
+    }
+
+    @Override
+    public Ast.Expression visit(Ast.Expression.PlcList ast) {
+        return ast;
+    }
+
+    /**
+     * Optimizes each statement of a block, placing any declarations hoisted
+     * out of a statement directly before it. The expressions a statement
+     * evaluates are simplified before the statement itself is optimized.
+     * Returns the original list if no statement changed.
+     */
+    private List<Ast.Statement> block(List<Ast.Statement> statements) {
+        List<Ast.Statement> outer = hoisted;
+        List<Ast.Statement> result = new ArrayList<>();
+        boolean changed = false;
+        try {
+            for (Ast.Statement statement : statements) {
+                hoisted = new ArrayList<>();
+                Ast.Statement optimized = (Ast.Statement) visit(rewrite(statement, this::simplify, false));
+                changed |= optimized != statement || !hoisted.isEmpty();
+                result.addAll(hoisted);
+                result.add(optimized);
+            }
+        } finally {
+            hoisted = outer;
+        }
+        List<Ast.Statement> eliminated = eliminate(result);
+        return changed || eliminated != result ? eliminated : statements;
+    }
+
+    /**
+     * Returns the optimized form of an expression, or {@code null} if it is
+     * unchanged, for use as the replacement of a rewrite.
+     */
+    private Ast.Expression simplify(Ast.Expression ast) {
+        Ast.Expression simplified = (Ast.Expression) visit(ast);
+        return simplified != ast ? simplified : null;
+    }
+
+    /**
+     * Common subexpression elimination within a block. Each pure expression
+     * that is evaluated by two or more statements of the block, with none of
+     * its variables written in between, is evaluated once into a temporary
+     * declared before the first of them.
+     *
+     * Only the expressions a statement evaluates itself are considered, so a
+     * nested block or a loop condition (which is evaluated again after the
+     * body) forms a separate block. Since the temporary is evaluated before
+     * the rest of the statement, an expression that may fail is only shared
+     * if it is always evaluated and the statement calls no functions, and no
+     * expression whose variables a call in the statement may write is shared.
+     */
+    private List<Ast.Statement> eliminate(List<Ast.Statement> statements) {
+        if (effects == null) {
+            return statements;
+        }
+        List<Subexpression> available = new ArrayList<>();
+        List<Subexpression> subexpressions = new ArrayList<>();
+        Map<Ast.Expression, Subexpression> occurrences = new IdentityHashMap<>();
+        for (int i = 0; i < statements.size(); i++) {
+            Ast.Statement statement = statements.get(i);
+            List<Ast.Expression> expressions = expressions(statement);
+            Set<String> written = effects.getWrites(expressions);
+            if (written != null) {
+                boolean calls = calls(expressions);
+                boolean mutates = effects.mutatesLists(expressions);
+                for (Ast.Expression expression : expressions) {
+                    scan(expression, i, false, calls, mutates, written, available, subexpressions, occurrences);
+                }
+            }
+            Set<String> writes = effects.getWrites(Collections.singletonList(statement));
+            boolean mutates = effects.mutatesLists(Collections.singletonList(statement));
+            available.removeIf(subexpression -> writes == null
+                    || !Collections.disjoint(subexpression.reads, writes)
+                    || mutates && subexpression.indexed);
+        }
+        List<Ast.Statement.Declaration> declarations = new ArrayList<>();
+        Function<Ast.Expression, Ast.Expression> replacement = expression -> {
+            Subexpression subexpression = occurrences.get(expression);
+            return subexpression != null && subexpression.temporary != null ? access(subexpression.temporary) : null;
+        };
+        for (Subexpression subexpression : subexpressions) {
+            if (subexpression.count > 1) {
+                Ast.Expression expression = subexpression.expression;
+                subexpression.temporary = declare(rewrite(expression, child -> child == expression ? null : replacement.apply(child)));
+            }
+        }
+        List<Ast.Statement> result = new ArrayList<>();
+        boolean changed = false;
+        for (int i = 0; i < statements.size(); i++) {
+            for (Subexpression subexpression : subexpressions) {
+                if (subexpression.temporary != null && subexpression.statement == i) {
+                    result.add(subexpression.temporary);
+                    changed = true;
+                }
+            }
+            result.add(rewrite(statements.get(i), replacement, false));
+        }
+        return changed ? result : statements;
+    }
+
+    /**
+     * Records the candidate subexpressions of an expression evaluated by the
+     * {@code index}th statement, matching each against the subexpressions that
+     * are still available. Children are recorded before their parent, so the
+     * temporaries of shared children are declared first.
+     */
+    private void scan(Ast.Expression ast, int index, boolean conditional, boolean calls, boolean mutates, Set<String> written,
+                      List<Subexpression> available, List<Subexpression> subexpressions, Map<Ast.Expression, Subexpression> occurrences) {
+        boolean candidate = isCompound(ast) && isPure(ast, written, conditional || calls) && !(mutates && isIndexed(ast));
+        if (candidate) {
+            for (Subexpression subexpression : available) {
+                if (subexpression.expression.equals(ast)) {
+                    subexpression.count++;
+                    occurrences.put(ast, subexpression);
+                    return;
+                }
+            }
+        }
+        if (ast instanceof Ast.Expression.Group) {
+            scan(((Ast.Expression.Group) ast).getExpression(), index, conditional, calls, mutates, written, available, subexpressions, occurrences);
+        } else if (ast instanceof Ast.Expression.Binary) {
+            Ast.Expression.Binary binary = (Ast.Expression.Binary) ast;
+            boolean shortCircuit = binary.getOperator().equals("&&") || binary.getOperator().equals("||");
+            scan(binary.getLeft(), index, conditional, calls, mutates, written, available, subexpressions, occurrences);
+            scan(binary.getRight(), index, conditional || shortCircuit, calls, mutates, written, available, subexpressions, occurrences);
+        } else if (ast instanceof Ast.Expression.Access && ((Ast.Expression.Access) ast).getOffset().isPresent()) {
+            scan(((Ast.Expression.Access) ast).getOffset().get(), index, conditional, calls, mutates, written, available, subexpressions, occurrences);
+        } else if (ast instanceof Ast.Expression.Function) {
+            for (Ast.Expression argument : ((Ast.Expression.Function) ast).getArguments()) {
+                scan(argument, index, conditional, calls, mutates, written, available, subexpressions, occurrences);
+            }
+        } else if (ast instanceof Ast.Expression.PlcList) {
+            for (Ast.Expression value : ((Ast.Expression.PlcList) ast).getValues()) {
+                scan(value, index, conditional, calls, mutates, written, available, subexpressions, occurrences);
+            }
+        }
+        if (candidate) {
+            Subexpression subexpression = new Subexpression(ast, index);
+            available.add(subexpression);
+            subexpressions.add(subexpression);
+            occurrences.put(ast, subexpression);
+        }
+    }
+
+    /**
+     * Returns the expressions a statement evaluates itself, in order, without
+     * those of its nested blocks.
+     */
+    private static List<Ast.Expression> expressions(Ast.Statement ast) {
+        List<Ast.Expression> expressions = new ArrayList<>();
+        if (ast instanceof Ast.Statement.Expression) {
+            expressions.add(((Ast.Statement.Expression) ast).getExpression());
+        } else if (ast instanceof Ast.Statement.Declaration) {
+            ((Ast.Statement.Declaration) ast).getValue().ifPresent(expressions::add);
+        } else if (ast instanceof Ast.Statement.Assignment) {
+            Ast.Statement.Assignment assignment = (Ast.Statement.Assignment) ast;
+            if (assignment.getReceiver() instanceof Ast.Expression.Access) {
+                ((Ast.Expression.Access) assignment.getReceiver()).getOffset().ifPresent(expressions::add);
+            }
+            expressions.add(assignment.getValue());
+        } else if (ast instanceof Ast.Statement.If) {
+            expressions.add(((Ast.Statement.If) ast).getCondition());
+        } else if (ast instanceof Ast.Statement.Switch) {
+            expressions.add(((Ast.Statement.Switch) ast).getCondition());
+        } else if (ast instanceof Ast.Statement.Return) {
+            expressions.add(((Ast.Statement.Return) ast).getValue());
+        }
+        return expressions;
+    }
+
+    /**
+     * An expression shared by common subexpression elimination, along with
+     * the index of the first statement evaluating it.
+     */
+    private static final class Subexpression {
+
+        private final Ast.Expression expression;
+        private final int statement;
+        private final Set<String> reads = new HashSet<>();
+        private final boolean indexed;
+        private int count = 1;
+        private Ast.Statement.Declaration temporary;
+
+        private Subexpression(Ast.Expression expression, int statement) {
+            this.expression = expression;
+            this.statement = statement;
+            this.indexed = isIndexed(expression);
+            reads(expression, reads);
+        }
+
+    }
+
+    /**
+     * Rewrites the expressions evaluated by a statement, and when
+     * {@code nested} is set also those of the statements in its blocks.
+     */
+    private Ast.Statement rewrite(Ast.Statement ast, Function<Ast.Expression, Ast.Expression> replacement, boolean nested) {
+        if (ast instanceof Ast.Statement.Expression) {
+            Ast.Expression expression = rewrite(((Ast.Statement.Expression) ast).getExpression(), replacement);
+            return expression == ((Ast.Statement.Expression) ast).getExpression() ? ast : new Ast.Statement.Expression(expression);
+        } else if (ast instanceof Ast.Statement.Declaration) {
+            Ast.Statement.Declaration declaration = (Ast.Statement.Declaration) ast;
+            if (!declaration.getValue().isPresent()) {
+                return ast;
+            }
+            Ast.Expression value = rewrite(declaration.getValue().get(), replacement);
+            if (value == declaration.getValue().get()) {
+                return ast;
+            }
+            Ast.Statement.Declaration result = new Ast.Statement.Declaration(declaration.getName(), declaration.getTypeName(), Optional.of(value));
+            copy(declaration, result);
+            return result;
+        } else if (ast instanceof Ast.Statement.Assignment) {
+            Ast.Statement.Assignment assignment = (Ast.Statement.Assignment) ast;
+            Ast.Expression receiver = assignment.getReceiver();
+            if (receiver instanceof Ast.Expression.Access && ((Ast.Expression.Access) receiver).getOffset().isPresent()) {
+                Ast.Expression.Access access = (Ast.Expression.Access) receiver;
+                Ast.Expression offset = rewrite(access.getOffset().get(), replacement);
+                if (offset != access.getOffset().get()) {
+                    receiver = new Ast.Expression.Access(Optional.of(offset), access.getName());
+                    copy(access, receiver);
+                }
+            }
+            Ast.Expression value = rewrite(assignment.getValue(), replacement);
+            return receiver == assignment.getReceiver() && value == assignment.getValue() ? ast : new Ast.Statement.Assignment(receiver, value);
+        } else if (ast instanceof Ast.Statement.If) {
+            Ast.Statement.If statement = (Ast.Statement.If) ast;
+            Ast.Expression condition = rewrite(statement.getCondition(), replacement);
+            List<Ast.Statement> thenStatements = nested ? rewrite(statement.getThenStatements(), replacement) : statement.getThenStatements();
+            List<Ast.Statement> elseStatements = nested ? rewrite(statement.getElseStatements(), replacement) : statement.getElseStatements();
+            if (condition == statement.getCondition() && thenStatements == statement.getThenStatements() && elseStatements == statement.getElseStatements()) {
+                return ast;
+            }
+            return new Ast.Statement.If(condition, thenStatements, elseStatements);
+        } else if (ast instanceof Ast.Statement.Switch) {
+            Ast.Statement.Switch statement = (Ast.Statement.Switch) ast;
+            Ast.Expression condition = rewrite(statement.getCondition(), replacement);
+            List<Ast.Statement.Case> cases = new ArrayList<>();
+            boolean changed = condition != statement.getCondition();
+            for (Ast.Statement.Case c : statement.getCases()) {
+                List<Ast.Statement> statements = nested ? rewrite(c.getStatements(), replacement) : c.getStatements();
+                changed |= statements != c.getStatements();
+                cases.add(statements == c.getStatements() ? c : new Ast.Statement.Case(c.getValue(), statements));
+            }
+            return changed ? new Ast.Statement.Switch(condition, cases) : ast;
+        } else if (ast instanceof Ast.Statement.While) {
+            Ast.Statement.While statement = (Ast.Statement.While) ast;
+            Ast.Expression condition = rewrite(statement.getCondition(), replacement);
+            List<Ast.Statement> statements = nested ? rewrite(statement.getStatements(), replacement) : statement.getStatements();
+            return condition == statement.getCondition() && statements == statement.getStatements() ? ast : new Ast.Statement.While(condition, statements);
+        } else if (ast instanceof Ast.Statement.Return) {
+            Ast.Expression value = rewrite(((Ast.Statement.Return) ast).getValue(), replacement);
+            return value == ((Ast.Statement.Return) ast).getValue() ? ast : new Ast.Statement.Return(value);
+        }
+        return ast;
+    }
+
+    private List<Ast.Statement> rewrite(List<Ast.Statement> statements, Function<Ast.Expression, Ast.Expression> replacement) {
+        List<Ast.Statement> result = new ArrayList<>();
+        boolean changed = false;
+        for (Ast.Statement statement : statements) {
+            Ast.Statement optimized = rewrite(statement, replacement, true);
+            changed |= optimized != statement;
+            result.add(optimized);
+        }
+        return changed ? result : statements;
+    }
+
+    /**
+     * Rewrites an expression, replacing each outermost subexpression for which
+     * {@code replacement} returns a non-null value.
+     */
+    private Ast.Expression rewrite(Ast.Expression ast, Function<Ast.Expression, Ast.Expression> replacement) {
+        Ast.Expression replaced = replacement.apply(ast);
+        if (replaced != null) {
+            return replaced;
+        } else if (ast instanceof Ast.Expression.Group) {
+            Ast.Expression expression = rewrite(((Ast.Expression.Group) ast).getExpression(), replacement);
+            if (expression == ((Ast.Expression.Group) ast).getExpression()) {
+                return ast;
+            }
+            Ast.Expression.Group group = new Ast.Expression.Group(expression);
+            copy(ast, group);
+            return group;
+        } else if (ast instanceof Ast.Expression.Binary) {
+            Ast.Expression.Binary binary = (Ast.Expression.Binary) ast;
+            Ast.Expression left = rewrite(binary.getLeft(), replacement);
+            Ast.Expression right = rewrite(binary.getRight(), replacement);
+            if (left == binary.getLeft() && right == binary.getRight()) {
+                return ast;
+            }
+            Ast.Expression.Binary result = new Ast.Expression.Binary(binary.getOperator(), left, right);
+            copy(ast, result);
+            return result;
+        } else if (ast instanceof Ast.Expression.Access) {
+            Ast.Expression.Access access = (Ast.Expression.Access) ast;
+            if (!access.getOffset().isPresent()) {
+                return ast;
+            }
+            Ast.Expression offset = rewrite(access.getOffset().get(), replacement);
+            if (offset == access.getOffset().get()) {
+                return ast;
+            }
+            Ast.Expression.Access result = new Ast.Expression.Access(Optional.of(offset), access.getName());
+            copy(ast, result);
+            return result;
+        } else if (ast instanceof Ast.Expression.Function) {
+            Ast.Expression.Function function = (Ast.Expression.Function) ast;
+            List<Ast.Expression> arguments = rewriteAll(function.getArguments(), replacement);
+            if (arguments == function.getArguments()) {
+                return ast;
+            }
+            Ast.Expression.Function result = new Ast.Expression.Function(function.getName(), arguments);
+            copy(ast, result);
+            return result;
+        } else if (ast instanceof Ast.Expression.PlcList) {
+            List<Ast.Expression> values = rewriteAll(((Ast.Expression.PlcList) ast).getValues(), replacement);
+            if (values == ((Ast.Expression.PlcList) ast).getValues()) {
+                return ast;
+            }
+            Ast.Expression.PlcList result = new Ast.Expression.PlcList(values);
+            copy(ast, result);
+            return result;
+        }
+        return ast;
+    }
+
+    private List<Ast.Expression> rewriteAll(List<Ast.Expression> expressions, Function<Ast.Expression, Ast.Expression> replacement) {
+        List<Ast.Expression> result = new ArrayList<>();
+        boolean changed = false;
+        for (Ast.Expression expression : expressions) {
+            Ast.Expression optimized = rewrite(expression, replacement);
+            changed |= optimized != expression;
+            result.add(optimized);
+        }
+        return changed ? result : expressions;
+    }
+
+    /**
+     * Returns true if the expression computes something, and so is worth
+     * storing in a temporary.
+     */
+    private static boolean isCompound(Ast.Expression ast) {
+        if (ast instanceof Ast.Expression.Group) {
+            return isCompound(((Ast.Expression.Group) ast).getExpression());
+        }
+        return ast instanceof Ast.Expression.Binary;
+    }
+
+    /**
+     * Returns true if the expression reads none of the {@code written}
+     * variables and has no effects, so evaluating it again gives the same
+     * value. If {@code total} is set it must also be unable to fail, which
+     * excludes list accesses, division and exponentiation.
+     */
+    private boolean isPure(Ast.Expression ast, Set<String> written, boolean total) {
+        if (ast instanceof Ast.Expression.Literal) {
+            return type(ast) != null;
+        } else if (ast instanceof Ast.Expression.Group) {
+            return isPure(((Ast.Expression.Group) ast).getExpression(), written, total);
+        } else if (ast instanceof Ast.Expression.Access) {
+            Ast.Expression.Access access = (Ast.Expression.Access) ast;
+            if (access.getOffset().isPresent() && (total || !isPure(access.getOffset().get(), written, false))) {
+                return false;
+            }
+            return !written.contains(access.getName())
+                    && !uninitialized.contains(access.getName())
+                    && type(access) != null;
+        } else if (ast instanceof Ast.Expression.Binary) {
+            Ast.Expression.Binary binary = (Ast.Expression.Binary) ast;
+            if (!isTotal(binary) && (total || type(binary.getLeft()) == null || type(binary.getRight()) == null)) {
+                return false;
+            }
+            return isPure(binary.getLeft(), written, total) && isPure(binary.getRight(), written, total);
+        }
+        // calls may have effects and each list literal creates a new list
+        return false;
+    }
+
+    /**
+     * Returns true if the expression reads an element of a list.
+     */
+    private static boolean isIndexed(Ast.Expression ast) {
+        if (ast instanceof Ast.Expression.Group) {
+            return isIndexed(((Ast.Expression.Group) ast).getExpression());
+        } else if (ast instanceof Ast.Expression.Binary) {
+            return isIndexed(((Ast.Expression.Binary) ast).getLeft()) || isIndexed(((Ast.Expression.Binary) ast).getRight());
+        }
+        return ast instanceof Ast.Expression.Access && ((Ast.Expression.Access) ast).getOffset().isPresent();
+    }
+
+    /**
+     * Adds the names of the variables read by an expression.
+     */
+    private static void reads(Ast.Expression ast, Set<String> names) {
+        if (ast instanceof Ast.Expression.Group) {
+            reads(((Ast.Expression.Group) ast).getExpression(), names);
+        } else if (ast instanceof Ast.Expression.Binary) {
+            reads(((Ast.Expression.Binary) ast).getLeft(), names);
+            reads(((Ast.Expression.Binary) ast).getRight(), names);
+        } else if (ast instanceof Ast.Expression.Access) {
+            names.add(((Ast.Expression.Access) ast).getName());
+            ((Ast.Expression.Access) ast).getOffset().ifPresent(offset -> reads(offset, names));
+        }
+    }
+
+    /**
+     * Returns true if evaluating any of the expressions calls a function.
+     */
+    private static boolean calls(List<Ast.Expression> expressions) {
+        for (Ast.Expression expression : expressions) {
+            if (expression instanceof Ast.Expression.Function) {
+                return true;
+            } else if (expression instanceof Ast.Expression.Group) {
+                if (calls(Collections.singletonList(((Ast.Expression.Group) expression).getExpression()))) {
+                    return true;
+                }
+            } else if (expression instanceof Ast.Expression.Binary) {
+                if (calls(Arrays.asList(((Ast.Expression.Binary) expression).getLeft(), ((Ast.Expression.Binary) expression).getRight()))) {
+                    return true;
+                }
+            } else if (expression instanceof Ast.Expression.Access) {
+                Optional<Ast.Expression> offset = ((Ast.Expression.Access) expression).getOffset();
+                if (offset.isPresent() && calls(Collections.singletonList(offset.get()))) {
+                    return true;
+                }
+            } else if (expression instanceof Ast.Expression.PlcList) {
+                if (calls(((Ast.Expression.PlcList) expression).getValues())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if the interpreter can evaluate the operator on the
+     * analyzed operand types without throwing.
+     */
+    private static boolean isTotal(Ast.Expression.Binary ast) {
+        Environment.Type left = type(ast.getLeft());
+        Environment.Type right = type(ast.getRight());
+        if (left == null || right == null) {
+            return false;
+        }
+        switch (ast.getOperator()) {
+            case "&&":
+            case "||":
+                return left == Environment.Type.BOOLEAN && right == Environment.Type.BOOLEAN;
+            case "==":
+            case "!=":
+                return true;
+            case "<":
+            case ">":
+                return left == right && (left == Environment.Type.INTEGER || left == Environment.Type.DECIMAL
+                        || left == Environment.Type.CHARACTER || left == Environment.Type.STRING);
+            case "+":
+                return left == Environment.Type.STRING || right == Environment.Type.STRING || isArithmetic(left, right);
+            case "-":
+            case "*":
+                return isArithmetic(left, right);
+            default:
+                // division and exponentiation can fail on their operands' values
+                return false;
+        }
+    }
+
+    private static boolean isArithmetic(Environment.Type left, Environment.Type right) {
+        return left == right && (left == Environment.Type.INTEGER || left == Environment.Type.DECIMAL);
+    }
+
+    /**
+     * Creates the declaration of a new temporary holding the given value. The
+     * {@code $} prefix keeps temporaries from clashing with source names.
+     */
+    private Ast.Statement.Declaration declare(Ast.Expression value) {
+        if (value instanceof Ast.Expression.Group) {
+            value = ((Ast.Expression.Group) value).getExpression();
+        }
+        String name = "$" + temporaries++;
+        Environment.Type type = type(value);
+        Ast.Statement.Declaration declaration = new Ast.Statement.Declaration(name, Optional.of(type.getName()), Optional.of(value));
+        declaration.setVariable(new Environment.Variable(name, name, type, true, Environment.NIL));
+        return declaration;
+    }
+
+    private static Ast.Expression.Access access(Ast.Statement.Declaration declaration) {
+        Ast.Expression.Access access = new Ast.Expression.Access(Optional.empty(), declaration.getName());
+        access.setVariable(declaration.getVariable());
+        return access;
+    }
+
+    /**
+     * Returns the analyzed type of an expression, or {@code null} if the
+     * analyzer has not set it.
+     */
+    private static Environment.Type type(Ast.Expression ast) {
+        try {
+            return ast.getType();
+        } catch (IllegalStateException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Copies the analyzer's annotation from one node onto its rewritten
+     * replacement, if it was set.
+     */
+    private static void copy(Ast from, Ast to) {
+        try {
+            if (from instanceof Ast.Function) {
+                ((Ast.Function) to).setFunction(((Ast.Function) from).getFunction());
+            } else if (from instanceof Ast.Statement.Declaration) {
+                ((Ast.Statement.Declaration) to).setVariable(((Ast.Statement.Declaration) from).getVariable());
+            } else if (from instanceof Ast.Expression.Group) {
+                ((Ast.Expression.Group) to).setType(((Ast.Expression.Group) from).getType());
+            } else if (from instanceof Ast.Expression.Binary) {
+                ((Ast.Expression.Binary) to).setType(((Ast.Expression.Binary) from).getType());
+            } else if (from instanceof Ast.Expression.Access) {
+                ((Ast.Expression.Access) to).setVariable(((Ast.Expression.Access) from).getVariable());
+            } else if (from instanceof Ast.Expression.Function) {
+                ((Ast.Expression.Function) to).setFunction(((Ast.Expression.Function) from).getFunction());
+            } else if (from instanceof Ast.Expression.PlcList) {
+                ((Ast.Expression.PlcList) to).setType(((Ast.Expression.PlcList) from).getType());
+            }
+        } catch (IllegalStateException e) {
+            // the node was never analyzed, so there is nothing to copy
+        }
+    }
+
+}
@@ -0,0 +1,235 @@
+package plc.project;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Where the {@code print} builtin writes its lines. The {@link Interpreter}
+ * writes to the output set on it, or to {@link #getDefault()}, and flushes it
+ * once it has run a source; the code made by the {@link Generator} writes to
+ * the output given to {@link JavaRunner#run(Ast.Source, Output)}, and the
+ * class made by the {@link ClassGenerator} to the output given to
+ * {@link ClassGenerator#run(Ast.Source, Output)}.
+ *
+ * Outputs may be written to by several threads at once.
+ */
+public abstract class Output {
+
+    private static final Logger LOGGER = Logger.getLogger(Output.class.getName());
+
+    private static final Output CONSOLE = new Output() {
+
+        @Override
+        public void println(Object value) {
+            System.out.println(value);
+        }
+
+        @Override
+        public void flush() {
+            System.out.flush();
+        }
+
+    };
+
+    private static volatile Output defaultOutput = CONSOLE;
+
+    /**
+     * Writes the value followed by a line separator.
+     */
+    public abstract void println(Object value);
+
+    /**
+     * Writes any lines that are still held.
+     */
+    public abstract void flush();
+
+    /**
+     * Returns the output used where none was set, which is initially
+     * {@link #console()}.
+     */
+    public static Output getDefault() {
+        return defaultOutput;
+    }
+
+    public static void setDefault(Output output) {
+        defaultOutput = output;
+    }
+
+    /**
+     * Returns an output that writes each line straight to
+     * {@link System#out}, as it is when the line is written.
+     */
+    public static Output console() {
+        return CONSOLE;
+    }
+
+    /**
+     * Holds lines in a buffer, writing them to a {@link Writer} once the
+     * buffer is full, once {@code lines} lines have been written since the
+     * last time, or when flushed. A policy of 1 line writes every line, while
+     * {@link Integer#MAX_VALUE} writes only full buffers.
+     */
+    public static final class Buffered extends Output {
+
+        private final Writer writer;
+        private final StringBuilder buffer;
+        private final int capacity;
+        private final int lines;
+        private int held = 0;
+
+        public Buffered(Writer writer, int capacity, int lines) {
+            this.writer = writer;
+            this.buffer = new StringBuilder(capacity);
+            this.capacity = capacity;
+            this.lines = lines;
+        }
+
+        public Buffered(PrintStream stream, int capacity, int lines) {
+            this(new OutputStreamWriter(stream), capacity, lines);
+        }
+
+        @Override
+        public synchronized void println(Object value) {
+            buffer.append(value).append(System.lineSeparator());
+            held++;
+            if (buffer.length() >= capacity || held >= lines) {
+                flush();
+            }
+        }
+
+        @Override
+        public synchronized void flush() {
+            try {
+                writer.write(buffer.toString());
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            buffer.setLength(0);
+            held = 0;
+        }
+
+    }
+
+    /**
+     * Keeps the lines in memory, for reading them back in tests.
+     */
+    public static final class Memory extends Output {
+
+        private final List<String> lines = new ArrayList<>();
+
+        @Override
+        public synchronized void println(Object value) {
+            lines.add(String.valueOf(value));
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        public synchronized List<String> getLines() {
+            return new ArrayList<>(lines);
+        }
+
+        @Override
+        public synchronized String toString() {
+            StringBuilder builder = new StringBuilder();
+            for (String line : lines) {
+                builder.append(line).append(System.lineSeparator());
+            }
+            return builder.toString();
+        }
+
+    }
+
+    /**
+     * Passes lines to another output on a thread of its own, so the threads
+     * that write them do not wait for it unless {@code capacity} lines are
+     * already waiting. Flushing waits until the lines written before have
+     * reached the other output, and flushes it.
+     */
+    public static final class Async extends Output implements AutoCloseable {
+
+        private final Output output;
+        private final BlockingQueue<Object> queue;
+        private final Thread thread;
+
+        public Async(Output output, int capacity) {
+            this.output = output;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.thread = new Thread(this::drain, "plc-output");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        @Override
+        public void println(Object value) {
+            put(String.valueOf(value));
+        }
+
+        @Override
+        public void flush() {
+            CountDownLatch flushed = new CountDownLatch(1);
+            put(flushed);
+            try {
+                flushed.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Flushing the output was interrupted.", e);
+            }
+        }
+
+        /**
+         * Writes the lines still waiting and stops the thread.
+         */
+        @Override
+        public void close() {
+            flush();
+            thread.interrupt();
+        }
+
+        private void put(Object element) {
+            try {
+                queue.put(element);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Writing to the output was interrupted.", e);
+            }
+        }
+
+        private void drain() {
+            try {
+                while (true) {
+                    Object element = queue.take();
+                    try {
+                        if (element instanceof CountDownLatch) {
+                            output.flush();
+                        } else {
+                            output.println(element);
+                        }
+                    } catch (RuntimeException e) {
+                        LOGGER.log(Level.WARNING, "Writing to the output failed", e);
+                    } finally {
+                        if (element instanceof CountDownLatch) {
+                            ((CountDownLatch) element).countDown();
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                // closed
+            }
+        }
+
+    }
+
+}
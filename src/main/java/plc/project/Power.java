@@ -0,0 +1,170 @@
+package plc.project;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+
+/**
+ * Implements the {@code ^} operator, which raises an Integer or Decimal to an
+ * Integer power, along with the strength reduction of constant exponents used
+ * by the {@link Optimizer} and the {@link Generator}.
+ *
+ * Powers are computed by repeated squaring, taking one multiplication per bit
+ * of the exponent rather than one per unit. Integer powers and non-negative
+ * Decimal powers are exact. A negative Integer power truncates towards zero as
+ * Integer division does, and a negative Decimal power is rounded to
+ * {@link #CONTEXT}.
+ */
+public final class Power {
+
+    /**
+     * The precision of Decimal powers with a negative exponent, which are
+     * rounded to 34 significant digits using {@code HALF_EVEN}.
+     */
+    public static final MathContext CONTEXT = MathContext.DECIMAL128;
+
+    /**
+     * The largest constant exponent that is unrolled into multiplications.
+     */
+    private static final int UNROLLED = 4;
+
+    private Power() {}
+
+    public static BigInteger pow(BigInteger base, BigInteger exponent) {
+        if (base.equals(BigInteger.ONE) || exponent.signum() == 0) {
+            return BigInteger.ONE;
+        } else if (base.equals(BigInteger.ONE.negate())) {
+            return exponent.testBit(0) ? base : BigInteger.ONE;
+        } else if (base.signum() == 0) {
+            if (exponent.signum() < 0) {
+                throw new RuntimeException("Invalid exponent: zero raised to a negative power");
+            }
+            return BigInteger.ZERO;
+        } else if (exponent.signum() < 0) {
+            // the magnitude of any other base only grows, so 1 / base^n truncates to zero
+            return BigInteger.ZERO;
+        }
+        BigInteger result = BigInteger.ONE;
+        BigInteger square = base;
+        for (int i = 0; i < exponent.bitLength(); i++) {
+            if (i > 0) {
+                square = square.multiply(square);
+            }
+            if (exponent.testBit(i)) {
+                result = result.multiply(square);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the same power as {@link #pow(BigInteger, BigInteger)} for the
+     * {@code int}s of generated code, throwing an {@link ArithmeticException}
+     * if it does not fit in one rather than returning another value. The
+     * {@link Generator} emits the same method in Java as {@code $pow}.
+     */
+    public static int pow(int base, int exponent) {
+        if (base == 1 || exponent == 0) {
+            return 1;
+        } else if (base == -1) {
+            return (exponent & 1) == 0 ? 1 : -1;
+        } else if (base == 0) {
+            if (exponent < 0) {
+                throw new ArithmeticException("Invalid exponent: zero raised to a negative power");
+            }
+            return 0;
+        } else if (exponent < 0) {
+            return 0;
+        }
+        int result = 1;
+        while (true) {
+            if ((exponent & 1) != 0) {
+                result = Math.multiplyExact(result, base);
+            }
+            exponent >>= 1;
+            if (exponent == 0) {
+                return result;
+            }
+            // a higher bit is set, so the result would overflow if the square does
+            base = Math.multiplyExact(base, base);
+        }
+    }
+
+    public static BigDecimal pow(BigDecimal base, BigInteger exponent) {
+        if (exponent.signum() == 0) {
+            return BigDecimal.ONE;
+        } else if (exponent.signum() > 0) {
+            return square(base, exponent, MathContext.UNLIMITED);
+        } else if (base.signum() == 0) {
+            throw new RuntimeException("Invalid exponent: zero raised to a negative power");
+        }
+        // guard digits cover the rounding of each multiplication, as in BigDecimal.pow(int, MathContext)
+        MathContext working = new MathContext(CONTEXT.getPrecision() + exponent.bitLength() + 2, CONTEXT.getRoundingMode());
+        return BigDecimal.ONE.divide(square(base, exponent.negate(), working), CONTEXT);
+    }
+
+    private static BigDecimal square(BigDecimal base, BigInteger exponent, MathContext context) {
+        BigDecimal result = BigDecimal.ONE;
+        BigDecimal square = base;
+        for (int i = 0; i < exponent.bitLength(); i++) {
+            if (i > 0) {
+                square = square.multiply(square, context);
+            }
+            if (exponent.testBit(i)) {
+                result = result.multiply(square, context);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns an equivalent of the given {@code ^} expression that uses no
+     * exponentiation, or {@code null} if there is none. A power whose exponent
+     * is a small non-negative literal is reduced when its base is a variable
+     * or literal, which can be evaluated repeatedly at no cost; {@code x ^ 0}
+     * becomes {@code 1}, {@code x ^ 1} becomes {@code x}, and {@code x ^ 2}
+     * becomes {@code (x * x)}.
+     *
+     * The expression must have been analyzed. The product is wrapped in a
+     * group, so it can replace the power anywhere in an expression.
+     */
+    public static Ast.Expression reduce(Ast.Expression.Binary ast) {
+        if (!ast.getOperator().equals("^") || !(ast.getRight() instanceof Ast.Expression.Literal)) {
+            return null;
+        }
+        Object literal = ((Ast.Expression.Literal) ast.getRight()).getLiteral();
+        if (!(literal instanceof BigInteger) || ((BigInteger) literal).signum() < 0
+                || ((BigInteger) literal).compareTo(BigInteger.valueOf(UNROLLED)) > 0) {
+            return null;
+        }
+        Ast.Expression base = ast.getLeft();
+        boolean simple = base instanceof Ast.Expression.Literal
+                || base instanceof Ast.Expression.Access && !((Ast.Expression.Access) base).getOffset().isPresent();
+        Environment.Type type;
+        try {
+            type = base.getType();
+        } catch (IllegalStateException e) {
+            return null;
+        }
+        if (!simple || type != Environment.Type.INTEGER && type != Environment.Type.DECIMAL) {
+            return null;
+        }
+        int exponent = ((BigInteger) literal).intValue();
+        if (exponent == 0) {
+            Ast.Expression.Literal one = new Ast.Expression.Literal(type == Environment.Type.INTEGER ? BigInteger.ONE : BigDecimal.ONE);
+            one.setType(type);
+            return one;
+        } else if (exponent == 1) {
+            return base;
+        }
+        Ast.Expression product = base;
+        for (int i = 1; i < exponent; i++) {
+            product = new Ast.Expression.Binary("*", product, base);
+            ((Ast.Expression.Binary) product).setType(type);
+        }
+        Ast.Expression.Group group = new Ast.Expression.Group(product);
+        group.setType(type);
+        return group;
+    }
+
+}
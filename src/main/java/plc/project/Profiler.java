@@ -0,0 +1,240 @@
+package plc.project;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Samples the stack of source functions running in an {@link Interpreter},
+ * for finding where a program spends its time.
+ *
+ * The interpreter pushes the name ({@code name/arity}) of each function it
+ * calls onto a stack kept here, and pops it when the call returns. While the
+ * profiler is started, a thread reads that stack at a fixed interval, without
+ * stopping the interpreter, and counts each distinct stack it sees. The time
+ * between samples is credited to the function on top of the stack as self
+ * time and to every function on the stack as total time, so times are
+ * estimates, while call counts are exact.
+ *
+ * Functions compiled for the {@link VirtualMachine} appear as a single frame,
+ * since the machine runs their calls to each other itself. The results are
+ * meant to be read once the profiler is stopped.
+ */
+public final class Profiler {
+
+    private final long interval;
+
+    /**
+     * Sets the depth without waiting for the write to be visible to the
+     * sampling thread, which only needs to see it eventually.
+     */
+    private static final AtomicIntegerFieldUpdater<Profiler> DEPTH = AtomicIntegerFieldUpdater.newUpdater(Profiler.class, "depth");
+
+    private volatile String[] stack = new String[64];
+    private volatile int depth = 0;
+    private final Map<String, long[]> calls = new HashMap<>();
+
+    private final Map<String, Long> samples = new HashMap<>();
+    private final Map<String, long[]> times = new HashMap<>();
+    private Thread sampler = null;
+
+    public Profiler(Duration interval) {
+        this.interval = interval.toNanos();
+    }
+
+    /**
+     * Starts sampling on a daemon thread.
+     */
+    public synchronized void start() {
+        if (sampler != null) {
+            throw new IllegalStateException("The profiler is already started.");
+        }
+        sampler = new Thread(this::sample, "plc-profiler");
+        sampler.setDaemon(true);
+        sampler.start();
+    }
+
+    /**
+     * Stops sampling, waiting for the sampling thread to finish.
+     */
+    public void stop() throws InterruptedException {
+        Thread thread;
+        synchronized (this) {
+            thread = sampler;
+            sampler = null;
+        }
+        if (thread != null) {
+            thread.interrupt();
+            thread.join();
+        }
+    }
+
+    /**
+     * Returns the counter of the calls of the named function, which the
+     * caller keeps to pass to {@link #enter(String, long[])} rather than
+     * looking it up on every call.
+     */
+    long[] counter(String name) {
+        return calls.computeIfAbsent(name, key -> new long[1]);
+    }
+
+    /**
+     * Records a call of the named function, which is now running.
+     */
+    void enter(String name, long[] counter) {
+        counter[0]++;
+        int depth = this.depth;
+        String[] stack = this.stack;
+        if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, stack.length * 2);
+            this.stack = stack;
+        }
+        stack[depth] = name;
+        DEPTH.lazySet(this, depth + 1);
+    }
+
+    /**
+     * Records that the running function returned.
+     */
+    void exit() {
+        DEPTH.lazySet(this, depth - 1);
+    }
+
+    private void sample() {
+        long last = System.nanoTime();
+        while (!Thread.currentThread().isInterrupted()) {
+            LockSupport.parkNanos(interval);
+            long now = System.nanoTime();
+            int depth = this.depth;
+            String[] stack = this.stack;
+            if (depth > 0) {
+                record(Arrays.copyOf(stack, Math.min(depth, stack.length)), now - last);
+            }
+            last = now;
+        }
+    }
+
+    /**
+     * Counts a sampled stack, which may hold stale entries if it changed
+     * while it was read.
+     */
+    private synchronized void record(String[] frames, long elapsed) {
+        StringBuilder collapsed = new StringBuilder();
+        Set<String> seen = new HashSet<>();
+        String top = null;
+        for (String frame : frames) {
+            if (frame == null) {
+                return;
+            }
+            if (collapsed.length() > 0) {
+                collapsed.append(';');
+            }
+            collapsed.append(frame);
+            if (seen.add(frame)) {
+                times.computeIfAbsent(frame, name -> new long[2])[1] += elapsed;
+            }
+            top = frame;
+        }
+        times.get(top)[0] += elapsed;
+        samples.merge(collapsed.toString(), 1L, Long::sum);
+    }
+
+    /**
+     * Returns the sampled stacks in the collapsed format read by flame graph
+     * tools: one line per distinct stack, with its functions from the
+     * outermost call separated by {@code ;}, followed by a space and the
+     * number of samples.
+     */
+    public synchronized String getCollapsedStacks() {
+        StringBuilder builder = new StringBuilder();
+        samples.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> builder.append(entry.getKey()).append(' ').append(entry.getValue()).append('\n'));
+        return builder.toString();
+    }
+
+    /**
+     * Returns the profile of each function that was called, by name.
+     */
+    public synchronized Map<String, Entry> getEntries() {
+        Map<String, Entry> entries = new HashMap<>();
+        for (Map.Entry<String, long[]> count : calls.entrySet()) {
+            long[] time = times.getOrDefault(count.getKey(), new long[2]);
+            entries.put(count.getKey(), new Entry(count.getKey(), count.getValue()[0], time[0], time[1]));
+        }
+        return entries;
+    }
+
+    /**
+     * Returns a table of the profile of each function, with the most total
+     * time first.
+     */
+    public String getReport() {
+        List<Entry> entries = new ArrayList<>(getEntries().values());
+        entries.sort(Comparator.comparingLong(Entry::getTotalNanos).reversed().thenComparing(Entry::getName));
+        StringBuilder builder = new StringBuilder(String.format("%-24s %12s %12s %12s%n", "function", "calls", "self (ms)", "total (ms)"));
+        for (Entry entry : entries) {
+            builder.append(String.format("%-24s %12d %12.3f %12.3f%n", entry.getName(), entry.getCalls(),
+                    entry.getSelfNanos() / 1e6, entry.getTotalNanos() / 1e6));
+        }
+        return builder.toString();
+    }
+
+    public static final class Entry {
+
+        private final String name;
+        private final long calls;
+        private final long selfNanos;
+        private final long totalNanos;
+
+        private Entry(String name, long calls, long selfNanos, long totalNanos) {
+            this.name = name;
+            this.calls = calls;
+            this.selfNanos = selfNanos;
+            this.totalNanos = totalNanos;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCalls() {
+            return calls;
+        }
+
+        /**
+         * Returns the estimated time spent running the function itself.
+         */
+        public long getSelfNanos() {
+            return selfNanos;
+        }
+
+        /**
+         * Returns the estimated time spent in calls of the function, including
+         * the functions it called.
+         */
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "Entry{" +
+                    "name='" + name + '\'' +
+                    ", calls=" + calls +
+                    ", selfNanos=" + selfNanos +
+                    ", totalNanos=" + totalNanos +
+                    '}';
+        }
+
+    }
+
+}
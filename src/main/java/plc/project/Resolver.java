@@ -0,0 +1,213 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves each variable of a source to a slot in a flat frame, so the
+ * {@link Interpreter} can store variables in arrays instead of a chain of
+ * {@link Scope}s. Runs after the {@link Analyzer} and {@link Optimizer}, as
+ * the last pass before interpretation.
+ *
+ * Every call of a function gets one frame, holding its parameters followed by
+ * the variables declared anywhere in its body; variables of blocks that are
+ * never live at the same time share slots. Globals are held in a separate
+ * frame for the whole source. An {@link Ast.Expression.Access} is annotated
+ * with its frame ({@link #LOCAL} or {@link #GLOBAL}) and slot, and is left
+ * unresolved if the name is not declared in the source, in which case the
+ * interpreter looks it up in its scope as before. Each
+ * {@link Ast.Expression.Function} is numbered within the source, so that an
+ * interpreter can keep what it caches for the call in an array of its own.
+ */
+public final class Resolver implements Ast.Visitor<Void> {
+
+    /**
+     * The depth of a variable in the frame of the running function.
+     */
+    public static final int LOCAL = 0;
+
+    /**
+     * The depth of a global variable.
+     */
+    public static final int GLOBAL = 1;
+
+    private final Map<String, Integer> globals = new HashMap<>();
+    private final List<Map<String, Integer>> blocks = new ArrayList<>();
+    private int next = 0;
+    private int size = 0;
+    private int calls = 0;
+
+    @Override
+    public Void visit(Ast.Source ast) {
+        for (Ast.Global global : ast.getGlobals()) {
+            visit(global);
+        }
+        for (Ast.Function function : ast.getFunctions()) {
+            visit(function);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Global ast) {
+        ast.getValue().ifPresent(this::visit);
+        ast.setSlot(globals.size());
+        globals.put(ast.getName(), globals.size());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Function ast) {
+        next = 0;
+        size = 0;
+        blocks.add(new HashMap<>());
+        try {
+            for (String parameter : ast.getParameters()) {
+                declare(parameter);
+            }
+            for (Ast.Statement statement : ast.getStatements()) {
+                visit(statement);
+            }
+        } finally {
+            blocks.remove(blocks.size() - 1);
+        }
+        ast.setFrameSize(size);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Expression ast) {
+        visit(ast.getExpression());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Declaration ast) {
+        ast.getValue().ifPresent(this::visit);
+        ast.setSlot(declare(ast.getName()));
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Assignment ast) {
+        visit(ast.getReceiver());
+        visit(ast.getValue());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.If ast) {
+        visit(ast.getCondition());
+        block(ast.getThenStatements());
+        block(ast.getElseStatements());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Switch ast) {
+        visit(ast.getCondition());
+        for (Ast.Statement.Case c : ast.getCases()) {
+            visit(c);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Case ast) {
+        ast.getValue().ifPresent(this::visit);
+        block(ast.getStatements());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.While ast) {
+        visit(ast.getCondition());
+        block(ast.getStatements());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Return ast) {
+        visit(ast.getValue());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Literal ast) {
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Group ast) {
+        visit(ast.getExpression());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Binary ast) {
+        visit(ast.getLeft());
+        visit(ast.getRight());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Access ast) {
+        ast.getOffset().ifPresent(this::visit);
+        for (int i = blocks.size() - 1; i >= 0; i--) {
+            Integer slot = blocks.get(i).get(ast.getName());
+            if (slot != null) {
+                ast.setDepth(LOCAL);
+                ast.setSlot(slot);
+                return null;
+            }
+        }
+        if (globals.containsKey(ast.getName())) {
+            ast.setDepth(GLOBAL);
+            ast.setSlot(globals.get(ast.getName()));
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Function ast) {
+        ast.setSlot(calls++);
+        for (Ast.Expression argument : ast.getArguments()) {
+            visit(argument);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.PlcList ast) {
+        for (Ast.Expression value : ast.getValues()) {
+            visit(value);
+        }
+        return null;
+    }
+
+    /**
+     * Resolves the statements of a nested block, whose slots are reused once
+     * the block ends.
+     */
+    private void block(List<Ast.Statement> statements) {
+        int start = next;
+        blocks.add(new HashMap<>());
+        try {
+            for (Ast.Statement statement : statements) {
+                visit(statement);
+            }
+        } finally {
+            blocks.remove(blocks.size() - 1);
+            next = start;
+        }
+    }
+
+    private int declare(String name) {
+        blocks.get(blocks.size() - 1).put(name, next);
+        size = Math.max(size, next + 1);
+        return next++;
+    }
+
+}
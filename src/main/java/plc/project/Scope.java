@@ -11,6 +11,8 @@ public final class Scope {
     private final Scope parent;
     private final Map<String, Environment.Variable> variables = new HashMap<>();
     private final Map<String, Environment.Function> functions = new HashMap<>();
+    private int version = 0;
+    private boolean frozen = false;
 
     public Scope(Scope parent) {
         this.parent = parent;
@@ -20,12 +22,31 @@ public final class Scope {
         return parent;
     }
 
+    /**
+     * Returns the number of functions defined in this scope itself, which is
+     * 0 if it has none. A function found here is still the one defined here
+     * while the version is unchanged.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Prevents any more definitions in this scope, so that it may be shared
+     * as the parent of scopes on other threads.
+     */
+    public void freeze() {
+        frozen = true;
+    }
+
     public void defineVariable(String name, boolean mutable, Environment.PlcObject value) {
         defineVariable(name, name, Environment.Type.ANY, mutable, value);
     }
 
     public Environment.Variable defineVariable(String name, String jvmName, Environment.Type type, boolean mutable, Environment.PlcObject value) {
-        if (variables.containsKey(name)) {
+        if (frozen) {
+            throw new RuntimeException("The variable " + name + " cannot be defined in a frozen scope.");
+        } else if (variables.containsKey(name)) {
             throw new RuntimeException("The variable " + name + " is already defined in this scope.");
         } else {
             Environment.Variable variable = new Environment.Variable(name, jvmName, type, mutable, value);
@@ -45,31 +66,71 @@ public final class Scope {
     }
 
     public void defineFunction(String name, int arity, Function<List<Environment.PlcObject>, Environment.PlcObject> function) {
+        defineFunction(name, arity, Environment.Function.Invoker.of(function));
+    }
+
+    public void defineFunction(String name, Environment.Function.Arity0 function) {
+        defineFunction(name, 0, Environment.Function.Invoker.of0(function));
+    }
+
+    public void defineFunction(String name, Environment.Function.Arity1 function) {
+        defineFunction(name, 1, Environment.Function.Invoker.of1(function));
+    }
+
+    public void defineFunction(String name, Environment.Function.Arity2 function) {
+        defineFunction(name, 2, Environment.Function.Invoker.of2(function));
+    }
+
+    public void defineFunction(String name, Environment.Function.Arity3 function) {
+        defineFunction(name, 3, Environment.Function.Invoker.of3(function));
+    }
+
+    public void defineFunction(String name, Environment.Function.Arity4 function) {
+        defineFunction(name, 4, Environment.Function.Invoker.of4(function));
+    }
+
+    public void defineFunction(String name, int arity, Environment.Function.Invoker invoker) {
         List<Environment.Type> parameterTypes = new ArrayList<>();
         for (int i = 0; i < arity; i++) {
             parameterTypes.add(Environment.Type.ANY);
         }
-        defineFunction(name, name, parameterTypes, Environment.Type.ANY, function);
+        defineFunction(name, name, parameterTypes, Environment.Type.ANY, invoker);
     }
 
     public Environment.Function defineFunction(String name, String jvmName, List<Environment.Type> parameterTypes, Environment.Type returnType, Function<List<Environment.PlcObject>, Environment.PlcObject> function) {
-        if (functions.containsKey(name + "/" + parameterTypes.size())) {
+        return defineFunction(name, jvmName, parameterTypes, returnType, Environment.Function.Invoker.of(function));
+    }
+
+    public Environment.Function defineFunction(String name, String jvmName, List<Environment.Type> parameterTypes, Environment.Type returnType, Environment.Function.Invoker invoker) {
+        if (frozen) {
+            throw new RuntimeException("The function " + name + "/" + parameterTypes.size() + " cannot be defined in a frozen scope.");
+        } else if (functions.containsKey(name + "/" + parameterTypes.size())) {
             throw new RuntimeException("The function " + name + "/" + parameterTypes.size() + " is already defined in this scope.");
         } else {
-            Environment.Function func = new Environment.Function(name, jvmName, parameterTypes, returnType, function);
+            Environment.Function func = new Environment.Function(name, jvmName, parameterTypes, returnType, invoker);
             functions.put(func.getName() + "/" + func.getParameterTypes().size(), func);
+            version++;
             return func;
         }
     }
 
+    /**
+     * Returns the function defined in this scope itself, or null if there is
+     * none.
+     */
+    public Environment.Function getFunction(String name, int arity) {
+        return functions.get(name + "/" + arity);
+    }
+
     public Environment.Function lookupFunction(String name, int arity) {
-        if (functions.containsKey(name + "/" + arity)) {
-            return functions.get(name + "/" + arity);
-        } else if (parent != null) {
-            return parent.lookupFunction(name, arity);
-        } else {
-            throw new RuntimeException("The function " + name + "/" + arity + " is not defined in this scope.");
+        String key = name + "/" + arity;
+        for (Scope scope = this; scope != null; scope = scope.parent) {
+            Environment.Function function = scope.functions.get(key);
+            if (function != null) {
+                return function;
+            }
         }
+        throw new RuntimeException("The function " + key + " is not defined in this scope.");
     }
 
     @Override
@@ -0,0 +1,379 @@
+package plc.project;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.AbstractList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A list declared with an element type, whose elements are held in an array
+ * of that type's primitive: {@code long} for Integer, {@code double} for
+ * Decimal, {@code char} for Character, and a {@link BitSet} for Boolean. An
+ * element is only held as a primitive if it is read back as the same value,
+ * so an Integer beyond a {@code long} or a Decimal whose scale a
+ * {@code double} does not keep (such as {@code 1.10}) turns the list into an
+ * array of boxed values, as does an element of another type. Lists of other
+ * types are boxed from the start.
+ *
+ * A list of Integers, Decimals or Characters with at least a given number of
+ * elements is held off the heap instead, in direct buffers of up to
+ * {@link #CHUNK} elements each, so that the garbage collector neither copies
+ * nor scans it. Such a list belongs to the run that created it, which
+ * releases it with {@link #release()} when it ends; the memory of its buffers
+ * is freed once they are collected.
+ *
+ * The list has a fixed size, as lists in the language do. Its elements are
+ * observed as the boxed values of {@link Environment.PlcObject#getValue()},
+ * while {@link #getObject(int)} and {@link #setObject(int, Environment.PlcObject)}
+ * move Integers and Booleans in and out without allocating.
+ */
+final class TypedList extends AbstractList<Object> implements RandomAccess {
+
+    /**
+     * The number of elements in each buffer of a list held off the heap.
+     */
+    static final int CHUNK = 1 << 24;
+
+    private enum Kind {
+
+        INTEGER(Long.BYTES), DECIMAL(Double.BYTES), CHARACTER(Character.BYTES), BOOLEAN(0), BOXED(0);
+
+        /**
+         * The size of an element held off the heap, or 0 if it cannot be.
+         */
+        private final int width;
+
+        Kind(int width) {
+            this.width = width;
+        }
+
+    }
+
+    private Kind kind;
+    private final int size;
+    private long[] longs = null;
+    private double[] doubles = null;
+    private char[] chars = null;
+    private BitSet booleans = null;
+    private Object[] boxed = null;
+    private ByteBuffer[] chunks = null;
+
+    private TypedList(Kind kind, int size, boolean offHeap) {
+        this.size = size;
+        allocate(kind, offHeap);
+    }
+
+    /**
+     * Creates a list of the given values for a list declared with the named
+     * element type, held on the heap.
+     */
+    static TypedList of(String typeName, List<Object> values) {
+        return of(typeName, values, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates a list of the given values for a list declared with the named
+     * element type, which is held off the heap if it has at least
+     * {@code offHeapThreshold} elements and its type allows it.
+     */
+    static TypedList of(String typeName, List<Object> values, int offHeapThreshold) {
+        Kind kind;
+        switch (typeName) {
+            case "Integer":
+                kind = Kind.INTEGER;
+                break;
+            case "Decimal":
+                kind = Kind.DECIMAL;
+                break;
+            case "Character":
+                kind = Kind.CHARACTER;
+                break;
+            case "Boolean":
+                kind = Kind.BOOLEAN;
+                break;
+            default:
+                kind = Kind.BOXED;
+        }
+        for (Object value : values) {
+            if (!fits(kind, value)) {
+                kind = Kind.BOXED;
+                break;
+            }
+        }
+        TypedList list = new TypedList(kind, values.size(), values.size() >= offHeapThreshold);
+        for (int i = 0; i < values.size(); i++) {
+            list.store(i, values.get(i));
+        }
+        return list;
+    }
+
+    /**
+     * Returns true if the elements are held off the heap.
+     */
+    boolean isOffHeap() {
+        return chunks != null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Object get(int index) {
+        switch (kind) {
+            case INTEGER:
+                return BigInteger.valueOf(getLong(index));
+            case DECIMAL:
+                return BigDecimal.valueOf(getDouble(index));
+            case CHARACTER:
+                return getChar(index);
+            case BOOLEAN:
+                return booleans.get(check(index));
+            default:
+                return boxed[index];
+        }
+    }
+
+    @Override
+    public Object set(int index, Object value) {
+        Object previous = get(index);
+        if (!fits(kind, value)) {
+            box();
+        }
+        store(index, value);
+        return previous;
+    }
+
+    /**
+     * Returns the element as an object, which is shared for Booleans and
+     * Integers that fit in a {@code long}.
+     */
+    Environment.PlcObject getObject(int index) {
+        switch (kind) {
+            case INTEGER:
+                return Environment.createInteger(getLong(index));
+            case BOOLEAN:
+                return booleans.get(check(index)) ? Environment.TRUE : Environment.FALSE;
+            default:
+                return Environment.create(get(index));
+        }
+    }
+
+    /**
+     * Sets the element to the value of the object, without creating its
+     * {@code BigInteger} if it is held as a {@code long}.
+     */
+    void setObject(int index, Environment.PlcObject value) {
+        if (kind == Kind.INTEGER && value.isLong()) {
+            setLong(index, value.getLong());
+        } else {
+            set(index, value.getValue());
+        }
+    }
+
+    /**
+     * Returns true if the elements are boxed, so that they may be lists.
+     */
+    boolean isBoxed() {
+        return kind == Kind.BOXED;
+    }
+
+    /**
+     * Moves the elements of a list held off the heap onto it, so the list
+     * outlives the run that created it.
+     */
+    void moveOnHeap() {
+        if (chunks == null) {
+            return;
+        }
+        Object[] values = toArray();
+        allocate(kind, false);
+        for (int i = 0; i < size; i++) {
+            store(i, values[i]);
+        }
+    }
+
+    /**
+     * Drops the buffers of a list held off the heap, whose memory is freed
+     * once they are collected. The list must not be used afterwards, and its
+     * elements can no longer be read.
+     */
+    void release() {
+        chunks = null;
+    }
+
+    /**
+     * Returns the element of a list at an offset, without allocating if the
+     * list is typed (see {@link #getObject(int)}).
+     */
+    @SuppressWarnings("unchecked")
+    static Environment.PlcObject element(Environment.PlcObject list, Environment.PlcObject offset) {
+        Object value = list.getValue();
+        if (value instanceof TypedList) {
+            return ((TypedList) value).getObject(index(offset));
+        }
+        return Environment.create(((List<Object>) value).get(index(offset)));
+    }
+
+    /**
+     * Sets the element of a list at an offset.
+     */
+    @SuppressWarnings("unchecked")
+    static void setElement(Environment.PlcObject list, Environment.PlcObject offset, Environment.PlcObject element) {
+        Object value = list.getValue();
+        if (value instanceof TypedList) {
+            ((TypedList) value).setObject(index(offset), element);
+        } else {
+            ((List<Object>) value).set(index(offset), element.getValue());
+        }
+    }
+
+    private static int index(Environment.PlcObject offset) {
+        return offset.isLong() ? (int) offset.getLong() : Interpreter.requireType(BigInteger.class, offset).intValue();
+    }
+
+    private static boolean fits(Kind kind, Object value) {
+        switch (kind) {
+            case INTEGER:
+                return value instanceof BigInteger && ((BigInteger) value).bitLength() < Long.SIZE;
+            case DECIMAL:
+                return value instanceof BigDecimal && BigDecimal.valueOf(((BigDecimal) value).doubleValue()).equals(value);
+            case CHARACTER:
+                return value instanceof Character;
+            case BOOLEAN:
+                return value instanceof Boolean;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Stores a value that fits the kind of the list.
+     */
+    private void store(int index, Object value) {
+        switch (kind) {
+            case INTEGER:
+                setLong(index, ((BigInteger) value).longValue());
+                break;
+            case DECIMAL:
+                setDouble(index, ((BigDecimal) value).doubleValue());
+                break;
+            case CHARACTER:
+                setChar(index, (Character) value);
+                break;
+            case BOOLEAN:
+                booleans.set(check(index), (Boolean) value);
+                break;
+            default:
+                boxed[index] = value;
+        }
+    }
+
+    private long getLong(int index) {
+        return longs != null ? longs[index] : chunk(index).getLong(offset(index));
+    }
+
+    private void setLong(int index, long value) {
+        if (longs != null) {
+            longs[index] = value;
+        } else {
+            chunk(index).putLong(offset(index), value);
+        }
+    }
+
+    private double getDouble(int index) {
+        return doubles != null ? doubles[index] : chunk(index).getDouble(offset(index));
+    }
+
+    private void setDouble(int index, double value) {
+        if (doubles != null) {
+            doubles[index] = value;
+        } else {
+            chunk(index).putDouble(offset(index), value);
+        }
+    }
+
+    private char getChar(int index) {
+        return chars != null ? chars[index] : chunk(index).getChar(offset(index));
+    }
+
+    private void setChar(int index, char value) {
+        if (chars != null) {
+            chars[index] = value;
+        } else {
+            chunk(index).putChar(offset(index), value);
+        }
+    }
+
+    private ByteBuffer chunk(int index) {
+        ByteBuffer[] chunks = this.chunks;
+        if (chunks == null) {
+            throw new RuntimeException("The list was released when the run that created it ended.");
+        }
+        return chunks[check(index) / CHUNK];
+    }
+
+    private int offset(int index) {
+        return index % CHUNK * kind.width;
+    }
+
+    private void allocate(Kind kind, boolean offHeap) {
+        this.kind = kind;
+        longs = null;
+        doubles = null;
+        chars = null;
+        booleans = null;
+        boxed = null;
+        chunks = null;
+        if (offHeap && kind.width > 0) {
+            chunks = new ByteBuffer[(size + CHUNK - 1) / CHUNK];
+            for (int i = 0; i < chunks.length; i++) {
+                int elements = Math.min(CHUNK, size - i * CHUNK);
+                chunks[i] = ByteBuffer.allocateDirect(elements * kind.width).order(ByteOrder.nativeOrder());
+            }
+            return;
+        }
+        switch (kind) {
+            case INTEGER:
+                longs = new long[size];
+                break;
+            case DECIMAL:
+                doubles = new double[size];
+                break;
+            case CHARACTER:
+                chars = new char[size];
+                break;
+            case BOOLEAN:
+                booleans = new BitSet(size);
+                break;
+            default:
+                boxed = new Object[size];
+        }
+    }
+
+    /**
+     * Turns the list into an array of boxed values.
+     */
+    private void box() {
+        Object[] values = toArray();
+        allocate(Kind.BOXED, false);
+        System.arraycopy(values, 0, boxed, 0, size);
+    }
+
+    /**
+     * Checks an index into the bit set or the buffers, which would otherwise
+     * grow or be out of step with the size.
+     */
+    private int check(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        return index;
+    }
+
+}
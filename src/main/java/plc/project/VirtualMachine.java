@@ -0,0 +1,380 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs a {@link Bytecode.Program} compiled by the {@link Compiler}, as an
+ * alternative to walking the tree with the {@link Interpreter}.
+ *
+ * The machine keeps a single stack of objects; each call takes a window of it
+ * for the slots of its frame, which starts at its arguments, with the operand
+ * stack above. Calls between functions of the program are tracked on a
+ * separate stack of return addresses rather than by Java recursion, so deep
+ * recursion in the source does not exhaust the Java stack.
+ */
+public final class VirtualMachine {
+
+    private final Bytecode.Program program;
+    private final Scope scope;
+    private final Environment.PlcObject[] globals;
+    private final Environment.Function[] natives;
+
+    private Environment.PlcObject[] stack = new Environment.PlcObject[256];
+    private Bytecode.Chunk[] chunks = new Bytecode.Chunk[16];
+    private int[] bases = new int[16];
+    private int[] returns = new int[16];
+    private int top = 0;
+    private int calls = 0;
+
+    /**
+     * Creates a machine whose globals and functions are defined in a new
+     * scope of the given one. The builtins are defined there too, unless the
+     * given scope is {@link Interpreter#BUILTINS}, as for an
+     * {@link Interpreter}.
+     */
+    public VirtualMachine(Bytecode.Program program, Scope parent) {
+        this(program, parent, parent != Interpreter.BUILTINS);
+    }
+
+    /**
+     * Creates a machine as above, which defines the builtins only if asked
+     * to, for a compiled function installed in the scope of an interpreter.
+     */
+    VirtualMachine(Bytecode.Program program, Scope parent, boolean builtins) {
+        this.program = program;
+        this.scope = new Scope(parent);
+        this.globals = new Environment.PlcObject[program.getGlobals()];
+        this.natives = new Environment.Function[program.getConstants().length];
+        if (builtins) {
+            Interpreter.defineBuiltins(scope);
+        }
+    }
+
+    public Scope getScope() {
+        return scope;
+    }
+
+    /**
+     * Defines the globals and returns the result of {@code main/0}.
+     */
+    public Environment.PlcObject run() {
+        execute(program.getInitializer());
+        for (Bytecode.Chunk chunk : program.getFunctions()) {
+            if (chunk.getName().equals("main") && chunk.getArity() == 0) {
+                return execute(chunk);
+            }
+        }
+        throw new RuntimeException("The function main/0 is not defined in this scope.");
+    }
+
+    /**
+     * Calls a function of the program with the given arguments. A call may
+     * come from a function of the machine's scope that was itself called by
+     * the machine, so it runs above the frames that are already live. The
+     * arguments are at the start of the given array, which may be longer.
+     */
+    public Environment.PlcObject invoke(int function, Environment.PlcObject[] arguments) {
+        Bytecode.Chunk chunk = program.getFunctions().get(function);
+        reserve(top, chunk);
+        System.arraycopy(arguments, 0, stack, top, chunk.getArity());
+        return execute(chunk);
+    }
+
+    /**
+     * Runs a chunk until it returns, with its arguments at the top of the
+     * stack.
+     */
+    private Environment.PlcObject execute(Bytecode.Chunk entry) {
+        Environment.PlcObject[] constants = program.getConstants();
+        List<Bytecode.Chunk> functions = program.getFunctions();
+        Environment.PlcObject[] stack = reserve(top, entry);
+        Bytecode.Chunk chunk = entry;
+        int[] code = chunk.getCode();
+        int entered = calls;
+        int depth = entered;
+        int base = top;
+        int sp = base + chunk.getFrameSize();
+        int ip = 0;
+        while (true) {
+            int opcode = code[ip++];
+            switch (opcode) {
+                case Bytecode.CONST:
+                    stack[sp++] = constants[code[ip++]];
+                    break;
+                case Bytecode.NIL:
+                    stack[sp++] = Environment.NIL;
+                    break;
+                case Bytecode.POP:
+                    stack[--sp] = null;
+                    break;
+                case Bytecode.LOAD:
+                    stack[sp++] = stack[base + code[ip++]];
+                    break;
+                case Bytecode.STORE:
+                    stack[base + code[ip++]] = stack[--sp];
+                    break;
+                case Bytecode.LOAD_GLOBAL:
+                    stack[sp++] = globals[code[ip++]];
+                    break;
+                case Bytecode.STORE_GLOBAL:
+                    globals[code[ip++]] = stack[--sp];
+                    break;
+                case Bytecode.LOAD_NAME:
+                    stack[sp++] = scope.lookupVariable((String) constants[code[ip++]].getValue()).getValue();
+                    break;
+                case Bytecode.STORE_NAME:
+                    store((String) constants[code[ip++]].getValue(), stack[--sp]);
+                    break;
+                case Bytecode.LIST: {
+                    int n = code[ip++];
+                    String type = (String) constants[code[ip++]].getValue();
+                    List<Object> list = new ArrayList<>(n);
+                    for (int i = sp - n; i < sp; i++) {
+                        list.add(stack[i].getValue());
+                    }
+                    sp -= n;
+                    stack[sp++] = Environment.create(TypedList.of(type, list));
+                    break;
+                }
+                case Bytecode.INDEX: {
+                    Environment.PlcObject offset = stack[--sp];
+                    stack[sp - 1] = TypedList.element(stack[sp - 1], offset);
+                    break;
+                }
+                case Bytecode.STORE_INDEX: {
+                    Environment.PlcObject value = stack[--sp];
+                    Environment.PlcObject offset = stack[--sp];
+                    TypedList.setElement(stack[--sp], offset, value);
+                    break;
+                }
+                case Bytecode.ADD:
+                case Bytecode.SUB:
+                case Bytecode.MUL:
+                case Bytecode.DIV:
+                case Bytecode.POW:
+                case Bytecode.LT:
+                case Bytecode.GT: {
+                    Environment.PlcObject right = stack[--sp];
+                    stack[sp - 1] = arithmetic(opcode, stack[sp - 1], right);
+                    break;
+                }
+                case Bytecode.EQ:
+                case Bytecode.NE: {
+                    Environment.PlcObject right = stack[--sp];
+                    boolean equal = Interpreter.equal(stack[sp - 1], right);
+                    stack[sp - 1] = equal == (opcode == Bytecode.EQ) ? Environment.TRUE : Environment.FALSE;
+                    break;
+                }
+                case Bytecode.CHECK_BOOLEAN:
+                    Interpreter.requireType(Boolean.class, stack[sp - 1]);
+                    break;
+                case Bytecode.MATCH: {
+                    Environment.PlcObject value = stack[--sp];
+                    stack[sp - 1] = value.getValue().equals(stack[sp - 1].getValue()) ? Environment.TRUE : Environment.FALSE;
+                    break;
+                }
+                case Bytecode.JUMP:
+                    Interpreter.checkInterrupted();
+                    ip = code[ip];
+                    break;
+                case Bytecode.JUMP_IF_FALSE:
+                    ip = truth(stack[--sp]) ? ip + 1 : code[ip];
+                    break;
+                case Bytecode.JUMP_IF_TRUE:
+                    ip = truth(stack[--sp]) ? code[ip] : ip + 1;
+                    break;
+                case Bytecode.CALL: {
+                    Interpreter.checkInterrupted();
+                    Bytecode.Chunk callee = functions.get(code[ip]);
+                    int arity = code[ip + 1];
+                    ip += 2;
+                    if (++depth == chunks.length) {
+                        chunks = Arrays.copyOf(chunks, depth * 2);
+                        bases = Arrays.copyOf(bases, depth * 2);
+                        returns = Arrays.copyOf(returns, depth * 2);
+                    }
+                    chunks[depth - 1] = chunk;
+                    bases[depth - 1] = base;
+                    returns[depth - 1] = ip;
+                    base = sp - arity;
+                    stack = reserve(base, callee);
+                    chunk = callee;
+                    code = chunk.getCode();
+                    sp = base + chunk.getFrameSize();
+                    ip = 0;
+                    break;
+                }
+                case Bytecode.TAIL_CALL: {
+                    Interpreter.checkInterrupted();
+                    int arity = code[ip + 1];
+                    System.arraycopy(stack, sp - arity, stack, base, arity);
+                    Arrays.fill(stack, base + arity, sp, null);
+                    sp = base + chunk.getFrameSize();
+                    ip = 0;
+                    break;
+                }
+                case Bytecode.NATIVE: {
+                    Environment.Function function = natives[code[ip]];
+                    int arity = code[ip + 1];
+                    if (function == null) {
+                        function = scope.lookupFunction((String) constants[code[ip]].getValue(), arity);
+                        natives[code[ip]] = function;
+                    }
+                    ip += 2;
+                    sp -= arity;
+                    int savedTop = top;
+                    int savedCalls = calls;
+                    top = sp;
+                    calls = depth;
+                    try {
+                        Environment.PlcObject result = invoke(function, stack, sp, arity);
+                        stack = this.stack;
+                        stack[sp++] = result;
+                    } finally {
+                        top = savedTop;
+                        calls = savedCalls;
+                    }
+                    break;
+                }
+                case Bytecode.RETURN: {
+                    Environment.PlcObject result = stack[--sp];
+                    Arrays.fill(stack, base, sp, null);
+                    if (depth == entered) {
+                        return result;
+                    }
+                    sp = base;
+                    depth--;
+                    chunk = chunks[depth];
+                    base = bases[depth];
+                    ip = returns[depth];
+                    chunks[depth] = null;
+                    code = chunk.getCode();
+                    stack[sp++] = result;
+                    break;
+                }
+                default:
+                    throw new IllegalStateException("Invalid opcode " + opcode + ".");
+            }
+        }
+    }
+
+    /**
+     * Calls a function of the scope with the arguments at the given index of
+     * the stack, through its entry point for their number, clearing their
+     * slots for the frames the function may call.
+     */
+    private static Environment.PlcObject invoke(Environment.Function function, Environment.PlcObject[] stack, int index, int arity) {
+        switch (arity) {
+            case 0:
+                return function.invoke();
+            case 1: {
+                Environment.PlcObject first = stack[index];
+                stack[index] = null;
+                return function.invoke(first);
+            }
+            case 2: {
+                Environment.PlcObject first = stack[index];
+                Environment.PlcObject second = stack[index + 1];
+                Arrays.fill(stack, index, index + 2, null);
+                return function.invoke(first, second);
+            }
+            case 3: {
+                Environment.PlcObject first = stack[index];
+                Environment.PlcObject second = stack[index + 1];
+                Environment.PlcObject third = stack[index + 2];
+                Arrays.fill(stack, index, index + 3, null);
+                return function.invoke(first, second, third);
+            }
+            case 4: {
+                Environment.PlcObject first = stack[index];
+                Environment.PlcObject second = stack[index + 1];
+                Environment.PlcObject third = stack[index + 2];
+                Environment.PlcObject fourth = stack[index + 3];
+                Arrays.fill(stack, index, index + 4, null);
+                return function.invoke(first, second, third, fourth);
+            }
+            default: {
+                Environment.PlcObject[] arguments = Arrays.copyOfRange(stack, index, index + arity);
+                Arrays.fill(stack, index, index + arity, null);
+                return function.invoke(arguments);
+            }
+        }
+    }
+
+    /**
+     * Evaluates an arithmetic or comparison instruction, with fast paths for
+     * Integers held as longs.
+     */
+    private static Environment.PlcObject arithmetic(int opcode, Environment.PlcObject left, Environment.PlcObject right) {
+        if (left.isLong() && right.isLong()) {
+            long l = left.getLong();
+            long r = right.getLong();
+            try {
+                switch (opcode) {
+                    case Bytecode.ADD:
+                    case Bytecode.SUB: // same as addition, see Interpreter.evaluate
+                        return Environment.createInteger(Math.addExact(l, r));
+                    case Bytecode.MUL:
+                        return Environment.createInteger(Math.multiplyExact(l, r));
+                    case Bytecode.LT:
+                        return l < r ? Environment.TRUE : Environment.FALSE;
+                    case Bytecode.GT:
+                        return l > r ? Environment.TRUE : Environment.FALSE;
+                }
+            } catch (ArithmeticException e) {
+                // overflow, which the generic case handles
+            }
+        }
+        switch (opcode) {
+            case Bytecode.ADD: return Interpreter.evaluate("+", left, right);
+            case Bytecode.SUB: return Interpreter.evaluate("-", left, right);
+            case Bytecode.MUL: return Interpreter.evaluate("*", left, right);
+            case Bytecode.DIV: return Interpreter.evaluate("/", left, right);
+            case Bytecode.POW: return Interpreter.evaluate("^", left, right);
+            case Bytecode.LT: return Interpreter.evaluate("<", left, right);
+            default: return Interpreter.evaluate(">", left, right);
+        }
+    }
+
+    private static boolean truth(Environment.PlcObject condition) {
+        if (condition == Environment.TRUE) {
+            return true;
+        } else if (condition == Environment.FALSE) {
+            return false;
+        }
+        return Interpreter.requireType(Boolean.class, condition);
+    }
+
+    /**
+     * Assigns a variable that is not declared in the source, defining it if it
+     * does not exist or is immutable, as the interpreter does.
+     */
+    private void store(String name, Environment.PlcObject value) {
+        try {
+            Environment.Variable variable = scope.lookupVariable(name);
+            if (variable.getMutable()) {
+                variable.setValue(value);
+                return;
+            }
+        } catch (RuntimeException e) {
+            // not defined
+        }
+        scope.defineVariable(name, true, value);
+    }
+
+    /**
+     * Ensures the stack has room for a frame of the given chunk at the given
+     * base. Statements leave the operand stack empty, so it never holds more
+     * values than the chunk has instructions.
+     */
+    private Environment.PlcObject[] reserve(int base, Bytecode.Chunk chunk) {
+        int size = base + chunk.getFrameSize() + chunk.getCode().length;
+        if (size > stack.length) {
+            stack = Arrays.copyOf(stack, Math.max(stack.length * 2, size));
+        }
+        return stack;
+    }
+
+}
@@ -527,6 +527,51 @@ public final class AnalyzerTests {
         );
     }
 
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    public void testPurity(String test, String input, boolean expected) {
+        Ast.Source ast = new Parser(new Lexer(input).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        Assertions.assertEquals(expected, ast.getFunctions().get(0).isPure());
+    }
+
+    private static Stream<Arguments> testPurity() {
+        return Stream.of(
+                Arguments.of("Locals and Constants", "VAL base: Integer = 10; FUN main(): Integer DO LET x = base; x = x * 2; RETURN x; END", true),
+                Arguments.of("Mutable Global Read", "VAR base: Integer = 10; FUN main(): Integer DO RETURN base; END", false),
+                Arguments.of("Global Write", "VAR base: Integer = 10; FUN main(): Integer DO base = 1; RETURN 0; END", false),
+                Arguments.of("List Write", "LIST list: Integer = [1]; FUN main(): Integer DO list[0] = 2; RETURN 0; END", false),
+                Arguments.of("Print", "FUN main(): Integer DO print(1); RETURN 0; END", false)
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    public void testPurityThroughCalls(String test, String function, boolean expected) {
+        // the analyzer defines one function per scope, so the effects of these are found directly
+        Ast.Source ast = new Parser(new Lexer("VAR count: Integer = 0; " +
+                "FUN square(x: Integer): Integer DO RETURN x * x; END " +
+                "FUN next(): Integer DO count = count + 1; RETURN count; END " +
+                "FUN even(n: Integer): Boolean DO IF n == 0 DO RETURN TRUE; END RETURN odd(n - 1); END " +
+                "FUN odd(n: Integer): Boolean DO IF n == 0 DO RETURN FALSE; END RETURN even(n - 1); END " +
+                "FUN sum(x: Integer): Integer DO RETURN square(x) + next(); END " +
+                "FUN leak(x: Integer): Integer DO y = x; RETURN x; END " +
+                "FUN show(x: Integer) DO print(square(x)); END"
+        ).lex()).parseSource();
+        Assertions.assertEquals(expected, new Effects(ast).isPure(function, 1));
+    }
+
+    private static Stream<Arguments> testPurityThroughCalls() {
+        return Stream.of(
+                Arguments.of("Pure", "square", true),
+                Arguments.of("Mutually Recursive", "even", true),
+                Arguments.of("Calls Impure", "sum", false),
+                Arguments.of("Calls Print", "show", false),
+                Arguments.of("Undeclared Write", "leak", false),
+                Arguments.of("Undefined", "undefined", false)
+        );
+    }
+
     /**
      * Helper function for tests. If {@param expected} is {@code null}, analysis
      * is expected to throw a {@link RuntimeException}.
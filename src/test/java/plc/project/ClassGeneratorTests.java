@@ -0,0 +1,215 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The sources here are analyzed by hand, as in {@link GeneratorTests}.
+ */
+public final class ClassGeneratorTests {
+
+    @Test
+    void testLoop() {
+        Assertions.assertEquals(90, ClassGenerator.run(loop(10)));
+    }
+
+    @Test
+    void testFunctions() {
+        // FUN square(x: Decimal): Decimal DO RETURN x * x; END
+        // FUN main(): Decimal DO RETURN square(1.5) ^ 2; END
+        Ast.Source source = new Ast.Source(Arrays.asList(), Arrays.asList(
+                function("square", Arrays.asList("x"), Arrays.asList(Environment.Type.DECIMAL), Environment.Type.DECIMAL,
+                        new Ast.Statement.Return(binary("*", access("x", Environment.Type.DECIMAL), access("x", Environment.Type.DECIMAL), Environment.Type.DECIMAL))
+                ),
+                function("main", Arrays.asList(), Arrays.asList(), Environment.Type.DECIMAL,
+                        new Ast.Statement.Return(binary("^",
+                                call("square", Arrays.asList(Environment.Type.DECIMAL), Environment.Type.DECIMAL, literal(new BigDecimal("1.5"))),
+                                literal(BigInteger.valueOf(2)),
+                                Environment.Type.DECIMAL
+                        ))
+                )
+        ));
+        Assertions.assertEquals(5.0625, ClassGenerator.run(source));
+    }
+
+    @Test
+    void testIntegerPower() {
+        // FUN main(): Integer DO RETURN 3 ^ 19; END
+        Assertions.assertEquals(1162261467, ClassGenerator.run(power(3, 19)));
+        Assertions.assertEquals(-1, ClassGenerator.run(power(-1, 7)));
+        Assertions.assertEquals(0, ClassGenerator.run(power(2, -1)));
+        // a power beyond an int fails rather than saturating as Math.pow does
+        Assertions.assertThrows(ArithmeticException.class, () -> ClassGenerator.run(power(2, 31)));
+        Assertions.assertThrows(ArithmeticException.class, () -> ClassGenerator.run(power(0, -1)));
+    }
+
+    @Test
+    void testControlFlow() {
+        // FUN main(): String DO
+        //     LET s = "";
+        //     SWITCH 2 CASE 1: s = s + "a"; CASE 2: s = s + "b"; CASE 3: s = s + "c"; DEFAULT s = s + "d"; END
+        //     IF TRUE && (1 > 2 || 'a' < 'b') DO s = s + 1; END
+        //     RETURN s;
+        // END
+        Ast.Source source = new Ast.Source(Arrays.asList(), Arrays.asList(
+                function("main", Arrays.asList(), Arrays.asList(), Environment.Type.STRING,
+                        let("s", Environment.Type.STRING, literal("")),
+                        new Ast.Statement.Switch(literal(BigInteger.valueOf(2)), Arrays.asList(
+                                new Ast.Statement.Case(Optional.of(literal(BigInteger.ONE)), Arrays.asList(append("a"))),
+                                new Ast.Statement.Case(Optional.of(literal(BigInteger.valueOf(2))), Arrays.asList(append("b"))),
+                                new Ast.Statement.Case(Optional.of(literal(BigInteger.valueOf(3))), Arrays.asList(append("c"))),
+                                new Ast.Statement.Case(Optional.empty(), Arrays.asList(append("d")))
+                        )),
+                        new Ast.Statement.If(binary("&&",
+                                literal(true),
+                                new Ast.Expression.Group(binary("||",
+                                        binary(">", literal(BigInteger.ONE), literal(BigInteger.valueOf(2)), Environment.Type.BOOLEAN),
+                                        binary("<", literal('a'), literal('b'), Environment.Type.BOOLEAN),
+                                        Environment.Type.BOOLEAN
+                                )),
+                                Environment.Type.BOOLEAN
+                        ), Arrays.asList(new Ast.Statement.Assignment(access("s", Environment.Type.STRING),
+                                binary("+", access("s", Environment.Type.STRING), literal(BigInteger.ONE), Environment.Type.STRING)
+                        )), Arrays.asList()),
+                        new Ast.Statement.Return(access("s", Environment.Type.STRING))
+                )
+        ));
+        Assertions.assertEquals("bcd1", ClassGenerator.run(source));
+    }
+
+    @Test
+    void testList() {
+        // LIST list: Integer = [1, 2, 3];
+        // FUN main(): Integer DO list[1] = list[0] + list[2]; print(list[1]); RETURN list[1]; END
+        Ast.Global list = new Ast.Global("list", "Integer", true, Optional.of(new Ast.Expression.PlcList(Arrays.asList(
+                literal(BigInteger.ONE), literal(BigInteger.valueOf(2)), literal(BigInteger.valueOf(3))
+        ))));
+        list.setVariable(new Environment.Variable("list", "list", Environment.Type.INTEGER, true, Environment.NIL));
+        ((Ast.Expression.PlcList) list.getValue().get()).setType(Environment.Type.INTEGER);
+        Ast.Expression.Function print = new Ast.Expression.Function("print", Arrays.asList(element(1)));
+        print.setFunction(new Environment.Function("print", "System.out.println", Arrays.asList(Environment.Type.ANY), Environment.Type.NIL, args -> Environment.NIL));
+        Ast.Source source = new Ast.Source(Arrays.asList(list), Arrays.asList(
+                function("main", Arrays.asList(), Arrays.asList(), Environment.Type.INTEGER,
+                        new Ast.Statement.Assignment(element(1), binary("+", element(0), element(2), Environment.Type.INTEGER)),
+                        new Ast.Statement.Expression(print),
+                        new Ast.Statement.Return(element(1))
+                )
+        ));
+
+        PrintStream sysout = System.out;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(out));
+        try {
+            Assertions.assertEquals(4, ClassGenerator.run(source));
+        } finally {
+            System.setOut(sysout);
+        }
+        Assertions.assertEquals("4", out.toString().trim());
+
+        Output.Memory output = new Output.Memory();
+        Assertions.assertEquals(4, ClassGenerator.run(source, output));
+        Assertions.assertEquals(Arrays.asList("4"), output.getLines());
+    }
+
+    /**
+     * VAR total: Integer = 0;
+     * FUN main(): Integer DO
+     *     LET i = 0;
+     *     WHILE i < n DO total = total + i * 2; i = i + 1; END
+     *     RETURN total;
+     * END
+     */
+    private static Ast.Source loop(int n) {
+        Ast.Global total = new Ast.Global("total", "Integer", true, Optional.of(literal(BigInteger.ZERO)));
+        total.setVariable(new Environment.Variable("total", "total", Environment.Type.INTEGER, true, Environment.NIL));
+        return new Ast.Source(Arrays.asList(total), Arrays.asList(
+                function("main", Arrays.asList(), Arrays.asList(), Environment.Type.INTEGER,
+                        let("i", Environment.Type.INTEGER, literal(BigInteger.ZERO)),
+                        new Ast.Statement.While(binary("<", access("i", Environment.Type.INTEGER), literal(BigInteger.valueOf(n)), Environment.Type.BOOLEAN), Arrays.asList(
+                                new Ast.Statement.Assignment(access("total", Environment.Type.INTEGER), binary("+",
+                                        access("total", Environment.Type.INTEGER),
+                                        binary("*", access("i", Environment.Type.INTEGER), literal(BigInteger.valueOf(2)), Environment.Type.INTEGER),
+                                        Environment.Type.INTEGER
+                                )),
+                                new Ast.Statement.Assignment(access("i", Environment.Type.INTEGER),
+                                        binary("+", access("i", Environment.Type.INTEGER), literal(BigInteger.ONE), Environment.Type.INTEGER))
+                        )),
+                        new Ast.Statement.Return(access("total", Environment.Type.INTEGER))
+                )
+        ));
+    }
+
+    private static Ast.Source power(long base, long exponent) {
+        return new Ast.Source(Arrays.asList(), Arrays.asList(
+                function("main", Arrays.asList(), Arrays.asList(), Environment.Type.INTEGER,
+                        new Ast.Statement.Return(binary("^", literal(BigInteger.valueOf(base)), literal(BigInteger.valueOf(exponent)), Environment.Type.INTEGER))
+                )
+        ));
+    }
+
+    private static Ast.Statement append(String suffix) {
+        return new Ast.Statement.Assignment(access("s", Environment.Type.STRING),
+                binary("+", access("s", Environment.Type.STRING), literal(suffix), Environment.Type.STRING));
+    }
+
+    private static Ast.Expression.Access element(int index) {
+        Ast.Expression.Access access = new Ast.Expression.Access(Optional.of(literal(BigInteger.valueOf(index))), "list");
+        access.setVariable(new Environment.Variable("list", "list", Environment.Type.INTEGER, true, Environment.NIL));
+        return access;
+    }
+
+    private static Ast.Function function(String name, List<String> parameters, List<Environment.Type> types, Environment.Type returnType, Ast.Statement... statements) {
+        Ast.Function function = new Ast.Function(name, parameters, Arrays.asList(statements));
+        function.setFunction(new Environment.Function(name, name, types, returnType, args -> Environment.NIL));
+        return function;
+    }
+
+    private static Ast.Expression.Function call(String name, List<Environment.Type> types, Environment.Type returnType, Ast.Expression... arguments) {
+        Ast.Expression.Function call = new Ast.Expression.Function(name, Arrays.asList(arguments));
+        call.setFunction(new Environment.Function(name, name, types, returnType, args -> Environment.NIL));
+        return call;
+    }
+
+    private static Ast.Statement.Declaration let(String name, Environment.Type type, Ast.Expression value) {
+        Ast.Statement.Declaration declaration = new Ast.Statement.Declaration(name, Optional.of(value));
+        declaration.setVariable(new Environment.Variable(name, name, type, true, Environment.NIL));
+        return declaration;
+    }
+
+    private static Ast.Expression.Access access(String name, Environment.Type type) {
+        Ast.Expression.Access access = new Ast.Expression.Access(Optional.empty(), name);
+        access.setVariable(new Environment.Variable(name, name, type, true, Environment.NIL));
+        return access;
+    }
+
+    private static Ast.Expression.Binary binary(String operator, Ast.Expression left, Ast.Expression right, Environment.Type type) {
+        Ast.Expression.Binary binary = new Ast.Expression.Binary(operator, left, right);
+        binary.setType(type);
+        return binary;
+    }
+
+    private static Ast.Expression.Literal literal(Object value) {
+        Ast.Expression.Literal literal = new Ast.Expression.Literal(value);
+        if (value instanceof BigInteger) {
+            literal.setType(Environment.Type.INTEGER);
+        } else if (value instanceof BigDecimal) {
+            literal.setType(Environment.Type.DECIMAL);
+        } else if (value instanceof Boolean) {
+            literal.setType(Environment.Type.BOOLEAN);
+        } else if (value instanceof Character) {
+            literal.setType(Environment.Type.CHARACTER);
+        } else {
+            literal.setType(Environment.Type.STRING);
+        }
+        return literal;
+    }
+
+}
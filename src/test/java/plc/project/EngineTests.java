@@ -0,0 +1,82 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public final class EngineTests {
+
+    @Test
+    void testConcurrentRuns() throws Exception {
+        Engine integers = engine("VAR total: Integer = 0; " +
+                "FUN add(x: Integer): Integer DO total = total + x; RETURN total; END " +
+                "FUN main(): Integer DO LET i = 0; WHILE i != 2000 DO add(i); i = i + 1; END RETURN total; END");
+        Engine strings = engine("FUN main(): String DO LET s = \"\"; LET i = 0; " +
+                "WHILE i != 100 DO s = s + i; i = i + 1; END RETURN s; END");
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            expected.append(i);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Object>> integerResults = new ArrayList<>();
+            List<Future<Object>> stringResults = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                integerResults.add(executor.submit((Callable<Object>) () -> integers.run().getValue()));
+                stringResults.add(executor.submit((Callable<Object>) () -> strings.run().getValue()));
+            }
+            // each run has its own globals, so none sees another's total
+            for (Future<Object> result : integerResults) {
+                Assertions.assertEquals(BigInteger.valueOf(1999000), result.get());
+            }
+            for (Future<Object> result : stringResults) {
+                Assertions.assertEquals(expected.toString(), result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testSharedBuiltins() {
+        Engine engine = engine("FUN main(): Integer DO RETURN converter(10, 2); END");
+        Interpreter interpreter = engine.newInterpreter();
+        Assertions.assertSame(Interpreter.BUILTINS, interpreter.getScope().getParent());
+        Assertions.assertEquals("1010", engine.run(interpreter).getValue());
+        Assertions.assertThrows(RuntimeException.class, () -> Interpreter.BUILTINS.defineFunction("print", 2, args -> Environment.NIL));
+        Assertions.assertThrows(RuntimeException.class, () -> Interpreter.BUILTINS.defineVariable("x", true, Environment.NIL));
+    }
+
+    @Test
+    void testOptimized() {
+        Ast.Source source = new Parser(new Lexer("VAR n: Integer = 10; FUN main(): Integer DO " +
+                "LET going: Boolean = TRUE; LET total: Integer = 0; " +
+                "WHILE going DO total = total + n * 2; going = FALSE; END RETURN total; END").lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(source);
+        Engine engine = new Engine(source);
+        // n * 2 is hoisted out of the loop into a temporary with a slot of its own
+        List<Ast.Statement> statements = engine.getSource().getFunctions().get(0).getStatements();
+        Ast.Statement.Declaration temporary = (Ast.Statement.Declaration) statements.get(2);
+        Assertions.assertEquals("$0", temporary.getName());
+        Ast.Statement.Assignment assignment = (Ast.Statement.Assignment) ((Ast.Statement.While) statements.get(3)).getStatements().get(0);
+        Ast.Expression.Access hoisted = (Ast.Expression.Access) ((Ast.Expression.Binary) assignment.getValue()).getRight();
+        Assertions.assertEquals("$0", hoisted.getName());
+        Assertions.assertEquals(temporary.getSlot(), hoisted.getSlot());
+        Assertions.assertNotEquals(-1, hoisted.getSlot());
+        Assertions.assertEquals(BigInteger.valueOf(20), engine.run().getValue());
+        Assertions.assertEquals(20, JavaRunner.run(source));
+    }
+
+    private static Engine engine(String input) {
+        return new Engine(new Parser(new Lexer(input).lex()).parseSource());
+    }
+
+}
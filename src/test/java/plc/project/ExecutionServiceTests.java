@@ -0,0 +1,65 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+public final class ExecutionServiceTests {
+
+    private static final Engine SUM = engine("VAR total: Integer = 0; " +
+            "FUN main(): Integer DO LET i = 0; WHILE i != 100 DO total = total + i; i = i + 1; END RETURN total; END");
+
+    private static final Engine FOREVER = engine("FUN main(): Integer DO WHILE TRUE DO END RETURN 0; END");
+
+    @Test
+    void testResults() throws Exception {
+        try (ExecutionService service = new ExecutionService(16, Duration.ofSeconds(10))) {
+            List<CompletableFuture<Environment.PlcObject>> results = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                results.add(service.submit(SUM));
+            }
+            for (CompletableFuture<Environment.PlcObject> result : results) {
+                Assertions.assertEquals(BigInteger.valueOf(4950), result.get().getValue());
+            }
+        }
+    }
+
+    @Test
+    void testTimeout() throws Exception {
+        try (ExecutionService service = new ExecutionService(1, Duration.ofSeconds(10))) {
+            CompletableFuture<Environment.PlcObject> forever = service.submit(FOREVER, Duration.ofMillis(50));
+            ExecutionException exception = Assertions.assertThrows(ExecutionException.class, forever::get);
+            Assertions.assertTrue(exception.getCause() instanceof TimeoutException, exception.getCause().toString());
+            // the interrupted run frees its place, so the next is admitted once it stops
+            CompletableFuture<Environment.PlcObject> next = service.submit(SUM);
+            for (int i = 0; i < 100 && next.isCompletedExceptionally(); i++) {
+                Thread.sleep(10);
+                next = service.submit(SUM);
+            }
+            Assertions.assertEquals(BigInteger.valueOf(4950), next.get().getValue());
+        }
+    }
+
+    @Test
+    void testAdmission() {
+        try (ExecutionService service = new ExecutionService(1, Duration.ofSeconds(10))) {
+            CompletableFuture<Environment.PlcObject> forever = service.submit(FOREVER, Duration.ofMillis(200));
+            ExecutionException exception = Assertions.assertThrows(ExecutionException.class, () -> service.submit(SUM).get());
+            Assertions.assertTrue(exception.getCause() instanceof RejectedExecutionException, exception.getCause().toString());
+            Assertions.assertThrows(ExecutionException.class, forever::get);
+        }
+    }
+
+    private static Engine engine(String input) {
+        return new Engine(new Parser(new Lexer(input).lex()).parseSource());
+    }
+
+}
@@ -10,9 +10,16 @@ import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -45,7 +52,63 @@ final class InterpreterTests {
                                         new Ast.Expression.Access(Optional.empty(), "x"),
                                         new Ast.Expression.Access(Optional.empty(), "y")                                ))
                         )))
-                ), Environment.NIL.getValue())
+                ), Environment.NIL.getValue()),
+                // FUN sum(n, total) DO IF n < 1 DO RETURN total; END RETURN sum(n + -1, total + n); END
+                // FUN main() DO RETURN sum(100000, 0); END
+                Arguments.of("Tail Recursion", new Ast.Source(
+                        Arrays.asList(),
+                        Arrays.asList(
+                                new Ast.Function("sum", Arrays.asList("n", "total"), Arrays.asList(
+                                        new Ast.Statement.If(
+                                                new Ast.Expression.Binary("<",
+                                                        new Ast.Expression.Access(Optional.empty(), "n"),
+                                                        new Ast.Expression.Literal(BigInteger.ONE)
+                                                ),
+                                                Arrays.asList(new Ast.Statement.Return(new Ast.Expression.Access(Optional.empty(), "total"))),
+                                                Arrays.asList()
+                                        ),
+                                        new Ast.Statement.Return(new Ast.Expression.Function("sum", Arrays.asList(
+                                                new Ast.Expression.Binary("+",
+                                                        new Ast.Expression.Access(Optional.empty(), "n"),
+                                                        new Ast.Expression.Literal(BigInteger.valueOf(-1))
+                                                ),
+                                                new Ast.Expression.Binary("+",
+                                                        new Ast.Expression.Access(Optional.empty(), "total"),
+                                                        new Ast.Expression.Access(Optional.empty(), "n")
+                                                )
+                                        )))
+                                )),
+                                new Ast.Function("main", Arrays.asList(), Arrays.asList(
+                                        new Ast.Statement.Return(new Ast.Expression.Function("sum", Arrays.asList(
+                                                new Ast.Expression.Literal(BigInteger.valueOf(100000)),
+                                                new Ast.Expression.Literal(BigInteger.ZERO)
+                                        )))
+                                ))
+                        )
+                ), BigInteger.valueOf(5000050000L)),
+                // FUN main() DO LET i = 0; WHILE TRUE DO IF i > 3 DO RETURN i; END i = i + 1; END RETURN -1; END
+                Arguments.of("Return From Loop", new Ast.Source(
+                        Arrays.asList(),
+                        Arrays.asList(new Ast.Function("main", Arrays.asList(), Arrays.asList(
+                                new Ast.Statement.Declaration("i", Optional.of(new Ast.Expression.Literal(BigInteger.ZERO))),
+                                new Ast.Statement.While(new Ast.Expression.Literal(true), Arrays.asList(
+                                        new Ast.Statement.If(
+                                                new Ast.Expression.Binary(">",
+                                                        new Ast.Expression.Access(Optional.empty(), "i"),
+                                                        new Ast.Expression.Literal(BigInteger.valueOf(3))
+                                                ),
+                                                Arrays.asList(new Ast.Statement.Return(new Ast.Expression.Access(Optional.empty(), "i"))),
+                                                Arrays.asList()
+                                        ),
+                                        new Ast.Statement.Assignment(new Ast.Expression.Access(Optional.empty(), "i"),
+                                                new Ast.Expression.Binary("+",
+                                                        new Ast.Expression.Access(Optional.empty(), "i"),
+                                                        new Ast.Expression.Literal(BigInteger.ONE)
+                                                ))
+                                )),
+                                new Ast.Statement.Return(new Ast.Expression.Literal(BigInteger.valueOf(-1)))
+                        )))
+                ), BigInteger.valueOf(4))
         );
     }
 
@@ -246,6 +309,301 @@ final class InterpreterTests {
         Assertions.assertEquals(new Character('n'), scope.lookupVariable("letter").getValue().getValue());
     }
 
+    @Test
+    void testSharedValues() {
+        Assertions.assertSame(Environment.TRUE, Environment.create(true));
+        Assertions.assertSame(Environment.createInteger(1), Environment.create(BigInteger.ONE));
+        Assertions.assertSame(Environment.create(new String("abc")), Environment.create(new String("abc")));
+        Assertions.assertEquals(BigInteger.valueOf(100000), Environment.createInteger(100000).getValue());
+    }
+
+    @Test
+    void testSpecializedBinary() {
+        // x + y, evaluated by the same interpreter as the operand types change
+        Scope scope = new Scope(null);
+        scope.defineVariable("x", true, Environment.create(BigInteger.ONE));
+        scope.defineVariable("y", true, Environment.create(BigInteger.TEN));
+        Ast.Expression.Binary ast = new Ast.Expression.Binary("+",
+                new Ast.Expression.Access(Optional.empty(), "x"),
+                new Ast.Expression.Access(Optional.empty(), "y")
+        );
+        Interpreter interpreter = new Interpreter(scope);
+        Assertions.assertEquals(BigInteger.valueOf(11), interpreter.visit(ast).getValue());
+        // the node is kept on the expression, for every interpreter evaluating it
+        Interpreter.Node node = ast.getNode();
+        Assertions.assertNotNull(node);
+        Assertions.assertEquals(BigInteger.valueOf(11), new Interpreter(scope).visit(ast).getValue());
+        Assertions.assertSame(node, ast.getNode());
+        scope.lookupVariable("x").setValue(Environment.create(BigInteger.valueOf(Long.MAX_VALUE)));
+        Assertions.assertEquals(BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.TEN), interpreter.visit(ast).getValue());
+        scope.lookupVariable("x").setValue(Environment.create("x"));
+        Assertions.assertEquals("x10", interpreter.visit(ast).getValue());
+        scope.lookupVariable("x").setValue(Environment.create(new BigDecimal("1.5")));
+        scope.lookupVariable("y").setValue(Environment.create(new BigDecimal("2.5")));
+        Assertions.assertEquals(new BigDecimal("4.0"), interpreter.visit(ast).getValue());
+        Assertions.assertThrows(RuntimeException.class, () -> {
+            scope.lookupVariable("y").setValue(Environment.create(true));
+            interpreter.visit(ast);
+        });
+    }
+
+    @Test
+    void testSwitchJumpTable() {
+        // SWITCH num CASE 1: total = total + 1; CASE 2: total = total + 10; DEFAULT: total = total + 100; END
+        Scope scope = new Scope(null);
+        scope.defineVariable("num", true, Environment.create(BigInteger.ONE));
+        scope.defineVariable("total", true, Environment.create(BigInteger.ZERO));
+        Ast.Statement.Switch ast = new Ast.Statement.Switch(new Ast.Expression.Access(Optional.empty(), "num"), Arrays.asList(
+                new Ast.Statement.Case(Optional.of(new Ast.Expression.Literal(BigInteger.ONE)), Arrays.asList(increment(1))),
+                new Ast.Statement.Case(Optional.of(new Ast.Expression.Literal(BigInteger.valueOf(2))), Arrays.asList(increment(10))),
+                new Ast.Statement.Case(Optional.empty(), Arrays.asList(increment(100)))
+        ));
+
+        // the same interpreter dispatches through the cached table on each run
+        Interpreter interpreter = new Interpreter(scope);
+        for (long num : new long[] {1, 2, 3, 2}) {
+            scope.lookupVariable("num").setValue(Environment.create(BigInteger.valueOf(num)));
+            interpreter.visit(ast);
+        }
+        Assertions.assertEquals(BigInteger.valueOf(121), scope.lookupVariable("total").getValue().getValue());
+    }
+
+    private static Ast.Statement increment(long amount) {
+        return new Ast.Statement.Assignment(new Ast.Expression.Access(Optional.empty(), "total"),
+                new Ast.Expression.Binary("+",
+                        new Ast.Expression.Access(Optional.empty(), "total"),
+                        new Ast.Expression.Literal(BigInteger.valueOf(amount))
+                ));
+    }
+
+    @Test
+    void testFunctionInlineCache() {
+        // function(), evaluated by the same interpreter as functions are defined
+        Scope scope = new Scope(null);
+        scope.defineFunction("function", 0, args -> Environment.create("outer"));
+        Ast.Expression.Function ast = new Ast.Expression.Function("function", Arrays.asList());
+        Interpreter interpreter = new Interpreter(scope);
+        Assertions.assertEquals("outer", interpreter.visit(ast).getValue());
+        Ast.Expression.Function.Target target = ast.getTarget();
+        Assertions.assertEquals("outer", interpreter.visit(ast).getValue());
+        Assertions.assertSame(target, ast.getTarget());
+        // functions defined in scopes the lookup does not pass keep the cache
+        new Interpreter(scope);
+        Assertions.assertEquals("outer", interpreter.visit(ast).getValue());
+        Assertions.assertSame(target, ast.getTarget());
+        // a function shadowing the cached one invalidates the cache
+        interpreter.getScope().defineFunction("function", 0, args -> Environment.create("inner"));
+        Assertions.assertEquals("inner", interpreter.visit(ast).getValue());
+        Assertions.assertNotSame(target, ast.getTarget());
+        // so does a call from another scope
+        Assertions.assertEquals("outer", new Interpreter(scope).visit(ast).getValue());
+    }
+
+    @Test
+    void testFunctionInlineCacheLoop() {
+        // each iteration of an unresolved loop runs in a new scope, which defines no functions
+        Ast.Source source = new Parser(new Lexer("FUN main(): Integer DO LET i = 0; " +
+                "WHILE i != 5 DO record(); i = i + 1; END RETURN i; END").lex()).parseSource();
+        Ast.Statement.While loop = (Ast.Statement.While) source.getFunctions().get(0).getStatements().get(1);
+        Ast.Expression.Function call = (Ast.Expression.Function) ((Ast.Statement.Expression) loop.getStatements().get(0)).getExpression();
+        List<Ast.Expression.Function.Target> targets = new ArrayList<>();
+        Scope scope = new Scope(null);
+        scope.defineFunction("record", 0, args -> {
+            targets.add(call.getTarget());
+            return Environment.NIL;
+        });
+        Assertions.assertEquals(BigInteger.valueOf(5), new Interpreter(scope).visit(source).getValue());
+        Assertions.assertEquals(5, targets.size());
+        Assertions.assertNotNull(targets.get(0));
+        Assertions.assertEquals(1, targets.stream().distinct().count(), targets.toString());
+
+        // a resolved call is cached by each interpreter on its own, leaving the call as it was
+        Ast.Expression.Function.Target unresolved = call.getTarget();
+        new Resolver().visit(source);
+        Assertions.assertNotEquals(-1, call.getSlot());
+        Assertions.assertEquals(BigInteger.valueOf(5), new Interpreter(scope).visit(source).getValue());
+        Assertions.assertSame(unresolved, call.getTarget());
+    }
+
+    @Test
+    void testFunctionArities() {
+        // each way of defining a function is reached by each way of calling it
+        Scope scope = new Scope(null);
+        scope.defineFunction("concat", (first, second) -> Environment.create(first.getValue() + "" + second.getValue()));
+        scope.defineFunction("concat", 5, args -> Environment.create(args.stream().map(arg -> arg.getValue().toString()).collect(Collectors.joining())));
+        Environment.Function concat = scope.lookupFunction("concat", 2);
+        Assertions.assertEquals("ab", concat.invoke(Environment.create("a"), Environment.create("b")).getValue());
+        Assertions.assertEquals("ab", concat.invoke(Arrays.asList(Environment.create("a"), Environment.create("b"))).getValue());
+        Environment.Function concat5 = scope.lookupFunction("concat", 5);
+        Assertions.assertEquals("abcde", concat5.invoke(Environment.create("a"), Environment.create("b"),
+                Environment.create("c"), Environment.create("d"), Environment.create("e")).getValue());
+
+        // concat(concat('a', 1), 2, 3, 4, 5)
+        Ast.Expression.Function ast = new Ast.Expression.Function("concat", Arrays.asList(
+                new Ast.Expression.Function("concat", Arrays.asList(new Ast.Expression.Literal('a'), new Ast.Expression.Literal(BigInteger.ONE))),
+                new Ast.Expression.Literal(BigInteger.valueOf(2)),
+                new Ast.Expression.Literal(BigInteger.valueOf(3)),
+                new Ast.Expression.Literal(BigInteger.valueOf(4)),
+                new Ast.Expression.Literal(BigInteger.valueOf(5))
+        ));
+        test(ast, "a12345", scope);
+    }
+
+    @Test
+    void testMemoization() {
+        // the analyzer does not define parameters, so square is marked pure by hand
+        Ast.Source source = new Parser(new Lexer(
+                "FUN square(x: Integer): Integer DO RETURN x * x; END " +
+                "FUN main(): Integer DO RETURN square(3) + square(3) + square(4) + square(3); END"
+        ).lex()).parseSource();
+        source.getFunctions().get(0).setPure(true);
+
+        Interpreter interpreter = new Interpreter(new Scope(null));
+        Assertions.assertEquals(BigInteger.valueOf(43), interpreter.visit(source).getValue());
+        Assertions.assertEquals(2, interpreter.getMemoHits());
+        Assertions.assertEquals(2, interpreter.getMemoMisses());
+
+        // with room for one result, square(4) evicts square(3)
+        interpreter = new Interpreter(new Scope(null));
+        interpreter.setMemoCapacity(1);
+        Assertions.assertEquals(BigInteger.valueOf(43), interpreter.visit(source).getValue());
+        Assertions.assertEquals(1, interpreter.getMemoHits());
+        Assertions.assertEquals(3, interpreter.getMemoMisses());
+
+        interpreter = new Interpreter(new Scope(null));
+        interpreter.setMemoCapacity(0);
+        Assertions.assertEquals(BigInteger.valueOf(43), interpreter.visit(source).getValue());
+        Assertions.assertEquals(0, interpreter.getMemoHits() + interpreter.getMemoMisses());
+
+        // an Integer is the same argument however it was created
+        source = new Parser(new Lexer(
+                "FUN square(x: Integer): Integer DO RETURN x * x; END " +
+                "FUN main(): Integer DO RETURN square(1000) + square(big()); END"
+        ).lex()).parseSource();
+        source.getFunctions().get(0).setPure(true);
+        Scope scope = new Scope(null);
+        scope.defineFunction("big", () -> Environment.create(BigInteger.valueOf(1000)));
+        interpreter = new Interpreter(scope);
+        Assertions.assertEquals(BigInteger.valueOf(2000000), interpreter.visit(source).getValue());
+        Assertions.assertEquals(1, interpreter.getMemoHits());
+        Assertions.assertEquals(1, interpreter.getMemoMisses());
+    }
+
+    @Test
+    void testListBuiltins() {
+        // a permutation of 0 to 4999, long enough to be split
+        String xs = IntStream.range(0, 5000).mapToObj(i -> String.valueOf(i * 7919 % 5000)).collect(Collectors.joining(", "));
+        String functions = "LIST xs: Integer = [" + xs + "]; " +
+                "FUN square(x: Integer): Integer DO RETURN x * x; END " +
+                "FUN add(x: Integer, y: Integer): Integer DO RETURN x + y; END " +
+                "FUN even(x: Integer): Boolean DO RETURN x / 2 * 2 == x; END " +
+                "FUN descending(x: Integer, y: Integer): Integer DO RETURN y + x * -1; END ";
+        BigInteger squares = IntStream.range(0, 5000).mapToObj(i -> BigInteger.valueOf(i).pow(2)).reduce(BigInteger.ZERO, BigInteger::add);
+        List<Object> evens = IntStream.range(0, 5000).map(i -> i * 7919 % 5000).filter(i -> i % 2 == 0)
+                .mapToObj(BigInteger::valueOf).collect(Collectors.toList());
+        List<Object> sorted = IntStream.range(0, 5000).mapToObj(BigInteger::valueOf).collect(Collectors.toList());
+        List<Object> reversed = IntStream.range(0, 5000).map(i -> 4999 - i).mapToObj(BigInteger::valueOf).collect(Collectors.toList());
+
+        // in parallel when the functions are pure, sequentially otherwise
+        for (boolean pure : Arrays.asList(true, false)) {
+            Assertions.assertEquals(squares, runList(functions + "FUN main(): Integer DO RETURN reduce(map(xs, \"square\"), \"add\", 0); END", pure));
+            Assertions.assertEquals(evens, runList(functions + "FUN main(): Integer DO RETURN filter(xs, \"even\"); END", pure));
+            Assertions.assertEquals(sorted, runList(functions + "FUN main(): Integer DO RETURN sort(xs); END", pure));
+            Assertions.assertEquals(reversed, runList(functions + "FUN main(): Integer DO RETURN sort(xs, \"descending\"); END", pure));
+        }
+        Assertions.assertEquals(BigInteger.ONE, runList(functions +
+                "FUN none(x: Integer): Boolean DO RETURN FALSE; END FUN main(): Integer DO RETURN reduce(filter(xs, \"none\"), \"add\", 1); END", true));
+        Assertions.assertThrows(RuntimeException.class, () -> runList(functions + "FUN main(): Integer DO RETURN map(xs, \"missing\"); END", true));
+    }
+
+    @Test
+    void testReduceFoldsLeft() {
+        // f(f(f(1, 1), 2), 3), which is not associative
+        Assertions.assertEquals(BigInteger.valueOf(19), runList("LIST xs: Integer = [1, 2, 3]; " +
+                "FUN f(a: Integer, b: Integer): Integer DO RETURN a * 2 + b; END " +
+                "FUN main(): Integer DO RETURN reduce(xs, \"f\", 1); END", false));
+        // an Integer accumulator over Strings, even when the list is split
+        String strings = String.join(", ", Collections.nCopies(5000, "\"a\""));
+        for (String list : Arrays.asList("[\"a\", \"bb\", \"ccc\"]", "[" + strings + "]")) {
+            Assertions.assertEquals(BigInteger.valueOf(list.length() < 20 ? 3 : 5000), runList("LIST xs: Any = " + list + "; " +
+                    "FUN count(n: Integer, s: String): Integer DO RETURN n + 1; END " +
+                    "FUN main(): Integer DO RETURN reduce(xs, \"count\", 0); END", false));
+        }
+    }
+
+    private static Object runList(String input, boolean pure) {
+        Ast.Source source = new Parser(new Lexer(input).lex()).parseSource();
+        for (Ast.Function function : source.getFunctions()) {
+            function.setPure(pure && !function.getName().equals("main"));
+        }
+        return new Interpreter(new Scope(null)).visit(source).getValue();
+    }
+
+    @Test
+    void testConcatenation() {
+        // a 1MB String, built by appending in place rather than copying
+        Ast.Source source = new Parser(new Lexer("FUN main(): String DO LET s = \"\"; LET i = 0; " +
+                "WHILE i != 200000 DO s = s + \"abcd\" + 5; i = i + 1; END RETURN s; END").lex()).parseSource();
+        Object result = new Interpreter(new Scope(null)).visit(source).getValue();
+        Assertions.assertEquals(1000000, ((String) result).length());
+        Assertions.assertTrue(((String) result).startsWith("abcd5abcd5"));
+
+        // concatenations onto the same String each see only their own suffix
+        Environment.PlcObject prefix = Environment.concatenate(Environment.create(String.join("", Collections.nCopies(300, "a"))), Environment.create("b"));
+        Environment.PlcObject first = Environment.concatenate(prefix, Environment.create("c"));
+        Environment.PlcObject second = Environment.concatenate(prefix, Environment.create(BigInteger.ONE));
+        Assertions.assertTrue(prefix.isString());
+        Assertions.assertTrue(((String) first.getValue()).endsWith("abc"));
+        Assertions.assertTrue(((String) second.getValue()).endsWith("ab1"));
+        Assertions.assertEquals(301, ((String) prefix.getValue()).length());
+        Assertions.assertTrue(Interpreter.equal(Environment.create(prefix.getValue()), prefix));
+    }
+
+    @Test
+    void testTieredExecution() throws InterruptedException {
+        // FUN square(x) DO RETURN x * x; END, hot after two calls
+        Ast.Function ast = new Ast.Function("square", Arrays.asList("x"), Arrays.asList(
+                new Ast.Statement.Return(new Ast.Expression.Binary("*",
+                        new Ast.Expression.Access(Optional.empty(), "x"),
+                        new Ast.Expression.Access(Optional.empty(), "x")
+                ))
+        ));
+        new Resolver().visit(new Ast.Source(Arrays.asList(), Arrays.asList(ast)));
+        List<String> messages = new CopyOnWriteArrayList<>();
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                messages.add(record.getMessage());
+            }
+
+            @Override
+            public void flush() {}
+
+            @Override
+            public void close() {}
+        };
+        Logger logger = Logger.getLogger(Interpreter.class.getName());
+        Level level = logger.getLevel();
+        logger.setLevel(Level.FINE);
+        logger.addHandler(handler);
+        try {
+            Interpreter interpreter = new Interpreter(null);
+            interpreter.setThresholds(2, Integer.MAX_VALUE);
+            interpreter.visit(ast);
+            Environment.Function square = interpreter.getScope().lookupFunction("square", 1);
+            // compilation finishes in the background, so keep calling until it is installed
+            for (long i = 0; i < 1000 && !messages.contains("Installed compiled square/1"); i++) {
+                Assertions.assertEquals(BigInteger.valueOf(i * i), square.invoke(Arrays.asList(Environment.createInteger(i))).getValue());
+                Thread.sleep(1);
+            }
+            Assertions.assertEquals(Arrays.asList("Compiling square/1 after 2 calls", "Installed compiled square/1"), messages);
+            Assertions.assertEquals(BigInteger.valueOf(144), square.invoke(Arrays.asList(Environment.createInteger(12))).getValue());
+        } finally {
+            logger.removeHandler(handler);
+            logger.setLevel(level);
+        }
+    }
+
     @Test
     void testWhileStatement() {
         // WHILE num < 10 DO num = num + 1; END
@@ -351,6 +709,14 @@ final class InterpreterTests {
                         ),
                         false
                 ),
+                // 1000 == 1000
+                Arguments.of("Equal (Values)",
+                        new Ast.Expression.Binary("==",
+                                new Ast.Expression.Literal(BigInteger.valueOf(1000)),
+                                new Ast.Expression.Literal(BigInteger.valueOf(1000))
+                        ),
+                        true
+                ),
                 // "a" + "b"
                 Arguments.of("Concatenation",
                         new Ast.Expression.Binary("+",
@@ -367,6 +733,30 @@ final class InterpreterTests {
                         ),
                         BigInteger.valueOf(11)
                 ),
+                // 9223372036854775807 + 1
+                Arguments.of("Addition (Overflow)",
+                        new Ast.Expression.Binary("+",
+                                new Ast.Expression.Literal(BigInteger.valueOf(Long.MAX_VALUE)),
+                                new Ast.Expression.Literal(BigInteger.ONE)
+                        ),
+                        BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE)
+                ),
+                // 4294967296 * 4294967296
+                Arguments.of("Multiplication (Overflow)",
+                        new Ast.Expression.Binary("*",
+                                new Ast.Expression.Literal(BigInteger.valueOf(1L << 32)),
+                                new Ast.Expression.Literal(BigInteger.valueOf(1L << 32))
+                        ),
+                        BigInteger.ONE.shiftLeft(64)
+                ),
+                // -7 / 2
+                Arguments.of("Integer Division",
+                        new Ast.Expression.Binary("/",
+                                new Ast.Expression.Literal(BigInteger.valueOf(-7)),
+                                new Ast.Expression.Literal(BigInteger.valueOf(2))
+                        ),
+                        BigInteger.valueOf(-3)
+                ),
                 // 1.2 / 3.4
                 Arguments.of("Division",
                         new Ast.Expression.Binary("/",
@@ -374,6 +764,46 @@ final class InterpreterTests {
                                 new Ast.Expression.Literal(new BigDecimal("3.4"))
                         ),
                         new BigDecimal("0.4")
+                ),
+                // 2 ^ 1000
+                Arguments.of("Power",
+                        new Ast.Expression.Binary("^",
+                                new Ast.Expression.Literal(BigInteger.valueOf(2)),
+                                new Ast.Expression.Literal(BigInteger.valueOf(1000))
+                        ),
+                        BigInteger.valueOf(2).pow(1000)
+                ),
+                // -1 ^ 1000000000001
+                Arguments.of("Power (Large Exponent)",
+                        new Ast.Expression.Binary("^",
+                                new Ast.Expression.Literal(BigInteger.valueOf(-1)),
+                                new Ast.Expression.Literal(BigInteger.valueOf(1000000000001L))
+                        ),
+                        BigInteger.valueOf(-1)
+                ),
+                // 2 ^ -1
+                Arguments.of("Power (Negative Integer)",
+                        new Ast.Expression.Binary("^",
+                                new Ast.Expression.Literal(BigInteger.valueOf(2)),
+                                new Ast.Expression.Literal(BigInteger.valueOf(-1))
+                        ),
+                        BigInteger.ZERO
+                ),
+                // 1.5 ^ 3
+                Arguments.of("Power (Decimal)",
+                        new Ast.Expression.Binary("^",
+                                new Ast.Expression.Literal(new BigDecimal("1.5")),
+                                new Ast.Expression.Literal(BigInteger.valueOf(3))
+                        ),
+                        new BigDecimal("3.375")
+                ),
+                // 3.0 ^ -1
+                Arguments.of("Power (Negative Decimal)",
+                        new Ast.Expression.Binary("^",
+                                new Ast.Expression.Literal(new BigDecimal("3.0")),
+                                new Ast.Expression.Literal(BigInteger.valueOf(-1))
+                        ),
+                        new BigDecimal("0.3333333333333333333333333333333333")
                 )
         );
     }
@@ -0,0 +1,98 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+public final class JavaRunnerTests {
+
+    @Test
+    void testRun() {
+        Ast.Source source = analyze("VAR total: Integer = 40; " +
+                "FUN main(): Integer DO LET i = 2; total = total + i; RETURN total; END");
+        Assertions.assertEquals(42, JavaRunner.run(source));
+        // each run loads its own class, with fresh globals
+        Assertions.assertEquals(42, JavaRunner.run(source));
+    }
+
+    @Test
+    void testNonIntegerMain() {
+        // FUN main(): String DO RETURN "done"; END
+        Assertions.assertEquals("done", JavaRunner.run(main(Environment.Type.STRING, "done")));
+        // FUN main(): Decimal DO RETURN 1.5; END
+        Assertions.assertEquals(1.5, JavaRunner.run(main(Environment.Type.DECIMAL, new BigDecimal("1.5"))));
+    }
+
+    @Test
+    void testIntegerPower() {
+        // FUN main(): Integer DO RETURN 3 ^ 19; END
+        Assertions.assertEquals(1162261467, JavaRunner.run(power(3, 19)));
+        // a power beyond an int fails rather than saturating as Math.pow does
+        Assertions.assertThrows(ArithmeticException.class, () -> JavaRunner.run(power(2, 31)));
+    }
+
+    @Test
+    void testListBuiltins() {
+        // only the interpreter runs them, so both compilers reject them
+        Ast.Source source = analyze("LIST xs: Integer = [2, 1]; FUN main(): Integer DO sort(xs); RETURN 0; END");
+        UnsupportedOperationException exception = Assertions.assertThrows(UnsupportedOperationException.class, () -> JavaRunner.run(source));
+        Assertions.assertEquals("The builtin sort/1 is only run by the Interpreter.", exception.getMessage());
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> ClassGenerator.run(source));
+    }
+
+    @Test
+    void testIsolated() {
+        Class<?> main = JavaRunner.compile("public class Main { int main() { return 0; } }");
+        Assertions.assertNotSame(getClass().getClassLoader(), main.getClassLoader());
+        Assertions.assertThrows(ClassNotFoundException.class, () -> main.getClassLoader().loadClass(JavaRunner.class.getName()));
+    }
+
+    @Test
+    void testCompileError() {
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class,
+                () -> JavaRunner.compile("public class Main { int main() { return undefined; } }"));
+        Assertions.assertTrue(exception.getMessage().contains("undefined"), exception.getMessage());
+    }
+
+    /**
+     * Creates a source returning the power of two Integers, analyzed by hand
+     * as the parser does not accept {@code ^}.
+     */
+    private static Ast.Source power(long base, long exponent) {
+        Ast.Expression.Literal left = new Ast.Expression.Literal(BigInteger.valueOf(base));
+        left.setType(Environment.Type.INTEGER);
+        Ast.Expression.Literal right = new Ast.Expression.Literal(BigInteger.valueOf(exponent));
+        right.setType(Environment.Type.INTEGER);
+        Ast.Expression.Binary power = new Ast.Expression.Binary("^", left, right);
+        power.setType(Environment.Type.INTEGER);
+        return main(Environment.Type.INTEGER, power);
+    }
+
+    /**
+     * Creates a source whose main function returns the given literal or
+     * expression, analyzed by hand as the analyzer requires an Integer main.
+     */
+    private static Ast.Source main(Environment.Type type, Object value) {
+        Ast.Expression expression;
+        if (value instanceof Ast.Expression) {
+            expression = (Ast.Expression) value;
+        } else {
+            Ast.Expression.Literal literal = new Ast.Expression.Literal(value);
+            literal.setType(type);
+            expression = literal;
+        }
+        Ast.Function main = new Ast.Function("main", Arrays.asList(), Arrays.asList(new Ast.Statement.Return(expression)));
+        main.setFunction(new Environment.Function("main", "main", Arrays.asList(), type, args -> Environment.NIL));
+        return new Ast.Source(Arrays.asList(), Arrays.asList(main));
+    }
+
+    private static Ast.Source analyze(String input) {
+        Ast.Source source = new Parser(new Lexer(input).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(source);
+        return source;
+    }
+
+}
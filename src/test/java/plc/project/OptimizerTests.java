@@ -0,0 +1,232 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * The optimizer only rewrites analyzed ASTs, so these tests build ASTs with
+ * their types and variables already set, as the analyzer would.
+ */
+public final class OptimizerTests {
+
+    @Test
+    void testHoistInvariant() {
+        // VAR n: Integer = 10;
+        // FUN main(): Integer DO
+        //     LET i = 0; LET total = 0;
+        //     WHILE i < n DO total = total + n * 2; i = i + 1; END
+        //     RETURN total;
+        // END
+        Ast.Source source = source(Arrays.asList(
+                new Ast.Statement.Assignment(access("total"), binary("+", access("total"), binary("*", access("n"), integer(2)))),
+                new Ast.Statement.Assignment(access("i"), binary("+", access("i"), integer(1)))
+        ));
+        List<Ast.Statement> statements = optimize(source).getFunctions().get(0).getStatements();
+
+        Ast.Statement.Declaration temporary = init(new Ast.Statement.Declaration("$0", Optional.of("Integer"), Optional.of(binary("*", access("n"), integer(2)))),
+                ast -> ast.setVariable(new Environment.Variable("$0", "$0", Environment.Type.INTEGER, true, Environment.NIL)));
+        Ast.Expression.Access hoisted = init(new Ast.Expression.Access(Optional.empty(), "$0"),
+                ast -> ast.setVariable(temporary.getVariable()));
+        Assertions.assertEquals(temporary, statements.get(2));
+        Assertions.assertEquals(new Ast.Statement.While(binary("<", access("i"), access("n")), Arrays.asList(
+                new Ast.Statement.Assignment(access("total"), binary("+", access("total"), hoisted)),
+                new Ast.Statement.Assignment(access("i"), binary("+", access("i"), integer(1)))
+        )), statements.get(3));
+        Assertions.assertEquals(BigInteger.valueOf(200), new Interpreter(new Scope(null)).visit(optimize(source)).getValue());
+    }
+
+    @Test
+    void testAssignedOperandNotHoisted() {
+        // WHILE i < n DO total = total + n * 2; n = n + 1; i = i + 1; END
+        Ast.Source source = source(Arrays.asList(
+                new Ast.Statement.Assignment(access("total"), binary("+", access("total"), binary("*", access("n"), integer(2)))),
+                new Ast.Statement.Assignment(access("n"), binary("+", access("n"), integer(1))),
+                new Ast.Statement.Assignment(access("i"), binary("+", access("i"), integer(1)))
+        ));
+        Assertions.assertSame(source, optimize(source));
+    }
+
+    @Test
+    void testCallWritingOperandNotHoisted() {
+        // FUN bump() DO n = n + 1; END
+        // WHILE i < n DO total = total + n * 2; bump(); i = i + 1; END
+        Ast.Source source = source(Arrays.asList(
+                new Ast.Statement.Assignment(access("total"), binary("+", access("total"), binary("*", access("n"), integer(2)))),
+                new Ast.Statement.Expression(new Ast.Expression.Function("bump", Arrays.asList())),
+                new Ast.Statement.Assignment(access("i"), binary("+", access("i"), integer(1)))
+        ));
+        Ast.Source withBump = new Ast.Source(source.getGlobals(), Arrays.asList(
+                source.getFunctions().get(0),
+                new Ast.Function("bump", Arrays.asList(), Arrays.asList(
+                        new Ast.Statement.Assignment(access("n"), binary("+", access("n"), integer(1)))
+                ))
+        ));
+        Assertions.assertSame(withBump, optimize(withBump));
+    }
+
+    @Test
+    void testDivisionNotHoisted() {
+        // WHILE i < n DO total = total + n / 2; i = i + 1; END
+        Ast.Source source = source(Arrays.asList(
+                new Ast.Statement.Assignment(access("total"), binary("+", access("total"), binary("/", access("n"), integer(2)))),
+                new Ast.Statement.Assignment(access("i"), binary("+", access("i"), integer(1)))
+        ));
+        Assertions.assertSame(source, optimize(source));
+    }
+
+    @Test
+    void testGeneratorHoistedForm() {
+        Ast.Source source = source(Arrays.asList(
+                new Ast.Statement.Assignment(access("total"), binary("+", access("total"), binary("*", access("n"), integer(2)))),
+                new Ast.Statement.Assignment(access("i"), binary("+", access("i"), integer(1)))
+        ));
+        StringWriter writer = new StringWriter();
+        new Generator(new PrintWriter(writer)).visit(optimize(source).getFunctions().get(0));
+        Assertions.assertEquals(String.join(System.lineSeparator(),
+                "int main() {",
+                "    int i = 0;",
+                "    int total = 0;",
+                "    int $0 = n * 2;",
+                "    while (i < n) {",
+                "        total = total + $0;",
+                "        i = i + 1;",
+                "    }",
+                "    return total;",
+                "}"
+        ), writer.toString());
+    }
+
+    @Test
+    void testPowerReduced() {
+        // WHILE i < n DO total = total + n ^ 2; i = i + 1; END
+        Ast.Source source = source(Arrays.asList(
+                new Ast.Statement.Assignment(access("total"), binary("+", access("total"), binary("^", access("n"), integer(2)))),
+                new Ast.Statement.Assignment(access("i"), binary("+", access("i"), integer(1)))
+        ));
+        List<Ast.Statement> statements = optimize(source).getFunctions().get(0).getStatements();
+
+        // the product is invariant, so it is also hoisted
+        Assertions.assertEquals(binary("*", access("n"), access("n")), ((Ast.Statement.Declaration) statements.get(2)).getValue().get());
+        Assertions.assertEquals(BigInteger.valueOf(1000), new Interpreter(new Scope(null)).visit(optimize(source)).getValue());
+    }
+
+    @Test
+    void testCommonSubexpression() {
+        // LET a = n * 2 + 1; LET b = n * 2 + 3;
+        Ast.Source source = source(Arrays.asList(
+                declaration("a", binary("+", binary("*", access("n"), integer(2)), integer(1))),
+                declaration("b", binary("+", binary("*", access("n"), integer(2)), integer(3)))
+        ), Arrays.asList(new Ast.Statement.Assignment(access("i"), binary("+", access("i"), integer(1)))));
+        List<Ast.Statement> statements = optimize(source).getFunctions().get(0).getStatements();
+
+        Ast.Statement.Declaration temporary = init(new Ast.Statement.Declaration("$0", Optional.of("Integer"), Optional.of(binary("*", access("n"), integer(2)))),
+                ast -> ast.setVariable(new Environment.Variable("$0", "$0", Environment.Type.INTEGER, true, Environment.NIL)));
+        Ast.Expression.Access shared = init(new Ast.Expression.Access(Optional.empty(), "$0"),
+                ast -> ast.setVariable(temporary.getVariable()));
+        Assertions.assertEquals(Arrays.asList(
+                temporary,
+                declaration("a", binary("+", shared, integer(1))),
+                declaration("b", binary("+", shared, integer(3)))
+        ), statements.subList(2, 5));
+    }
+
+    @Test
+    void testCommonSubexpressionInvalidated() {
+        // LET a = n * 2; n = 5; LET b = n * 2;
+        Ast.Source source = source(Arrays.asList(
+                declaration("a", binary("*", access("n"), integer(2))),
+                new Ast.Statement.Assignment(access("n"), integer(5)),
+                declaration("b", binary("*", access("n"), integer(2)))
+        ), Arrays.asList(new Ast.Statement.Assignment(access("i"), binary("+", access("i"), integer(1)))));
+        Assertions.assertSame(source, optimize(source));
+    }
+
+    @Test
+    void testListAccessInvalidated() {
+        // LET a = list[i] + 1; list[0] = 5; LET b = list[i] + 1;
+        Ast.Expression.Access element = init(new Ast.Expression.Access(Optional.of(access("i")), "list"), ast -> ast.setVariable(variable("list")));
+        Ast.Source source = source(Arrays.asList(
+                declaration("a", binary("+", element, integer(1))),
+                new Ast.Statement.Assignment(init(new Ast.Expression.Access(Optional.of(integer(0)), "list"), ast -> ast.setVariable(variable("list"))), integer(5)),
+                declaration("b", binary("+", element, integer(1)))
+        ), Arrays.asList(new Ast.Statement.Assignment(access("i"), binary("+", access("i"), integer(1)))));
+        Assertions.assertSame(source, optimize(source));
+
+        // LET a = list[i] + 1; LET b = list[i] + 1;
+        Ast.Source shared = source(Arrays.asList(
+                declaration("a", binary("+", element, integer(1))),
+                declaration("b", binary("+", element, integer(1)))
+        ), Arrays.asList(new Ast.Statement.Assignment(access("i"), binary("+", access("i"), integer(1)))));
+        List<Ast.Statement> statements = optimize(shared).getFunctions().get(0).getStatements();
+        Assertions.assertEquals(binary("+", element, integer(1)), ((Ast.Statement.Declaration) statements.get(2)).getValue().get());
+        Assertions.assertEquals("$0", ((Ast.Expression.Access) ((Ast.Statement.Declaration) statements.get(4)).getValue().get()).getName());
+    }
+
+    /**
+     * Creates a source with the global {@code n = 10} and a main function
+     * running the given statements in a loop over {@code i}, returning
+     * {@code total}.
+     */
+    private static Ast.Source source(List<Ast.Statement> body) {
+        return source(Arrays.asList(), body);
+    }
+
+    /**
+     * Creates the same source as {@link #source(List)}, running the
+     * {@code before} statements ahead of the loop.
+     */
+    private static Ast.Source source(List<Ast.Statement> before, List<Ast.Statement> body) {
+        List<Ast.Statement> statements = new ArrayList<>(Arrays.asList(declaration("i", integer(0)), declaration("total", integer(0))));
+        statements.addAll(before);
+        statements.add(new Ast.Statement.While(binary("<", access("i"), access("n")), body));
+        statements.add(new Ast.Statement.Return(access("total")));
+        return new Ast.Source(
+                Arrays.asList(init(new Ast.Global("n", "Integer", true, Optional.of(integer(10))),
+                        ast -> ast.setVariable(variable("n")))),
+                Arrays.asList(init(new Ast.Function("main", Arrays.asList(), Arrays.asList(), Optional.of("Integer"), statements), ast -> ast.setFunction(new Environment.Function("main", "main", Arrays.asList(), Environment.Type.INTEGER, args -> Environment.NIL))))
+        );
+    }
+
+    private static Ast.Source optimize(Ast.Source source) {
+        return new Optimizer().visit(source);
+    }
+
+    private static Ast.Statement.Declaration declaration(String name, Ast.Expression value) {
+        return init(new Ast.Statement.Declaration(name, Optional.of(value)), ast -> ast.setVariable(variable(name)));
+    }
+
+    private static Environment.Variable variable(String name) {
+        return new Environment.Variable(name, name, Environment.Type.INTEGER, true, Environment.NIL);
+    }
+
+    private static Ast.Expression.Access access(String name) {
+        return init(new Ast.Expression.Access(Optional.empty(), name), ast -> ast.setVariable(variable(name)));
+    }
+
+    private static Ast.Expression.Literal integer(long value) {
+        return init(new Ast.Expression.Literal(BigInteger.valueOf(value)), ast -> ast.setType(Environment.Type.INTEGER));
+    }
+
+    private static Ast.Expression.Binary binary(String operator, Ast.Expression left, Ast.Expression right) {
+        Environment.Type type = operator.equals("<") ? Environment.Type.BOOLEAN : Environment.Type.INTEGER;
+        return init(new Ast.Expression.Binary(operator, left, right), ast -> ast.setType(type));
+    }
+
+    /**
+     * Runs a callback on the given value, used for inline initialization.
+     */
+    private static <T> T init(T value, Consumer<T> initializer) {
+        initializer.accept(value);
+        return value;
+    }
+
+}
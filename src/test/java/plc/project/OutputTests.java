@@ -0,0 +1,85 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public final class OutputTests {
+
+    private static final String INPUT = "FUN main(): Integer DO LET i = 0; " +
+            "WHILE i != 3 DO print(i); i = i + 1; END print(\"done\"); RETURN 0; END";
+
+    @Test
+    void testBuffered() {
+        StringWriter writer = new StringWriter();
+        Output.Buffered output = new Output.Buffered(writer, 1024, 2);
+        output.println("a");
+        Assertions.assertEquals("", writer.toString());
+        output.println(1);
+        Assertions.assertEquals("a" + System.lineSeparator() + "1" + System.lineSeparator(), writer.toString());
+        output.println("b");
+        output.flush();
+        Assertions.assertTrue(writer.toString().endsWith("b" + System.lineSeparator()));
+
+        // a full buffer is written whatever the policy
+        StringWriter full = new StringWriter();
+        Output.Buffered small = new Output.Buffered(full, 4, Integer.MAX_VALUE);
+        small.println("abcd");
+        Assertions.assertEquals("abcd" + System.lineSeparator(), full.toString());
+    }
+
+    @Test
+    void testInterpreter() {
+        Output.Memory output = new Output.Memory();
+        Interpreter interpreter = new Interpreter(new Scope(null));
+        interpreter.setOutput(output);
+        interpreter.visit(parse(INPUT));
+        Assertions.assertEquals(Arrays.asList("0", "1", "2", "done"), output.getLines());
+    }
+
+    @Test
+    void testGenerator() {
+        Ast.Source source = parse("FUN main(): Integer DO print(1); print(\"done\"); RETURN 0; END");
+        new Analyzer(new Scope(null)).visit(source);
+        Output.Memory output = new Output.Memory();
+        Assertions.assertEquals(0, JavaRunner.run(source, output));
+        Assertions.assertEquals(Arrays.asList("1", "done"), output.getLines());
+
+        // a global may have the name the generated class prints through
+        source = parse("VAR output: Integer = 1; FUN main(): Integer DO print(output); RETURN 0; END");
+        new Analyzer(new Scope(null)).visit(source);
+        output = new Output.Memory();
+        Assertions.assertEquals(0, JavaRunner.run(source, output));
+        Assertions.assertEquals(Arrays.asList("1"), output.getLines());
+    }
+
+    @Test
+    void testAsync() throws Exception {
+        Output.Memory memory = new Output.Memory();
+        try (Output.Async output = new Output.Async(memory, 4);
+             ExecutionService service = new ExecutionService(8, Duration.ofSeconds(10), output)) {
+            List<CompletableFuture<Environment.PlcObject>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(service.submit(new Engine(parse(INPUT))));
+            }
+            for (CompletableFuture<Environment.PlcObject> result : results) {
+                result.get();
+            }
+            // each run flushed its lines when it ended
+            Assertions.assertEquals(32, memory.getLines().size());
+            Assertions.assertEquals(8, Collections.frequency(memory.getLines(), "done"));
+        }
+    }
+
+    private static Ast.Source parse(String input) {
+        return new Parser(new Lexer(input).lex()).parseSource();
+    }
+
+}
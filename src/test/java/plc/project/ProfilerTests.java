@@ -0,0 +1,53 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.Map;
+
+public final class ProfilerTests {
+
+    private static final String INPUT = "VAR total: Integer = 0; " +
+            "FUN twice(x: Integer): Integer DO RETURN x * 2; END " +
+            "FUN add(x: Integer): Integer DO total = total + twice(x); RETURN total; END " +
+            "FUN main(): Integer DO LET i = 0; WHILE i != 20000 DO add(i); i = i + 1; END RETURN total; END";
+
+    @Test
+    void testProfile() throws InterruptedException {
+        Profiler profiler = new Profiler(Duration.ofNanos(100000));
+        profiler.start();
+        try {
+            // run until the sampler has seen the program
+            for (int i = 0; i < 100 && profiler.getCollapsedStacks().isEmpty(); i++) {
+                Assertions.assertEquals(BigInteger.valueOf(399980000), run(profiler).getValue());
+            }
+        } finally {
+            profiler.stop();
+        }
+
+        String collapsed = profiler.getCollapsedStacks();
+        Assertions.assertFalse(collapsed.isEmpty());
+        for (String line : collapsed.split("\n")) {
+            Assertions.assertTrue(line.matches("main/0(;add/1(;twice/1)?)? [0-9]+"), line);
+        }
+
+        Map<String, Profiler.Entry> entries = profiler.getEntries();
+        long runs = entries.get("main/0").getCalls();
+        Assertions.assertEquals(20000 * runs, entries.get("add/1").getCalls());
+        Assertions.assertEquals(20000 * runs, entries.get("twice/1").getCalls());
+        Profiler.Entry main = entries.get("main/0");
+        Assertions.assertTrue(main.getTotalNanos() > 0);
+        Assertions.assertTrue(main.getSelfNanos() <= main.getTotalNanos());
+        Assertions.assertTrue(profiler.getReport().startsWith("function"), profiler.getReport());
+    }
+
+    private static Environment.PlcObject run(Profiler profiler) {
+        Interpreter interpreter = new Interpreter(new Scope(null));
+        interpreter.setThresholds(Integer.MAX_VALUE, Integer.MAX_VALUE);
+        interpreter.setProfiler(profiler);
+        return interpreter.visit(new Parser(new Lexer(INPUT).lex()).parseSource());
+    }
+
+}
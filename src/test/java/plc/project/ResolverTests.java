@@ -0,0 +1,96 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Optional;
+
+public final class ResolverTests {
+
+    @Test
+    void testSlots() {
+        Ast.Source source = loop();
+        new Resolver().visit(source);
+
+        Ast.Function main = source.getFunctions().get(0);
+        Ast.Statement.While loop = (Ast.Statement.While) main.getStatements().get(1);
+        Ast.Statement.If condition = (Ast.Statement.If) main.getStatements().get(2);
+        Ast.Statement.Assignment total = (Ast.Statement.Assignment) loop.getStatements().get(1);
+        Assertions.assertEquals(0, source.getGlobals().get(0).getSlot());
+        Assertions.assertEquals(0, ((Ast.Statement.Declaration) main.getStatements().get(0)).getSlot());
+        Assertions.assertEquals(1, ((Ast.Statement.Declaration) loop.getStatements().get(0)).getSlot());
+        // the if block is not live during the loop, so it reuses the slot of j
+        Assertions.assertEquals(1, ((Ast.Statement.Declaration) condition.getThenStatements().get(0)).getSlot());
+        Assertions.assertEquals(2, main.getFrameSize());
+        Assertions.assertEquals(Resolver.GLOBAL, ((Ast.Expression.Access) total.getReceiver()).getDepth());
+        Assertions.assertEquals(Resolver.LOCAL, ((Ast.Expression.Access) ((Ast.Expression.Binary) total.getValue()).getRight()).getDepth());
+        Assertions.assertEquals(1, ((Ast.Expression.Access) ((Ast.Expression.Binary) total.getValue()).getRight()).getSlot());
+    }
+
+    @Test
+    void testInterpretResolved() {
+        Ast.Source source = loop();
+        new Resolver().visit(source);
+        Scope scope = new Scope(null);
+        Assertions.assertEquals(BigInteger.valueOf(50), new Interpreter(scope).visit(source).getValue());
+    }
+
+    @Test
+    void testListAssignment() {
+        // FUN main() DO LET list = [1, 2, 3]; list[1] = 5; RETURN list[1]; END
+        Ast.Source source = new Ast.Source(Arrays.asList(), Arrays.asList(
+                new Ast.Function("main", Arrays.asList(), Arrays.asList(
+                        new Ast.Statement.Declaration("list", Optional.of(new Ast.Expression.PlcList(Arrays.asList(
+                                new Ast.Expression.Literal(BigInteger.ONE),
+                                new Ast.Expression.Literal(BigInteger.valueOf(2)),
+                                new Ast.Expression.Literal(BigInteger.valueOf(3))
+                        )))),
+                        new Ast.Statement.Assignment(
+                                new Ast.Expression.Access(Optional.of(new Ast.Expression.Literal(BigInteger.ONE)), "list"),
+                                new Ast.Expression.Literal(BigInteger.valueOf(5))
+                        ),
+                        new Ast.Statement.Return(new Ast.Expression.Access(Optional.of(new Ast.Expression.Literal(BigInteger.ONE)), "list"))
+                ))
+        ));
+        new Resolver().visit(source);
+        Assertions.assertEquals(BigInteger.valueOf(5), new Interpreter(new Scope(null)).visit(source).getValue());
+    }
+
+    /**
+     * VAR total = 0;
+     * FUN main() DO
+     *     LET i = 0;
+     *     WHILE i < 10 DO LET j = i; total = total + j; i = i + 1; END
+     *     IF TRUE DO LET k = 5; total = total + k; END
+     *     RETURN total;
+     * END
+     */
+    private static Ast.Source loop() {
+        return new Ast.Source(
+                Arrays.asList(new Ast.Global("total", true, Optional.of(new Ast.Expression.Literal(BigInteger.ZERO)))),
+                Arrays.asList(new Ast.Function("main", Arrays.asList(), Arrays.asList(
+                        new Ast.Statement.Declaration("i", Optional.of(new Ast.Expression.Literal(BigInteger.ZERO))),
+                        new Ast.Statement.While(
+                                new Ast.Expression.Binary("<", access("i"), new Ast.Expression.Literal(BigInteger.TEN)),
+                                Arrays.asList(
+                                        new Ast.Statement.Declaration("j", Optional.of(access("i"))),
+                                        new Ast.Statement.Assignment(access("total"), new Ast.Expression.Binary("+", access("total"), access("j"))),
+                                        new Ast.Statement.Assignment(access("i"), new Ast.Expression.Binary("+", access("i"), new Ast.Expression.Literal(BigInteger.ONE)))
+                                )
+                        ),
+                        new Ast.Statement.If(new Ast.Expression.Literal(true), Arrays.asList(
+                                new Ast.Statement.Declaration("k", Optional.of(new Ast.Expression.Literal(BigInteger.valueOf(5)))),
+                                new Ast.Statement.Assignment(access("total"), new Ast.Expression.Binary("+", access("total"), access("k")))
+                        ), Arrays.asList()),
+                        new Ast.Statement.Return(access("total"))
+                )))
+        );
+    }
+
+    private static Ast.Expression.Access access(String name) {
+        return new Ast.Expression.Access(Optional.empty(), name);
+    }
+
+}
@@ -0,0 +1,115 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+
+public final class TypedListTests {
+
+    @Test
+    void testIntegers() {
+        TypedList list = TypedList.of("Integer", Arrays.asList(BigInteger.ONE, BigInteger.valueOf(5000)));
+        Assertions.assertEquals(Arrays.asList(BigInteger.ONE, BigInteger.valueOf(5000)), list);
+        Assertions.assertSame(Environment.createInteger(1), list.getObject(0));
+        Assertions.assertTrue(list.getObject(1).isLong());
+
+        list.setObject(0, Environment.createInteger(-7));
+        Assertions.assertEquals(BigInteger.valueOf(-7), list.get(0));
+        // an Integer beyond a long boxes the list, keeping its elements
+        BigInteger big = BigInteger.ONE.shiftLeft(100);
+        list.set(1, big);
+        Assertions.assertEquals(Arrays.asList(BigInteger.valueOf(-7), big), list);
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> list.add(BigInteger.ONE));
+    }
+
+    @Test
+    void testOtherTypes() {
+        List<Object> decimals = Arrays.asList(new BigDecimal("1.5"), new BigDecimal("2.0"));
+        Assertions.assertEquals(decimals, TypedList.of("Decimal", decimals));
+        // a double does not keep the scale of 1.10
+        List<Object> scaled = Arrays.asList(new BigDecimal("1.10"), new BigDecimal("2.0"));
+        Assertions.assertEquals(scaled, TypedList.of("Decimal", scaled));
+
+        TypedList characters = TypedList.of("Character", Arrays.asList('a', 'b'));
+        Assertions.assertSame(Environment.create('b'), characters.getObject(1));
+
+        TypedList booleans = TypedList.of("Boolean", Arrays.asList(true, false, true));
+        Assertions.assertSame(Environment.FALSE, booleans.getObject(1));
+        booleans.set(1, true);
+        Assertions.assertEquals(Arrays.asList(true, true, true), booleans);
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> booleans.get(3));
+
+        Assertions.assertEquals(Arrays.asList("a", 'b'), TypedList.of("Any", Arrays.asList("a", 'b')));
+    }
+
+    @Test
+    void testOffHeap() {
+        TypedList list = TypedList.of("Integer", Arrays.asList(BigInteger.ONE, BigInteger.TEN), 2);
+        Assertions.assertTrue(list.isOffHeap());
+        list.setObject(1, Environment.createInteger(Long.MAX_VALUE));
+        Assertions.assertEquals(Arrays.asList(BigInteger.ONE, BigInteger.valueOf(Long.MAX_VALUE)), list);
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> list.get(2));
+        list.release();
+        Assertions.assertThrows(RuntimeException.class, () -> list.get(0));
+
+        TypedList decimals = TypedList.of("Decimal", Arrays.asList(new BigDecimal("0.5"), new BigDecimal("1.5")), 2);
+        Assertions.assertTrue(decimals.isOffHeap());
+        decimals.moveOnHeap();
+        Assertions.assertFalse(decimals.isOffHeap());
+        Assertions.assertEquals(Arrays.asList(new BigDecimal("0.5"), new BigDecimal("1.5")), decimals);
+
+        // a value that does not fit moves the list onto the heap, boxed
+        TypedList characters = TypedList.of("Character", Arrays.asList('a', 'b'), 1);
+        characters.set(0, "ab");
+        Assertions.assertFalse(characters.isOffHeap());
+        Assertions.assertEquals(Arrays.asList("ab", 'b'), characters);
+
+        Assertions.assertFalse(TypedList.of("Boolean", Arrays.asList(true, false), 1).isOffHeap());
+    }
+
+    @Test
+    void testOffHeapRun() {
+        Interpreter interpreter = new Interpreter(new Scope(null));
+        interpreter.setOffHeapThreshold(2);
+        Ast.Source source = new Parser(new Lexer("LIST xs: Integer = [1, 2, 3]; LIST ys: Integer = [4, 5]; " +
+                "FUN main(): Integer DO xs[0] = xs[1] + xs[2]; RETURN xs; END").lex()).parseSource();
+        Object result = interpreter.visit(source).getValue();
+        // the result outlives the run, while the other list is released
+        Assertions.assertEquals(Arrays.asList(BigInteger.valueOf(5), BigInteger.valueOf(2), BigInteger.valueOf(3)), result);
+        Object ys = interpreter.getScope().lookupVariable("ys").getValue().getValue();
+        Assertions.assertThrows(RuntimeException.class, () -> ((List<?>) ys).get(0));
+    }
+
+    @Test
+    void testOffHeapNestedRun() {
+        Interpreter interpreter = new Interpreter(new Scope(null));
+        interpreter.setOffHeapThreshold(2);
+        Ast.Source source = new Parser(new Lexer("LIST xs: Integer = [1, 2]; LIST ys: Character = ['a', 'b']; " +
+                "LIST zs: Integer = [3, 4]; LIST all: Any = [xs, 5]; " +
+                "FUN main(): Integer DO all[1] = ys; RETURN all; END").lex()).parseSource();
+        List<?> result = (List<?>) interpreter.visit(source).getValue();
+        // the lists reached through the result outlive the run
+        Assertions.assertEquals(Arrays.asList(BigInteger.ONE, BigInteger.valueOf(2)), result.get(0));
+        Assertions.assertEquals(Arrays.asList('a', 'b'), result.get(1));
+        Assertions.assertFalse(((TypedList) result.get(0)).isOffHeap());
+        Object zs = interpreter.getScope().lookupVariable("zs").getValue().getValue();
+        Assertions.assertThrows(RuntimeException.class, () -> ((List<?>) zs).get(0));
+    }
+
+    @Test
+    void testInterpreter() {
+        Ast.Source source = new Parser(new Lexer("LIST xs: Integer = [1, 2, 3]; " +
+                "FUN main(): Integer DO LET i = 0; LET total = 0; " +
+                "WHILE i != 3 DO xs[i] = xs[i] * 10; total = total + xs[i]; i = i + 1; END RETURN total; END").lex()).parseSource();
+        Interpreter interpreter = new Interpreter(new Scope(null));
+        Assertions.assertEquals(BigInteger.valueOf(60), interpreter.visit(source).getValue());
+        Object xs = interpreter.getScope().lookupVariable("xs").getValue().getValue();
+        Assertions.assertTrue(xs instanceof TypedList);
+        Assertions.assertEquals(Arrays.asList(BigInteger.TEN, BigInteger.valueOf(20), BigInteger.valueOf(30)), xs);
+    }
+
+}
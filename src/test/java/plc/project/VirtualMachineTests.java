@@ -0,0 +1,152 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+public final class VirtualMachineTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testSource(String test, String input, Object expected) {
+        Assertions.assertEquals(expected, new Interpreter(new Scope(null)).visit(parse(input)).getValue());
+        Assertions.assertEquals(expected, new VirtualMachine(new Compiler().compile(parse(input)), new Scope(null)).run().getValue());
+    }
+
+    private static Stream<Arguments> testSource() {
+        return Stream.of(
+                Arguments.of("Loop",
+                        "VAR total: Integer = 0; " +
+                        "FUN main(): Integer DO LET i = 0; WHILE i != 10 DO total = total + i; i = i + 1; END RETURN total; END",
+                        BigInteger.valueOf(45)
+                ),
+                Arguments.of("Decimal",
+                        "FUN main(): Decimal DO LET x = 1.5; RETURN x * 2.0 / 4.0; END",
+                        new BigDecimal("0.75")
+                ),
+                Arguments.of("Overflow",
+                        "FUN main(): Integer DO LET x = 9223372036854775807; RETURN x + 1; END",
+                        new BigInteger("9223372036854775808")
+                ),
+                Arguments.of("Short Circuit",
+                        "FUN main(): Boolean DO RETURN FALSE && undefined() || TRUE; END",
+                        true
+                ),
+                Arguments.of("If",
+                        "FUN main(): String DO IF 1 == 2 DO RETURN \"then\"; ELSE RETURN \"else\"; END END",
+                        "else"
+                ),
+                Arguments.of("List",
+                        "LIST list: Integer = [1, 2, 3]; " +
+                        "FUN main(): Integer DO list[1] = list[0] + list[2]; RETURN list[1]; END",
+                        BigInteger.valueOf(4)
+                ),
+                Arguments.of("Switch",
+                        "FUN main(): Integer DO LET x = 0; SWITCH 2 CASE 1: x = 1; CASE 2: x = x + 2; CASE 2: x = x + 3; DEFAULT x = 10; END RETURN x; END",
+                        BigInteger.valueOf(5)
+                ),
+                Arguments.of("Switch Default",
+                        "FUN main(): Integer DO LET x = 0; SWITCH 3 CASE 1: x = 1; DEFAULT x = 10; END RETURN x; END",
+                        BigInteger.valueOf(10)
+                ),
+                Arguments.of("Recursion",
+                        "FUN fib(n: Integer): Integer DO IF n == 0 || n == 1 DO RETURN n; END RETURN fib(n + -1) + fib(n + -2); END " +
+                        "FUN main(): Integer DO RETURN fib(15); END",
+                        BigInteger.valueOf(610)
+                ),
+                Arguments.of("Tail Recursion",
+                        "FUN sum(n: Integer, acc: Integer): Integer DO IF n == 0 DO RETURN acc; END RETURN sum(n + -1, acc + n); END " +
+                        "FUN main(): Integer DO RETURN sum(100000, 0); END",
+                        BigInteger.valueOf(5000050000L)
+                ),
+                Arguments.of("Deep Recursion",
+                        "FUN depth(n: Integer): Integer DO IF n == 0 DO RETURN 0; END RETURN 1 + depth(n + -1); END " +
+                        "FUN main(): Integer DO RETURN depth(100); END",
+                        BigInteger.valueOf(100)
+                ),
+                Arguments.of("Builtin",
+                        "FUN main(): String DO RETURN converter(10, 2); END",
+                        "1010"
+                )
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testComparison(String test, Ast.Expression.Binary ast, Object expected) {
+        // the parser does not accept < and >, so these are built directly
+        Ast.Source source = new Ast.Source(Arrays.asList(), Arrays.asList(
+                new Ast.Function("main", Arrays.asList(), Arrays.asList(new Ast.Statement.Return(ast)))
+        ));
+        Assertions.assertEquals(expected, new VirtualMachine(new Compiler().compile(source), new Scope(null)).run().getValue());
+    }
+
+    private static Stream<Arguments> testComparison() {
+        return Stream.of(
+                Arguments.of("Integer Less Than", new Ast.Expression.Binary("<",
+                        new Ast.Expression.Literal(BigInteger.ONE),
+                        new Ast.Expression.Literal(BigInteger.TEN)
+                ), true),
+                Arguments.of("Decimal Greater Than", new Ast.Expression.Binary(">",
+                        new Ast.Expression.Literal(new BigDecimal("1.5")),
+                        new Ast.Expression.Literal(new BigDecimal("2.5"))
+                ), false),
+                Arguments.of("String Less Than", new Ast.Expression.Binary("<",
+                        new Ast.Expression.Literal("a"),
+                        new Ast.Expression.Literal("b")
+                ), true)
+        );
+    }
+
+    @Test
+    void testDeepRecursion() {
+        // deeper than the Java stack allows the interpreter to go
+        Ast.Source source = parse("FUN depth(n: Integer): Integer DO IF n == 0 DO RETURN 0; END RETURN 1 + depth(n + -1); END " +
+                "FUN main(): Integer DO RETURN depth(200000); END");
+        Assertions.assertEquals(BigInteger.valueOf(200000), new VirtualMachine(new Compiler().compile(source), new Scope(null)).run().getValue());
+    }
+
+    @Test
+    void testNonMutable() {
+        Assertions.assertThrows(RuntimeException.class, () -> new Compiler().compile(parse(
+                "VAL x: Integer = 1; FUN main(): Integer DO x = 2; RETURN x; END"
+        )));
+    }
+
+    @Test
+    void testDisassemble() {
+        Bytecode.Program program = new Compiler().compile(parse(
+                "VAR x: Integer = 1; FUN main(): Integer DO LET y = x + 2; RETURN y; END"
+        ));
+        String expected = String.join(System.lineSeparator(), Arrays.asList(
+                "<globals>/0 (frame 0):",
+                "0000 CONST 0 (1)",
+                "0002 STORE_GLOBAL 0",
+                "0004 NIL",
+                "0005 RETURN",
+                "main/0 (frame 1):",
+                "0000 LOAD_GLOBAL 0",
+                "0002 CONST 1 (2)",
+                "0004 ADD",
+                "0005 STORE 0",
+                "0007 LOAD 0",
+                "0009 RETURN",
+                "0010 NIL",
+                "0011 RETURN",
+                ""
+        ));
+        Assertions.assertEquals(expected, Bytecode.disassemble(program));
+    }
+
+    private static Ast.Source parse(String input) {
+        return new Parser(new Lexer(input).lex()).parseSource();
+    }
+
+}